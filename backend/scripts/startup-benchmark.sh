@@ -0,0 +1,98 @@
+#!/usr/bin/env bash
+# Startup of the plain jar against the AOT-processed jar with its class data sharing archive.
+# Measures the time from process start to the first accepted WebSocket handshake, and the
+# resident set size once the application has settled after booting.
+#
+# Usage, from backend/: scripts/startup-benchmark.sh [runs] [spring profile]
+#   scripts/startup-benchmark.sh            3 runs each of the STOMP endpoint
+#   scripts/startup-benchmark.sh 5 netty    5 runs each of the Netty transport
+#
+# Both variants are built here with `mvn clean package`, so target/ is replaced and ends up
+# holding the AOT build. Needs bash and GNU date. The JDK is taken from JAVA_HOME, as Maven
+# does, because the archive only loads on the JVM it was trained with.
+set -euo pipefail
+
+RUNS=${1:-3}
+PROFILE=${2:-default}
+HTTP_PORT=${HTTP_PORT:-18080}
+WS_PORT=${WS_PORT:-18081}
+SETTLE_SECONDS=${SETTLE_SECONDS:-1}
+JAR=backend-0.0.1-SNAPSHOT.jar
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+cd "$(dirname "$0")/.."
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+# The STOMP endpoint takes raw WebSocket connections under its SockJS path
+if [ "$PROFILE" = netty ]; then
+    HANDSHAKE_PORT=$WS_PORT
+    HANDSHAKE_PATH=/ws
+else
+    HANDSHAKE_PORT=$HTTP_PORT
+    HANDSHAKE_PATH=/ws/websocket
+fi
+
+# Sends a WebSocket upgrade, succeeds once the server answers 101 Switching Protocols
+handshake() {
+    local status=""
+    { exec 3<>"/dev/tcp/127.0.0.1/$HANDSHAKE_PORT"; } 2>/dev/null || return 1
+    printf 'GET %s HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n' \
+        "$HANDSHAKE_PATH" >&3 2>/dev/null || true
+    read -r -t 5 status <&3 || true
+    exec 3>&-
+    [[ $status == *" 101 "* ]]
+}
+
+# measure <label> <directory holding the jar> [java options...]
+measure() {
+    local label=$1 dir=$2
+    shift 2
+    local times=() sizes=()
+    for run in $(seq "$RUNS"); do
+        local log="$WORK/$label-$run.log" start pid ready rss
+        start=$(date +%s%N)
+        (cd "$dir" && exec "$JAVA" "$@" -Dspring.profiles.active="$PROFILE" -jar "$JAR" \
+            --server.port="$HTTP_PORT" --audio.netty.port="$WS_PORT") >"$log" 2>&1 &
+        pid=$!
+        until handshake; do
+            if ! kill -0 "$pid" 2>/dev/null; then
+                echo "$label did not start:" >&2
+                cat "$log" >&2
+                exit 1
+            fi
+            sleep 0.01
+        done
+        ready=$((($(date +%s%N) - start) / 1000000))
+        sleep "$SETTLE_SECONDS"
+        rss=$(($(ps -o rss= -p "$pid") / 1024))
+        kill "$pid"
+        wait "$pid" 2>/dev/null || true
+        printf '  %-8s run %d: first WebSocket connection after %6d ms, RSS %4d MB\n' "$label" "$run" "$ready" "$rss"
+        times+=("$ready")
+        sizes+=("$rss")
+    done
+    printf '  %-8s median: %6d ms, %4d MB\n' "$label" "$(median "${times[@]}")" "$(median "${sizes[@]}")"
+}
+
+# build <maven arguments...>, with the output only shown if the build fails
+build() {
+    mvn -B "$@" >"$WORK/build.log" 2>&1 || { cat "$WORK/build.log" >&2; exit 1; }
+}
+
+median() {
+    printf '%s\n' "$@" | sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+echo "Building the plain jar"
+build clean package -DskipTests
+mkdir "$WORK/plain"
+cp "target/$JAR" "$WORK/plain/"
+
+echo "Building the AOT jar and training its archive (profile $PROFILE)"
+build clean package -Paot -Daot.profiles="$PROFILE" -DskipTests
+
+echo "startup: profile $PROFILE, $RUNS runs each, RSS taken ${SETTLE_SECONDS}s after the first connection"
+measure plain "$WORK/plain"
+# The archive records the classpath it was trained on, so this variant runs in place
+measure aot-cds target -XX:SharedArchiveFile=syncwave.jsa -Dspring.aot.enabled=true
@@ -0,0 +1,144 @@
+package com.audiosync.backend.buffer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of audio payload buffers in power-of-two size classes from 1 KiB to 1 MiB, backed by
+ * heap arrays or, optionally, direct memory. Free lists are fixed-size array queues so that
+ * recycling a buffer does not allocate. Larger requests get unpooled buffers.
+ */
+@Component
+public class AudioBufferPool {
+    private static final Logger logger = LoggerFactory.getLogger(AudioBufferPool.class);
+
+    private static final int MIN_SHIFT = 10; // 1 KiB
+    private static final int MAX_SHIFT = 20; // 1 MiB
+
+    private final boolean direct;
+    private final boolean leakDetection;
+    private final ArrayBlockingQueue<PooledAudioBuffer>[] freeLists;
+
+    private final AtomicLong outstanding = new AtomicLong();
+    private final Map<PooledAudioBuffer, Boolean> tracked = new ConcurrentHashMap<>();
+    private final Counter allocations;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public AudioBufferPool(MeterRegistry meterRegistry,
+                           @Value("${audio.buffer.direct:false}") boolean direct,
+                           @Value("${audio.buffer.max-pooled-per-class:64}") int maxPooledPerClass,
+                           @Value("${audio.buffer.leak-detection:false}") boolean leakDetection) {
+        this.direct = direct;
+        this.leakDetection = leakDetection;
+        this.freeLists = new ArrayBlockingQueue[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < freeLists.length; i++) {
+            freeLists[i] = new ArrayBlockingQueue<>(maxPooledPerClass);
+        }
+        this.allocations = meterRegistry.counter("audio.buffer.allocations");
+        meterRegistry.gauge("audio.buffer.outstanding", outstanding);
+    }
+
+    /**
+     * Get a buffer with room for at least the given number of bytes, holding one reference
+     * @param capacity Minimum capacity in bytes
+     * @return An empty buffer
+     */
+    public PooledAudioBuffer acquire(int capacity) {
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(1, capacity) - 1));
+        PooledAudioBuffer buffer;
+        if (shift > MAX_SHIFT) {
+            buffer = allocate(capacity, -1);
+        } else {
+            int sizeClass = shift - MIN_SHIFT;
+            buffer = freeLists[sizeClass].poll();
+            if (buffer == null) {
+                buffer = allocate(1 << shift, sizeClass);
+            }
+        }
+
+        buffer.reset();
+        outstanding.incrementAndGet();
+        if (leakDetection) {
+            buffer.acquiredAtNanos = System.nanoTime();
+            buffer.allocationTrace = new Throwable("Audio buffer acquired here");
+            tracked.put(buffer, Boolean.TRUE);
+        }
+        return buffer;
+    }
+
+    /**
+     * Copy a payload into a pooled buffer, for data whose owner reuses its array
+     * @param data The payload
+     * @return A buffer holding the copy and one reference
+     */
+    public PooledAudioBuffer copyOf(byte[] data) {
+        PooledAudioBuffer buffer = acquire(data.length);
+        try {
+            buffer.write(data, 0, data.length);
+        } catch (IOException e) {
+            // Can't happen, the buffer was acquired with room for the data
+            buffer.release();
+            throw new IllegalStateException(e);
+        }
+        return buffer;
+    }
+
+    void recycle(PooledAudioBuffer buffer) {
+        outstanding.decrementAndGet();
+        if (leakDetection) {
+            tracked.remove(buffer);
+            buffer.allocationTrace = null;
+        }
+        if (buffer.getSizeClass() >= 0) {
+            freeLists[buffer.getSizeClass()].offer(buffer);
+        }
+    }
+
+    /**
+     * Number of buffers acquired and not yet fully released
+     */
+    public long outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Log buffers that have been held longer than the given age. Only active with leak detection enabled.
+     * @param maxAgeMillis Age after which an unreleased buffer is reported
+     * @return Number of buffers reported
+     */
+    public int reportLeaks(long maxAgeMillis) {
+        if (!leakDetection) {
+            return 0;
+        }
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        int leaks = 0;
+        for (PooledAudioBuffer buffer : tracked.keySet()) {
+            Throwable trace = buffer.allocationTrace;
+            if (buffer.acquiredAtNanos < cutoff && trace != null) {
+                logger.warn("Audio buffer not released after {} ms (refCnt={})", maxAgeMillis, buffer.refCnt(), trace);
+                leaks++;
+            }
+        }
+        return leaks;
+    }
+
+    private PooledAudioBuffer allocate(int capacity, int sizeClass) {
+        allocations.increment();
+        ByteBuffer memory = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        return new PooledAudioBuffer(this, memory, sizeClass);
+    }
+}
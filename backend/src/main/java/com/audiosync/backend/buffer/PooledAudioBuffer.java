@@ -0,0 +1,129 @@
+package com.audiosync.backend.buffer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted audio payload buffer handed out by {@link AudioBufferPool}.
+ * A buffer starts with one reference; every stage that keeps the payload beyond its own
+ * call must {@link #retain()} it and {@link #release()} it when done. The last release
+ * returns the buffer to the pool. Reads use absolute little-endian accessors so several
+ * threads can read the same payload without copying it.
+ */
+public class PooledAudioBuffer implements JsonSerializable {
+    private final AudioBufferPool pool;
+    private final ByteBuffer buffer;
+    private final int sizeClass; // -1 for oversized buffers that are never pooled
+    private final AtomicInteger refCnt = new AtomicInteger();
+    private final OutputStream writer = new BufferWriter();
+    private int length;
+
+    long acquiredAtNanos;
+    Throwable allocationTrace;
+
+    PooledAudioBuffer(AudioBufferPool pool, ByteBuffer buffer, int sizeClass) {
+        this.pool = pool;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.sizeClass = sizeClass;
+    }
+
+    void reset() {
+        length = 0;
+        refCnt.set(1);
+    }
+
+    int getSizeClass() {
+        return sizeClass;
+    }
+
+    public PooledAudioBuffer retain() {
+        if (refCnt.getAndIncrement() <= 0) {
+            refCnt.getAndDecrement();
+            throw new IllegalStateException("Audio buffer already released");
+        }
+        return this;
+    }
+
+    public void release() {
+        int remaining = refCnt.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(this);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Audio buffer released too many times");
+        }
+    }
+
+    public int refCnt() {
+        return refCnt.get();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Little-endian view of the backing memory. Only absolute reads within {@link #length()} are valid.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Stream that appends to the payload, used to decode directly into the buffer
+     */
+    public OutputStream outputStream() {
+        return writer;
+    }
+
+    public void write(byte[] source, int offset, int count) throws IOException {
+        if (length + count > buffer.capacity()) {
+            throw new IOException("Audio payload exceeds buffer capacity " + buffer.capacity());
+        }
+        buffer.put(length, source, offset, count);
+        length += count;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        if (buffer.hasArray()) {
+            gen.writeBinary(buffer.array(), buffer.arrayOffset(), length);
+        } else {
+            ByteBuffer view = buffer.duplicate();
+            view.position(0).limit(length);
+            gen.writeBinary(new ByteBufferBackedInputStream(view), length);
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+
+    private class BufferWriter extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            if (length >= buffer.capacity()) {
+                throw new IOException("Audio payload exceeds buffer capacity " + buffer.capacity());
+            }
+            buffer.put(length++, (byte) b);
+        }
+
+        @Override
+        public void write(byte[] source, int offset, int count) throws IOException {
+            PooledAudioBuffer.this.write(source, offset, count);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.audiosync.backend.config;
+
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.service.RoomService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Remembers which room a STOMP session is in, so inbound messages can be ordered per room
+ * rather than per session. Runs on the receiving thread before the message is handed to the
+ * channel executor. Join, resume and leave payloads are always read; other messages only
+ * until the session is known to be in a room, e.g. a host that created its room over REST.
+ */
+public class RoomOrderingInterceptor implements ChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(RoomOrderingInterceptor.class);
+    private static final String ROOM_ATTRIBUTE = "audio.orderingRoom";
+    private static final String NO_ROOM = "";
+
+    private final RoomService roomService;
+    private final ObjectMapper objectMapper;
+
+    public RoomOrderingInterceptor(RoomService roomService, ObjectMapper objectMapper) {
+        this.roomService = roomService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Ordering key of an inbound message: the session's room, or the session itself while
+     * it isn't in one
+     */
+    public static Object orderingKey(Message<?> message) {
+        Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(message.getHeaders());
+        Object room = attributes != null ? attributes.get(ROOM_ATTRIBUTE) : null;
+        if (room != null && !NO_ROOM.equals(room)) {
+            return room;
+        }
+        return SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(message.getHeaders());
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (attributes == null || destination == null
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        switch (destination) {
+            case "/app/join", "/app/resume" -> attributes.put(ROOM_ATTRIBUTE, roomOf(message));
+            case "/app/leave" -> attributes.put(ROOM_ATTRIBUTE, NO_ROOM);
+            // A zone spans rooms, its audio stays ordered per session
+            case "/app/zone-audio-data" -> {
+            }
+            default -> {
+                if (!attributes.containsKey(ROOM_ATTRIBUTE)) {
+                    String room = roomOf(message);
+                    if (!NO_ROOM.equals(room)) {
+                        attributes.put(ROOM_ATTRIBUTE, room);
+                    }
+                }
+            }
+        }
+        return message;
+    }
+
+    private String roomOf(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return NO_ROOM;
+        }
+        try {
+            JsonNode body = objectMapper.readTree(payload);
+            if (body.hasNonNull("roomId")) {
+                return body.get("roomId").asText();
+            }
+            if (body.hasNonNull("roomCode")) {
+                Optional<Room> room = roomService.getRoomByCode(body.get("roomCode").asText());
+                return room.map(Room::getId).orElse(NO_ROOM);
+            }
+        } catch (IOException e) {
+            logger.debug("Could not read the room of an inbound message: {}", e.getMessage());
+        }
+        return NO_ROOM;
+    }
+}
@@ -0,0 +1,57 @@
+package com.audiosync.backend.config;
+
+import com.audiosync.backend.diagnostics.BufferRecalculationEvent;
+import com.audiosync.backend.diagnostics.ChunkIngestEvent;
+import com.audiosync.backend.diagnostics.DeviceSendEvent;
+import com.audiosync.backend.diagnostics.FanoutEvent;
+import com.audiosync.backend.diagnostics.FrameDecodeEvent;
+import com.audiosync.backend.diagnostics.HeartbeatExpiryEvent;
+import com.audiosync.backend.diagnostics.RoomLifecycleEvent;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.LatencyBreakdown;
+import com.audiosync.backend.model.RoomDTO;
+import com.audiosync.backend.model.RoomEvent;
+import com.audiosync.backend.model.Zone;
+import com.audiosync.backend.websocket.*;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reflection the AOT build can't infer from the bean definitions. Message mappings and REST
+ * controllers are covered by Spring, but payloads that only reach Jackson through the
+ * DeviceMessenger or the Netty frame codec, and the Flight Recorder events, are not.
+ */
+@Configuration
+@ImportRuntimeHints(RuntimeHintsConfig.FlightRecorderHints.class)
+@RegisterReflectionForBinding({
+        // Inbound on the Netty transport, converted by FrameCodec
+        AudioAckMessage.class, AudioDataMessage.class, AudioSourceMessage.class, HeartbeatMessage.class,
+        JoinRoomMessage.class, LatencyMessage.class, LeaveRoomMessage.class, PlaybackControlMessage.class,
+        PlayoutPositionMessage.class, ResumeRoomMessage.class, VolumeControlMessage.class,
+        // Outbound to devices on either transport
+        AudioBatchMessage.class, DeviceUpdateMessage.class, PlayoutCorrectionMessage.class,
+        RoomDeltaMessage.class, RoomInfoMessage.class, LatencyBreakdown.class,
+        // Room snapshots and the event stream, serialized ahead of the response
+        RoomDTO.class, Device.class, RoomEvent.class, Zone.class
+})
+public class RuntimeHintsConfig {
+
+    /**
+     * Flight Recorder reads event fields and annotations reflectively when it registers an event class
+     */
+    static class FlightRecorderHints implements RuntimeHintsRegistrar {
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> event : new Class<?>[] {
+                    BufferRecalculationEvent.class, ChunkIngestEvent.class, DeviceSendEvent.class, FanoutEvent.class,
+                    FrameDecodeEvent.class, HeartbeatExpiryEvent.class, RoomLifecycleEvent.class}) {
+                hints.reflection().registerType(event, MemberCategory.DECLARED_FIELDS,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+            }
+        }
+    }
+}
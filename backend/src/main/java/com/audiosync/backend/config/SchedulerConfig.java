@@ -1,5 +1,9 @@
 package com.audiosync.backend.config;
 
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.diagnostics.DeliveryTracer;
+import com.audiosync.backend.service.AudioBatchingService;
+import com.audiosync.backend.service.AudioMixingService;
 import com.audiosync.backend.service.RoomService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
@@ -11,10 +15,19 @@ import org.springframework.scheduling.annotation.Scheduled;
 public class SchedulerConfig {
 
     private final RoomService roomService;
+    private final AudioBufferPool bufferPool;
+    private final DeliveryTracer deliveryTracer;
+    private final AudioBatchingService batchingService;
+    private final AudioMixingService mixingService;
 
     @Autowired
-    public SchedulerConfig(RoomService roomService) {
+    public SchedulerConfig(RoomService roomService, AudioBufferPool bufferPool, DeliveryTracer deliveryTracer,
+                           AudioBatchingService batchingService, AudioMixingService mixingService) {
         this.roomService = roomService;
+        this.bufferPool = bufferPool;
+        this.deliveryTracer = deliveryTracer;
+        this.batchingService = batchingService;
+        this.mixingService = mixingService;
     }
 
     /**
@@ -34,4 +47,41 @@ public class SchedulerConfig {
     public void cleanupEmptyRooms() {
         roomService.cleanupEmptyRooms();
     }
+
+    /**
+     * Scheduled task to report audio buffers that were never released
+     * Runs every minute, only does work with leak detection enabled
+     */
+    @Scheduled(fixedRate = 60000)
+    public void reportBufferLeaks() {
+        bufferPool.reportLeaks(30000);
+    }
+
+    /**
+     * Scheduled task to send batched audio that waited its whole window without filling up
+     * Runs every 20 milliseconds
+     */
+    @Scheduled(fixedRate = 20)
+    public void flushExpiredBatches() {
+        batchingService.flushExpired();
+    }
+
+    /**
+     * Scheduled task to send mixed audio that waited out the jitter window while the sources paused
+     * Runs every 20 milliseconds
+     */
+    @Scheduled(fixedRate = 20)
+    public void flushExpiredMixes() {
+        mixingService.flushExpired();
+    }
+
+    /**
+     * Scheduled task to send hosts the delivery latency of their traced rooms and drop unacked traces
+     * Runs every 5 seconds
+     */
+    @Scheduled(fixedRate = 5000)
+    public void publishLatencyReports() {
+        deliveryTracer.publishReports();
+        deliveryTracer.expireTraces();
+    }
 }
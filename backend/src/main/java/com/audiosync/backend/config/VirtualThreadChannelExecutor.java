@@ -0,0 +1,108 @@
+package com.audiosync.backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Channel executor that runs every task on its own virtual thread.
+ * The STOMP channel registration only accepts a {@link ThreadPoolTaskExecutor}, so this
+ * keeps that type but hands all work to a {@link VirtualThreadTaskExecutor}; the
+ * underlying pool is never used. Requires Java 21 at runtime.
+ * <p>
+ * With an ordering key, messages that share a key run one at a time in the order they were
+ * executed, each key on its own virtual thread while it has work queued. Messages without
+ * a key run concurrently.
+ */
+public class VirtualThreadChannelExecutor extends ThreadPoolTaskExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadChannelExecutor.class);
+
+    private final VirtualThreadTaskExecutor delegate;
+    private final Function<Message<?>, Object> orderingKey;
+    private final Map<Object, ArrayDeque<Runnable>> pending = new ConcurrentHashMap<>();
+
+    public VirtualThreadChannelExecutor(String threadNamePrefix) {
+        this(threadNamePrefix, message -> null);
+    }
+
+    /**
+     * @param threadNamePrefix Name prefix of the virtual threads
+     * @param orderingKey Key of a channel message whose tasks must not overlap or reorder,
+     *                    or null for messages that need no ordering
+     */
+    public VirtualThreadChannelExecutor(String threadNamePrefix, Function<Message<?>, Object> orderingKey) {
+        this.delegate = new VirtualThreadTaskExecutor(threadNamePrefix);
+        this.orderingKey = orderingKey;
+        setThreadNamePrefix(threadNamePrefix);
+        setCorePoolSize(1);
+        setMaxPoolSize(1);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Object key = task instanceof MessageHandlingRunnable handling ? orderingKey.apply(handling.getMessage()) : null;
+        if (key == null) {
+            delegate.execute(task);
+            return;
+        }
+
+        boolean[] idle = new boolean[1];
+        pending.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                idle[0] = true;
+            }
+            queue.add(task);
+            return queue;
+        });
+        if (idle[0]) {
+            delegate.execute(() -> drain(key, task));
+        }
+    }
+
+    /**
+     * Run a key's tasks until its queue is empty. The running task stays at the head of the
+     * queue, so tasks executed meanwhile line up behind it.
+     */
+    private void drain(Object key, Runnable first) {
+        Runnable task = first;
+        while (task != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Channel task for {} failed", key, e);
+            }
+            task = next(key);
+        }
+    }
+
+    private Runnable next(Object key) {
+        Runnable[] next = new Runnable[1];
+        pending.computeIfPresent(key, (k, queue) -> {
+            queue.poll();
+            next[0] = queue.peek();
+            return next[0] == null ? null : queue;
+        });
+        return next[0];
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(task);
+    }
+}
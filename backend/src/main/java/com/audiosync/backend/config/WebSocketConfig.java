@@ -1,6 +1,13 @@
 package com.audiosync.backend.config;
 
+import com.audiosync.backend.service.RoomService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -8,12 +15,31 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 
 @Configuration
 @EnableWebSocketMessageBroker
+@Profile("!netty")
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // Run inbound and outbound channel work on virtual threads (Java 21, "virtual-threads" profile)
+    @Value("${audio.threads.virtual:false}")
+    private boolean virtualThreads;
+
+    private final RoomService roomService;
+    private final ObjectMapper objectMapper;
+
+    // The room service sends through the broker configured here, so it is resolved lazily
+    @Autowired
+    public WebSocketConfig(@Lazy RoomService roomService, ObjectMapper objectMapper) {
+        this.roomService = roomService;
+        this.objectMapper = objectMapper;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/topic");
         config.setApplicationDestinationPrefixes("/app");
+        if (virtualThreads) {
+            // Unbounded virtual threads would otherwise reorder messages for a session
+            config.setPreservePublishOrder(true);
+        }
     }
 
     @Override
@@ -21,5 +47,25 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        if (virtualThreads) {
+            // Keeps each host's chunks, and so each room's stream, in order
+            registry.setPreserveReceiveOrder(true);
+        }
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            // Sessions are kept in order by preserveReceiveOrder, this also keeps each room in order
+            registration.interceptors(new RoomOrderingInterceptor(roomService, objectMapper));
+            registration.taskExecutor(new VirtualThreadChannelExecutor("ws-inbound-", RoomOrderingInterceptor::orderingKey));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.taskExecutor(new VirtualThreadChannelExecutor("ws-outbound-"));
+        }
     }
 }
@@ -1,25 +1,43 @@
 package com.audiosync.backend.controller;
 
+import com.audiosync.backend.diagnostics.DeliveryTracer;
 import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.LatencyBreakdown;
 import com.audiosync.backend.model.Room;
 import com.audiosync.backend.model.RoomDTO;
+import com.audiosync.backend.model.RoomSnapshot;
+import com.audiosync.backend.service.RoomEventStream;
 import com.audiosync.backend.service.RoomService;
+import com.audiosync.backend.service.RoomSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/rooms")
 public class RoomController {
 
+    private static final byte[] EMPTY_LIST = "[]".getBytes(StandardCharsets.UTF_8);
+
     private final RoomService roomService;
+    private final RoomSnapshotService snapshotService;
+    private final RoomEventStream eventStream;
+    private final DeliveryTracer deliveryTracer;
 
     @Autowired
-    public RoomController(RoomService roomService) {
+    public RoomController(RoomService roomService, RoomSnapshotService snapshotService, RoomEventStream eventStream,
+                          DeliveryTracer deliveryTracer) {
         this.roomService = roomService;
+        this.snapshotService = snapshotService;
+        this.eventStream = eventStream;
+        this.deliveryTracer = deliveryTracer;
     }
 
     @PostMapping
@@ -28,31 +46,111 @@ public class RoomController {
         return ResponseEntity.ok(RoomDTO.fromRoom(room));
     }
 
+    // Room views are served from the room's versioned snapshot with an ETag, so a poll
+    // with a matching If-None-Match gets a 304 without a body
+
     @GetMapping("/{roomId}")
-    public ResponseEntity<RoomDTO> getRoomById(@PathVariable String roomId) {
+    public ResponseEntity<byte[]> getRoomById(@PathVariable String roomId) {
         return roomService.getRoomById(roomId)
-                .map(room -> ResponseEntity.ok(RoomDTO.fromRoom(room)))
+                .map(room -> snapshotResponse(room, RoomSnapshot::roomETag, RoomSnapshot::roomJson))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/code/{code}")
-    public ResponseEntity<RoomDTO> getRoomByCode(@PathVariable String code) {
+    public ResponseEntity<byte[]> getRoomByCode(@PathVariable String code) {
         return roomService.getRoomByCode(code)
-                .map(room -> ResponseEntity.ok(RoomDTO.fromRoom(room)))
+                .map(room -> snapshotResponse(room, RoomSnapshot::roomETag, RoomSnapshot::roomJson))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{roomId}/devices")
-    public ResponseEntity<List<Device>> getRoomDevices(@PathVariable String roomId) {
+    public ResponseEntity<byte[]> getRoomDevices(@PathVariable String roomId) {
         return roomService.getRoomById(roomId)
-                .map(room -> ResponseEntity.ok(room.getDevices()))
+                .map(room -> snapshotResponse(room, RoomSnapshot::devicesETag, RoomSnapshot::devicesJson))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{roomId}/active-devices")
-    public ResponseEntity<List<Device>> getActiveDevices(@PathVariable String roomId) {
-        List<Device> activeDevices = roomService.getActiveDevices(roomId);
-        return ResponseEntity.ok(activeDevices);
+    public ResponseEntity<byte[]> getActiveDevices(@PathVariable String roomId) {
+        return roomService.getRoomById(roomId)
+                .map(room -> snapshotResponse(room, RoomSnapshot::devicesETag, RoomSnapshot::activeDevicesJson))
+                .orElse(ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(EMPTY_LIST));
+    }
+
+    /**
+     * Stream the room's changes as server-sent events, starting with a snapshot
+     * or with the events after the Last-Event-ID of a reconnecting client
+     */
+    @GetMapping(value = "/{roomId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamRoomEvents(@PathVariable String roomId,
+                                                       @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return roomService.getRoomById(roomId)
+                .map(room -> ResponseEntity.ok(eventStream.subscribe(room, lastEventId)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Delivery latency of the room's traced chunks per stage, for the room and each listener
+     */
+    @GetMapping("/{roomId}/latency")
+    public ResponseEntity<LatencyBreakdown> getLatencyBreakdown(@PathVariable String roomId) {
+        return roomService.getRoomById(roomId)
+                .map(room -> ResponseEntity.ok(deliveryTracer.breakdown(room)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{roomId}/devices/{deviceId}/latency")
+    public ResponseEntity<LatencyBreakdown.DeviceLatency> getDeviceLatency(@PathVariable String roomId,
+                                                                          @PathVariable String deviceId) {
+        Device device = roomService.getRoomById(roomId)
+                .map(room -> room.getDevice(deviceId))
+                .orElse(null);
+        if (device == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(deliveryTracer.deviceLatency(device));
+    }
+
+    @PutMapping("/{roomId}/silence-detection")
+    public ResponseEntity<RoomDTO> updateSilenceDetection(@PathVariable String roomId,
+                                                          @RequestParam int threshold,
+                                                          @RequestParam int hangoverMs) {
+        if (!roomService.setSilenceDetection(roomId, threshold, hangoverMs)) {
+            return ResponseEntity.notFound().build();
+        }
+        return roomService.getRoomById(roomId)
+                .map(room -> ResponseEntity.ok(RoomDTO.fromRoom(room)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{roomId}/mixing")
+    public ResponseEntity<RoomDTO> updateMixing(@PathVariable String roomId, @RequestParam boolean enabled) {
+        if (!roomService.setMixingEnabled(roomId, enabled)) {
+            return ResponseEntity.notFound().build();
+        }
+        return roomService.getRoomById(roomId)
+                .map(room -> ResponseEntity.ok(RoomDTO.fromRoom(room)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{roomId}/sources/{deviceId}")
+    public ResponseEntity<RoomDTO> updateAudioSource(@PathVariable String roomId,
+                                                     @PathVariable String deviceId,
+                                                     @RequestParam(defaultValue = "100") int gain) {
+        if (!roomService.setSourceGain(roomId, deviceId, gain)) {
+            return ResponseEntity.notFound().build();
+        }
+        return roomService.getRoomById(roomId)
+                .map(room -> ResponseEntity.ok(RoomDTO.fromRoom(room)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{roomId}/sources/{deviceId}")
+    public ResponseEntity<Void> removeAudioSource(@PathVariable String roomId, @PathVariable String deviceId) {
+        if (!roomService.removeAudioSource(roomId, deviceId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/{roomId}")
@@ -61,6 +159,15 @@ public class RoomController {
         return ResponseEntity.ok().build();
     }
 
+    private ResponseEntity<byte[]> snapshotResponse(Room room, Function<RoomSnapshot, String> eTag,
+                                                    Function<RoomSnapshot, byte[]> body) {
+        RoomSnapshot snapshot = snapshotService.snapshot(room);
+        return ResponseEntity.ok()
+                .eTag(eTag.apply(snapshot))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.apply(snapshot));
+    }
+
     @GetMapping("/host/{hostId}")
     public ResponseEntity<List<RoomDTO>> getRoomsByHost(@PathVariable String hostId) {
         List<RoomDTO> rooms = roomService.getRoomsByHost(hostId).stream()
@@ -1,36 +1,54 @@
 package com.audiosync.backend.controller;
 
+import com.audiosync.backend.diagnostics.DeliveryTracer;
 import com.audiosync.backend.model.AudioSource;
 import com.audiosync.backend.model.Device;
 import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.RoomEvent;
 import com.audiosync.backend.service.AudioStreamingService;
+import com.audiosync.backend.service.HandleRegistry;
+import com.audiosync.backend.service.PlayoutReconciliationService;
 import com.audiosync.backend.service.RoomService;
+import com.audiosync.backend.service.ZoneService;
+import com.audiosync.backend.transport.DeviceMessenger;
 import com.audiosync.backend.websocket.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.util.List;
 import java.util.Optional;
 
 @Controller
 public class WebSocketController {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketController.class);
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final DeviceMessenger deviceMessenger;
     private final RoomService roomService;
     private final AudioStreamingService audioStreamingService;
+    private final ZoneService zoneService;
+    private final HandleRegistry handleRegistry;
+    private final DeliveryTracer deliveryTracer;
+    private final PlayoutReconciliationService playoutService;
 
     @Autowired
-    public WebSocketController(SimpMessagingTemplate messagingTemplate, 
+    public WebSocketController(DeviceMessenger deviceMessenger,
                               RoomService roomService,
-                              AudioStreamingService audioStreamingService) {
-        this.messagingTemplate = messagingTemplate;
+                              AudioStreamingService audioStreamingService,
+                              ZoneService zoneService,
+                              HandleRegistry handleRegistry,
+                              DeliveryTracer deliveryTracer,
+                              PlayoutReconciliationService playoutService) {
+        this.deviceMessenger = deviceMessenger;
         this.roomService = roomService;
         this.audioStreamingService = audioStreamingService;
+        this.zoneService = zoneService;
+        this.handleRegistry = handleRegistry;
+        this.deliveryTracer = deliveryTracer;
+        this.playoutService = playoutService;
     }
 
     @MessageMapping("/join")
@@ -40,28 +58,76 @@ public class WebSocketController {
         if (roomOpt.isPresent()) {
             Room room = roomOpt.get();
             Device device = roomService.addDeviceToRoom(room.getId(), message.getDeviceId(), message.getDeviceName());
+            device.setAudioBatching(message.isAudioBatching());
             
             // Send room info to the joining device
-            RoomInfoMessage roomInfo = new RoomInfoMessage();
-            roomInfo.setRoomId(room.getId());
-            roomInfo.setRoomCode(room.getCode());
-            roomInfo.setPlaying(room.isPlaying());
-            roomInfo.setCurrentTimestamp(room.getCurrentPlaybackTime());
-            roomInfo.setMasterVolume(room.getMasterVolume());
-            roomInfo.setAudioSource(room.getAudioSource());
+            RoomInfoMessage roomInfo = buildRoomInfo(room);
+            roomInfo.setDeviceHandle(device.getHandle());
             
-            messagingTemplate.convertAndSendToUser(message.getDeviceId(), "/topic/room", roomInfo);
+            deviceMessenger.sendToDevice(message.getDeviceId(), "/topic/room", roomInfo);
             
             // Notify host about new device
             DeviceUpdateMessage deviceUpdate = new DeviceUpdateMessage();
             deviceUpdate.setDeviceId(device.getId());
+            deviceUpdate.setDeviceHandle(device.getHandle());
             deviceUpdate.setDeviceName(device.getName());
             deviceUpdate.setConnectionQuality(device.getConnectionQuality());
             deviceUpdate.setLatency(device.getLatency());
             deviceUpdate.setVolume(device.getVolume());
             deviceUpdate.setAction("JOIN");
             
-            messagingTemplate.convertAndSendToUser(room.getHostId(), "/topic/devices", deviceUpdate);
+            deviceMessenger.sendToDevice(room.getHostId(), "/topic/devices", deviceUpdate);
+        }
+    }
+
+    /**
+     * Handle a reconnecting device that already knows the room state up to a version.
+     * Sends only the events it missed, or a full snapshot if the log no longer has them.
+     * @param message Resume message with the last room version the device applied
+     */
+    @MessageMapping("/resume")
+    public void resumeRoom(@Payload ResumeRoomMessage message) {
+        Optional<Room> roomOpt = roomService.getRoomById(message.getRoomId());
+        
+        if (roomOpt.isPresent()) {
+            Room room = roomOpt.get();
+            
+            // Re-add the device if it was dropped while disconnected, otherwise just mark it alive
+            Device device = room.getDevice(message.getDeviceId());
+            if (device == null) {
+                device = roomService.addDeviceToRoom(room.getId(), message.getDeviceId(), message.getDeviceName());
+                
+                DeviceUpdateMessage deviceUpdate = new DeviceUpdateMessage();
+                deviceUpdate.setDeviceId(device.getId());
+                deviceUpdate.setDeviceHandle(device.getHandle());
+                deviceUpdate.setDeviceName(device.getName());
+                deviceUpdate.setConnectionQuality(device.getConnectionQuality());
+                deviceUpdate.setLatency(device.getLatency());
+                deviceUpdate.setVolume(device.getVolume());
+                deviceUpdate.setAction("JOIN");
+                
+                deviceMessenger.sendToDevice(room.getHostId(), "/topic/devices", deviceUpdate);
+            } else {
+                roomService.updateDeviceHeartbeat(room.getId(), message.getDeviceId());
+            }
+            
+            RoomDeltaMessage delta = new RoomDeltaMessage();
+            delta.setRoomId(room.getId());
+            delta.setFromVersion(message.getLastVersion());
+            
+            List<RoomEvent> missed = room.getEventLog().eventsSince(message.getLastVersion());
+            if (missed != null) {
+                delta.setEvents(missed);
+                delta.setVersion(missed.isEmpty() ? message.getLastVersion() : missed.get(missed.size() - 1).getVersion());
+            } else {
+                RoomInfoMessage snapshot = buildRoomInfo(room);
+                snapshot.setDeviceHandle(device.getHandle());
+                delta.setEvents(List.of());
+                delta.setSnapshot(snapshot);
+                delta.setVersion(snapshot.getVersion());
+            }
+            
+            deviceMessenger.sendToDevice(message.getDeviceId(), "/topic/room/delta", delta);
         }
     }
 
@@ -72,13 +138,6 @@ public class WebSocketController {
         if (roomOpt.isPresent()) {
             Room room = roomOpt.get();
             roomService.removeDeviceFromRoom(room.getId(), message.getDeviceId());
-            
-            // Notify host about device leaving
-            DeviceUpdateMessage deviceUpdate = new DeviceUpdateMessage();
-            deviceUpdate.setDeviceId(message.getDeviceId());
-            deviceUpdate.setAction("LEAVE");
-            
-            messagingTemplate.convertAndSendToUser(room.getHostId(), "/topic/devices", deviceUpdate);
         }
     }
 
@@ -90,14 +149,15 @@ public class WebSocketController {
             Room room = roomOpt.get();
             
             // Only host can control playback
-            if (message.getDeviceId().equals(room.getHostId())) {
+            if (room.getHostId().equals(message.getDeviceId())) {
                 roomService.setPlaybackState(room.getId(), message.isPlaying(), message.getTimestamp());
                 
                 // Update audio streaming service about playback state change
-                audioStreamingService.updatePlaybackState(room.getId(), message.isPlaying());
+                audioStreamingService.updatePlaybackState(room, message.isPlaying());
+                room.getDevices().forEach(playoutService::reset);
                 
                 // Broadcast to all devices in the room
-                messagingTemplate.convertAndSend("/topic/room/" + room.getId() + "/playback", message);
+                deviceMessenger.broadcast("/topic/room/" + room.getId() + "/playback", message);
                 
                 logger.info("Playback state updated for room {}: {}", room.getId(), 
                         message.isPlaying() ? "playing" : "paused");
@@ -107,16 +167,25 @@ public class WebSocketController {
 
     @MessageMapping("/volume")
     public void updateVolume(@Payload VolumeControlMessage message) {
-        Optional<Room> roomOpt = roomService.getRoomById(message.getRoomId());
+        Optional<Room> roomOpt = roomService.getRoom(message.getRoomId(), message.getRoomHandle());
+        message.setDeviceId(handleRegistry.resolve(message.getDeviceId(), message.getDeviceHandle()));
+        message.setTargetDeviceId(handleRegistry.resolve(message.getTargetDeviceId(), message.getTargetDeviceHandle()));
+        // A stale target handle must not turn into a master volume change
+        if (message.getDeviceId() == null
+                || (message.getTargetDeviceId() == null && message.getTargetDeviceHandle() != null)) {
+            logger.debug("Discarding volume change with unknown device handles");
+            return;
+        }
         
         if (roomOpt.isPresent()) {
             Room room = roomOpt.get();
+            message.setRoomId(room.getId());
             
             if (message.getTargetDeviceId() == null) {
                 // Master volume update (host only)
                 if (message.getDeviceId().equals(room.getHostId())) {
                     roomService.setMasterVolume(room.getId(), message.getVolume());
-                    messagingTemplate.convertAndSend("/topic/room/" + room.getId() + "/volume", message);
+                    deviceMessenger.broadcast("/topic/room/" + room.getId() + "/volume", message);
                 }
             } else {
                 // Individual device volume update
@@ -126,7 +195,7 @@ public class WebSocketController {
                     
                     // If host changed a device's volume, notify that device
                     if (message.getDeviceId().equals(room.getHostId())) {
-                        messagingTemplate.convertAndSendToUser(
+                        deviceMessenger.sendToDevice(
                             message.getTargetDeviceId(), 
                             "/topic/volume", 
                             message
@@ -145,7 +214,7 @@ public class WebSocketController {
             Room room = roomOpt.get();
             
             // Only host can set audio source
-            if (message.getDeviceId().equals(room.getHostId())) {
+            if (room.getHostId().equals(message.getDeviceId())) {
                 AudioSource audioSource = new AudioSource();
                 audioSource.setType(message.getSourceType());
                 audioSource.setSourceId(message.getSourceId());
@@ -155,43 +224,94 @@ public class WebSocketController {
                 roomService.setAudioSource(room.getId(), audioSource);
                 
                 // Broadcast to all devices in the room
-                messagingTemplate.convertAndSend("/topic/room/" + room.getId() + "/audio-source", message);
+                deviceMessenger.broadcast("/topic/room/" + room.getId() + "/audio-source", message);
             }
         }
     }
 
     @MessageMapping("/latency")
     public void updateLatency(@Payload LatencyMessage message) {
-        Optional<Room> roomOpt = roomService.getRoomById(message.getRoomId());
+        Optional<Room> roomOpt = roomService.getRoom(message.getRoomId(), message.getRoomHandle());
         
         if (roomOpt.isPresent()) {
             Room room = roomOpt.get();
-            roomService.updateDeviceLatency(room.getId(), message.getDeviceId(), message.getLatency());
-            
-            // Notify host about updated latency
-            Device device = room.getDevice(message.getDeviceId());
+            Device device = roomService.getDevice(room, message.getDeviceId(), message.getDeviceHandle());
             if (device != null) {
+                roomService.updateDeviceLatency(room.getId(), device.getId(), message.getLatency());
+                
+                // Notify host about updated latency
                 DeviceUpdateMessage deviceUpdate = new DeviceUpdateMessage();
                 deviceUpdate.setDeviceId(device.getId());
+                deviceUpdate.setDeviceHandle(device.getHandle());
                 deviceUpdate.setConnectionQuality(device.getConnectionQuality());
                 deviceUpdate.setLatency(device.getLatency());
                 deviceUpdate.setAction("UPDATE");
                 
-                messagingTemplate.convertAndSendToUser(room.getHostId(), "/topic/devices", deviceUpdate);
+                deviceMessenger.sendToDevice(room.getHostId(), "/topic/devices", deviceUpdate);
             }
         }
     }
 
     @MessageMapping("/heartbeat")
     public void heartbeat(@Payload HeartbeatMessage message) {
-        Optional<Room> roomOpt = roomService.getRoomById(message.getRoomId());
+        Optional<Room> roomOpt = roomService.getRoom(message.getRoomId(), message.getRoomHandle());
         
         if (roomOpt.isPresent()) {
             Room room = roomOpt.get();
-            roomService.updateDeviceHeartbeat(room.getId(), message.getDeviceId());
+            Device device = roomService.getDevice(room, message.getDeviceId(), message.getDeviceHandle());
+            if (device != null) {
+                roomService.updateDeviceHeartbeat(room.getId(), device.getId());
+            }
+        }
+    }
+    
+    /**
+     * Handle a listener's receipt ack for a traced audio chunk
+     * @param message Ack with the trace ID of the chunk
+     */
+    @MessageMapping("/audio-ack")
+    public void acknowledgeAudio(@Payload AudioAckMessage message) {
+        Optional<Room> roomOpt = roomService.getRoom(message.getRoomId(), message.getRoomHandle());
+        
+        if (roomOpt.isPresent()) {
+            Device device = roomService.getDevice(roomOpt.get(), message.getDeviceId(), message.getDeviceHandle());
+            if (device != null) {
+                deliveryTracer.acknowledged(device, message.getTraceId(), message.getProcessingMs());
+            }
         }
     }
     
+    /**
+     * Handle a listener's playout position report. Reports arrive every second or so from
+     * every listener, so unlike heartbeats they don't record room events or notify the host.
+     */
+    @MessageMapping("/playout-position")
+    public void reportPlayoutPosition(@Payload PlayoutPositionMessage message) {
+        Optional<Room> roomOpt = roomService.getRoom(message.getRoomId(), message.getRoomHandle());
+        
+        if (roomOpt.isPresent()) {
+            Device device = roomService.getDevice(roomOpt.get(), message.getDeviceId(), message.getDeviceHandle());
+            if (device != null) {
+                playoutService.reportPosition(roomOpt.get(), device, message.getPosition());
+            }
+        }
+    }
+    
+    private RoomInfoMessage buildRoomInfo(Room room) {
+        // Read the version first so the snapshot is never older than the version it claims
+        RoomInfoMessage roomInfo = new RoomInfoMessage();
+        roomInfo.setVersion(room.getVersion());
+        roomInfo.setRoomId(room.getId());
+        roomInfo.setRoomHandle(room.getHandle());
+        roomInfo.setRoomCode(room.getCode());
+        roomInfo.setPlaying(room.isPlaying());
+        roomInfo.setCurrentTimestamp(room.getCurrentPlaybackTime());
+        roomInfo.setMasterVolume(room.getMasterVolume());
+        roomInfo.setAudioSource(room.getAudioSource());
+        roomInfo.setDevices(roomService.deviceSnapshots(room));
+        return roomInfo;
+    }
+    
     /**
      * Handle audio data streaming from the host to clients
      * @param message Audio data message containing binary audio data and metadata
@@ -201,4 +321,14 @@ public class WebSocketController {
         logger.debug("Received audio data for room: {} from device: {}", message.getRoomId(), message.getDeviceId());
         audioStreamingService.processAudioData(message);
     }
+    
+    /**
+     * Handle audio data published to a broadcast zone and distributed to all of its rooms
+     * @param message Audio data message addressed by zone ID
+     */
+    @MessageMapping("/zone-audio-data")
+    public void handleZoneAudioData(@Payload AudioDataMessage message) {
+        logger.debug("Received zone audio data for zone: {} from device: {}", message.getZoneId(), message.getDeviceId());
+        zoneService.processZoneAudio(message);
+    }
 }
@@ -0,0 +1,55 @@
+package com.audiosync.backend.controller;
+
+import com.audiosync.backend.model.Zone;
+import com.audiosync.backend.service.ZoneService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/zones")
+public class ZoneController {
+
+    private final ZoneService zoneService;
+
+    @Autowired
+    public ZoneController(ZoneService zoneService) {
+        this.zoneService = zoneService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Zone> createZone(@RequestParam String name, @RequestParam String sourceDeviceId) {
+        return ResponseEntity.ok(zoneService.createZone(name, sourceDeviceId));
+    }
+
+    @GetMapping("/{zoneId}")
+    public ResponseEntity<Zone> getZoneById(@PathVariable String zoneId) {
+        return zoneService.getZoneById(zoneId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{zoneId}/rooms/{roomId}")
+    public ResponseEntity<Zone> addRoom(@PathVariable String zoneId, @PathVariable String roomId) {
+        if (!zoneService.addRoomToZone(zoneId, roomId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return zoneService.getZoneById(zoneId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{zoneId}/rooms/{roomId}")
+    public ResponseEntity<Void> removeRoom(@PathVariable String zoneId, @PathVariable String roomId) {
+        if (!zoneService.removeRoomFromZone(zoneId, roomId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/{zoneId}")
+    public ResponseEntity<Void> deleteZone(@PathVariable String zoneId) {
+        zoneService.removeZone(zoneId);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A device's playback buffer size changed after a latency or quality change
+ */
+@Name("com.audiosync.BufferRecalculation")
+@Label("Buffer Recalculation")
+@Category({"SyncWave", "Devices"})
+@StackTrace(false)
+public class BufferRecalculationEvent extends Event {
+    @Label("Room")
+    public String roomId;
+
+    @Label("Device")
+    public String deviceId;
+
+    @Label("Previous Buffer")
+    @Timespan(Timespan.MILLISECONDS)
+    public long previousBufferMs;
+
+    @Label("Buffer")
+    @Timespan(Timespan.MILLISECONDS)
+    public long bufferMs;
+
+    @Label("Latency")
+    @Timespan(Timespan.MILLISECONDS)
+    public long latencyMs;
+
+    @Label("Connection Quality")
+    public String quality;
+}
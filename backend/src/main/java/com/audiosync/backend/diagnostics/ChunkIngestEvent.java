@@ -0,0 +1,39 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Handling of one inbound audio chunk, from room lookup to the end of its fan-out
+ */
+@Name("com.audiosync.ChunkIngest")
+@Label("Chunk Ingest")
+@Category({"SyncWave", "Audio"})
+@Description("Processing of an inbound audio chunk after deserialization")
+@StackTrace(false)
+public class ChunkIngestEvent extends Event {
+    @Label("Room")
+    public String roomId;
+
+    @Label("Zone")
+    public String zoneId;
+
+    @Label("Device")
+    public String deviceId;
+
+    @Label("Payload")
+    @DataAmount
+    public int bytes;
+
+    @Label("Encoding")
+    public String encoding;
+
+    @Label("Outcome")
+    @Description("ACCEPTED, NO_ROOM, NOT_SOURCE or REJECTED")
+    public String outcome;
+}
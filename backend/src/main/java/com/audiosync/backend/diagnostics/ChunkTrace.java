@@ -0,0 +1,43 @@
+package com.audiosync.backend.diagnostics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timestamps of one sampled audio chunk. Times are System.nanoTime() values; the socket
+ * write time is kept per device until that device acks the chunk or the trace expires.
+ */
+public class ChunkTrace {
+    private final long id;
+    private final String roomId;
+    private final long ingestNanos;
+    private final double captureToIngestMs; // NaN if the host doesn't stamp wall-clock capture time
+    private final Map<String, Long> writeNanos = new ConcurrentHashMap<>();
+
+    ChunkTrace(long id, String roomId, long ingestNanos, double captureToIngestMs) {
+        this.id = id;
+        this.roomId = roomId;
+        this.ingestNanos = ingestNanos;
+        this.captureToIngestMs = captureToIngestMs;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    long getIngestNanos() {
+        return ingestNanos;
+    }
+
+    double getCaptureToIngestMs() {
+        return captureToIngestMs;
+    }
+
+    Map<String, Long> getWriteNanos() {
+        return writeNanos;
+    }
+}
@@ -0,0 +1,150 @@
+package com.audiosync.backend.diagnostics;
+
+import com.audiosync.backend.model.DeliveryStage;
+import com.audiosync.backend.model.DeliveryStats;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.LatencyBreakdown;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampled end-to-end tracing of audio chunks. A configurable fraction of chunks is stamped
+ * at ingest, when the fan-out reaches each listener and when the transport writes it to the
+ * listener's socket; listeners ack traced chunks on receipt. The stage timings go into each
+ * device's {@link DeliveryStats}, which back the REST latency breakdown and the periodic
+ * report to the host.
+ */
+@Component
+public class DeliveryTracer {
+    private static final long WALL_CLOCK_MIN = 1_000_000_000_000L; // capture timestamps below this are stream-relative
+    private static final double NANOS_PER_MS = 1_000_000.0;
+
+    private final DeviceMessenger deviceMessenger;
+    private final double sampleRate;
+    private final long ackTimeoutNanos;
+
+    private final AtomicLong nextTraceId = new AtomicLong(1);
+    private final Map<Long, ChunkTrace> pending = new ConcurrentHashMap<>();
+    private final Map<String, Room> tracedRooms = new ConcurrentHashMap<>(); // rooms with traces since the last report
+
+    @Autowired
+    public DeliveryTracer(DeviceMessenger deviceMessenger,
+                          @Value("${audio.tracing.sample-rate:0.01}") double sampleRate,
+                          @Value("${audio.tracing.ack-timeout-ms:5000}") long ackTimeoutMs) {
+        this.deviceMessenger = deviceMessenger;
+        this.sampleRate = sampleRate;
+        this.ackTimeoutNanos = ackTimeoutMs * 1_000_000;
+    }
+
+    /**
+     * Decide whether to trace a chunk that is about to be broadcast
+     * @param room The room the chunk goes to
+     * @param message The chunk as received
+     * @return The trace, or null if the chunk isn't sampled
+     */
+    public ChunkTrace start(Room room, AudioDataMessage message) {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long ingestNanos = message.getReceivedNanos() != 0 ? message.getReceivedNanos() : now;
+        double captureToIngest = Double.NaN;
+        if (message.getTimestamp() >= WALL_CLOCK_MIN) {
+            long ingestMillis = System.currentTimeMillis() - (now - ingestNanos) / 1_000_000;
+            captureToIngest = ingestMillis - message.getTimestamp();
+        }
+        ChunkTrace trace = new ChunkTrace(nextTraceId.getAndIncrement(), room.getId(), ingestNanos, captureToIngest);
+        pending.put(trace.getId(), trace);
+        tracedRooms.put(room.getId(), room);
+        return trace;
+    }
+
+    /**
+     * Record that the fan-out reached a listener
+     * @return The dispatch time, to be passed to {@link #written}
+     */
+    public long dispatched(ChunkTrace trace, Device device) {
+        long now = System.nanoTime();
+        DeliveryStats stats = device.getDeliveryStats();
+        if (!Double.isNaN(trace.getCaptureToIngestMs())) {
+            stats.record(DeliveryStage.CAPTURE_TO_INGEST, trace.getCaptureToIngestMs());
+        }
+        stats.record(DeliveryStage.INGEST_TO_DISPATCH, (now - trace.getIngestNanos()) / NANOS_PER_MS);
+        return now;
+    }
+
+    /**
+     * Record that the transport wrote the chunk to a listener's socket
+     */
+    public void written(ChunkTrace trace, Device device, long dispatchNanos) {
+        long now = System.nanoTime();
+        device.getDeliveryStats().record(DeliveryStage.DISPATCH_TO_WRITE, (now - dispatchNanos) / NANOS_PER_MS);
+        trace.getWriteNanos().put(device.getId(), now);
+    }
+
+    /**
+     * Record a listener's receipt ack
+     * @param device The listener
+     * @param traceId ID of the traced chunk
+     * @param processingMs Time the listener spent between receiving the chunk and sending the ack
+     */
+    public void acknowledged(Device device, long traceId, int processingMs) {
+        ChunkTrace trace = pending.get(traceId);
+        Long writeNanos = trace != null ? trace.getWriteNanos().remove(device.getId()) : null;
+        if (writeNanos == null) {
+            return;
+        }
+        double ackMs = (System.nanoTime() - writeNanos) / NANOS_PER_MS - Math.max(0, processingMs);
+        device.getDeliveryStats().record(DeliveryStage.WRITE_TO_ACK, Math.max(0, ackMs));
+    }
+
+    /**
+     * Build the latency breakdown of a room from its devices' recent traces
+     * @param room The room
+     * @return Breakdown for the room as a whole and for each listener
+     */
+    public LatencyBreakdown breakdown(Room room) {
+        List<Device> listeners = room.getDevices().stream()
+                .filter(device -> !room.isAudioSource(device.getId()))
+                .toList();
+        List<LatencyBreakdown.DeviceLatency> devices = listeners.stream()
+                .map(this::deviceLatency)
+                .toList();
+        return new LatencyBreakdown(room.getId(),
+                DeliveryStats.summarize(listeners.stream().map(Device::getDeliveryStats).toList()),
+                devices);
+    }
+
+    public LatencyBreakdown.DeviceLatency deviceLatency(Device device) {
+        return new LatencyBreakdown.DeviceLatency(device.getId(), device.getName(), device.getLatency(),
+                device.getDeliveryStats().summarize());
+    }
+
+    /**
+     * Send the latency breakdown of every room traced since the last report to its host
+     */
+    public void publishReports() {
+        for (Room room : tracedRooms.values()) {
+            tracedRooms.remove(room.getId());
+            deviceMessenger.sendToDevice(room.getHostId(), "/topic/latency", breakdown(room));
+        }
+    }
+
+    /**
+     * Forget traces whose acks didn't arrive in time
+     */
+    public void expireTraces() {
+        long expiredBefore = System.nanoTime() - ackTimeoutNanos;
+        pending.values().removeIf(trace -> trace.getIngestNanos() < expiredBefore);
+    }
+}
@@ -0,0 +1,35 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Hand-off of one chunk to the transport for a single device. One event per listener per
+ * chunk, so it is off unless a recording enables it explicitly.
+ */
+@Name("com.audiosync.DeviceSend")
+@Label("Device Send")
+@Category({"SyncWave", "Audio"})
+@Description("Time to hand a chunk to the transport for one device; the socket write itself is asynchronous")
+@Enabled(false)
+@StackTrace(false)
+public class DeviceSendEvent extends Event {
+    @Label("Room")
+    public String roomId;
+
+    @Label("Device")
+    public String deviceId;
+
+    @Label("Payload")
+    @DataAmount
+    public int bytes;
+
+    @Label("Queued")
+    public boolean queued;
+}
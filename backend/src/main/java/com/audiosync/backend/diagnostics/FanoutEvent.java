@@ -0,0 +1,31 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fan-out of one encoded chunk to the listeners of a room. The event's start and end
+ * times mark the start and end of the fan-out.
+ */
+@Name("com.audiosync.Fanout")
+@Label("Fan-out")
+@Category({"SyncWave", "Audio"})
+@StackTrace(false)
+public class FanoutEvent extends Event {
+    @Label("Room")
+    public String roomId;
+
+    @Label("Listeners")
+    public int listeners;
+
+    @Label("Dropped")
+    public int dropped;
+
+    @Label("Payload")
+    @DataAmount
+    public int bytes;
+}
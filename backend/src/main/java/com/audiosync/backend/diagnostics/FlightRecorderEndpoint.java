@@ -0,0 +1,143 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint to start, list, download and stop Flight Recorder recordings at
+ * /actuator/jfr. Recordings use the JDK "default" settings, which are cheap enough for
+ * production, plus the SyncWave events; per-device send events are only enabled on request.
+ * Recordings spill to disk, where they keep at most the configured size and age of data.
+ * The endpoint isn't exposed over the web by default.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+
+    private final long maxSizeBytes;
+    private final Duration maxAge;
+
+    @Autowired
+    public FlightRecorderEndpoint(@Value("${audio.jfr.max-size-mb:256}") long maxSizeMb,
+                                  @Value("${audio.jfr.max-age-minutes:30}") long maxAgeMinutes) {
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+    }
+
+    /**
+     * Start a recording
+     * @param durationSeconds Stop automatically after this many seconds, runs until stopped if not set
+     * @param settings JDK settings to use, "default" or "profile"
+     * @param deviceSends Whether to record an event for every per-device send
+     * @return Description of the started recording
+     */
+    @WriteOperation
+    public Map<String, Object> start(@Nullable Integer durationSeconds, @Nullable String settings,
+                                     @Nullable Boolean deviceSends) throws IOException, ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration(settings != null ? settings : "default"));
+        recording.setName("syncwave-" + System.currentTimeMillis());
+        recording.setToDisk(true);
+        recording.setMaxSize(maxSizeBytes);
+        recording.setMaxAge(maxAge);
+        recording.enable(DeviceSendEvent.class).with("enabled", String.valueOf(Boolean.TRUE.equals(deviceSends)));
+        if (durationSeconds != null && durationSeconds > 0) {
+            recording.setDuration(Duration.ofSeconds(durationSeconds));
+        }
+        recording.start();
+        logger.info("Started flight recording {} ({})", recording.getId(), recording.getName());
+        return describe(recording);
+    }
+
+    @ReadOperation
+    public List<Map<String, Object>> recordings() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .map(this::describe)
+                .toList();
+    }
+
+    /**
+     * Download the data of a running or stopped recording
+     * @param id The recording ID
+     * @return The recording in JFR format
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id) throws IOException {
+        Recording recording = find(id);
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        // Running recordings can't be streamed directly, dump what was recorded so far
+        Path dump = Files.createTempFile("syncwave-" + id + "-", ".jfr");
+        try {
+            recording.dump(dump);
+            InputStream data = Files.newInputStream(dump, StandardOpenOption.DELETE_ON_CLOSE);
+            return new WebEndpointResponse<>(new InputStreamResource(data));
+        } catch (IOException e) {
+            Files.deleteIfExists(dump);
+            throw e;
+        }
+    }
+
+    /**
+     * Stop and discard a recording
+     * @param id The recording ID
+     */
+    @DeleteOperation
+    public WebEndpointResponse<Void> stop(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        recording.close();
+        logger.info("Closed flight recording {}", id);
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    private Recording find(long id) {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(recording -> recording.getId() == id)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Map<String, Object> describe(Recording recording) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("id", recording.getId());
+        description.put("name", recording.getName());
+        description.put("state", recording.getState().name());
+        description.put("startTime", recording.getStartTime());
+        description.put("duration", recording.getDuration());
+        description.put("size", recording.getSize());
+        description.put("maxSize", recording.getMaxSize());
+        description.put("maxAge", recording.getMaxAge());
+        return description;
+    }
+}
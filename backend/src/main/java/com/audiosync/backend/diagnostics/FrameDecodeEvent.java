@@ -0,0 +1,30 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Deserialization of one inbound frame on the Netty transport
+ */
+@Name("com.audiosync.FrameDecode")
+@Label("Frame Decode")
+@Category({"SyncWave", "Transport"})
+@StackTrace(false)
+public class FrameDecodeEvent extends Event {
+    @Label("Destination")
+    public String destination;
+
+    @Label("Device")
+    public String deviceId;
+
+    @Label("Frame Size")
+    @DataAmount
+    public int bytes;
+
+    @Label("CBOR")
+    public boolean cbor;
+}
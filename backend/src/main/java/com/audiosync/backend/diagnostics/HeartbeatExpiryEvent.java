@@ -0,0 +1,32 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A device missed its heartbeats and was marked disconnected, or its session expired
+ */
+@Name("com.audiosync.HeartbeatExpiry")
+@Label("Heartbeat Expiry")
+@Category({"SyncWave", "Devices"})
+@StackTrace(false)
+public class HeartbeatExpiryEvent extends Event {
+    @Label("Room")
+    public String roomId;
+
+    @Label("Device")
+    public String deviceId;
+
+    @Label("Since Last Heartbeat")
+    @Timespan(Timespan.MILLISECONDS)
+    public long sinceLastHeartbeatMs;
+
+    @Label("Session Ended")
+    @Description("true when the device was removed, false when it was only marked disconnected")
+    public boolean sessionEnded;
+}
@@ -0,0 +1,28 @@
+package com.audiosync.backend.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A room was created or removed
+ */
+@Name("com.audiosync.RoomLifecycle")
+@Label("Room Lifecycle")
+@Category({"SyncWave", "Rooms"})
+@StackTrace(false)
+public class RoomLifecycleEvent extends Event {
+    @Label("Room")
+    public String roomId;
+
+    @Label("Host")
+    public String hostId;
+
+    @Label("Action")
+    public String action; // CREATE or REMOVE
+
+    @Label("Devices")
+    public int devices;
+}
@@ -0,0 +1,15 @@
+package com.audiosync.backend.model;
+
+/**
+ * Stages a traced audio chunk passes through on its way to a listener
+ */
+public enum DeliveryStage {
+    /** From the capture timestamp set by the host to server ingest, only when the host stamps wall-clock time */
+    CAPTURE_TO_INGEST,
+    /** From server ingest until the fan-out reaches the listener */
+    INGEST_TO_DISPATCH,
+    /** From fan-out dispatch until the transport writes the chunk to the listener's socket */
+    DISPATCH_TO_WRITE,
+    /** From the socket write until the listener's receipt ack arrives, minus the listener's own processing time */
+    WRITE_TO_ACK
+}
@@ -0,0 +1,91 @@
+package com.audiosync.backend.model;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recent delivery timings of a device's traced chunks, one bounded ring of samples per
+ * {@link DeliveryStage}. Summaries are computed on read, so recording a sample is only an
+ * array write. A ring is allocated with its first sample, since only a fraction of chunks is
+ * traced and most devices never record some of the stages.
+ */
+public class DeliveryStats {
+    private final float[][] samples;
+    private final long[] counts;
+    private final int capacity;
+
+    public DeliveryStats(int capacity) {
+        int stages = DeliveryStage.values().length;
+        this.samples = new float[stages][];
+        this.counts = new long[stages];
+        this.capacity = capacity;
+    }
+
+    public synchronized void record(DeliveryStage stage, double millis) {
+        int index = stage.ordinal();
+        float[] ring = samples[index];
+        if (ring == null) {
+            ring = samples[index] = new float[capacity];
+        }
+        ring[(int) (counts[index] % ring.length)] = (float) millis;
+        counts[index]++;
+    }
+
+    /**
+     * Summarize the recent samples of each stage
+     * @return Summary per stage that has samples
+     */
+    public Map<DeliveryStage, StageSummary> summarize() {
+        return summarize(List.of(this));
+    }
+
+    /**
+     * Summarize the recent samples of several devices together, e.g. all devices of a room
+     * @param stats Stats of the devices
+     * @return Summary per stage that has samples
+     */
+    public static Map<DeliveryStage, StageSummary> summarize(List<DeliveryStats> stats) {
+        Map<DeliveryStage, StageSummary> summaries = new EnumMap<>(DeliveryStage.class);
+        for (DeliveryStage stage : DeliveryStage.values()) {
+            long count = 0;
+            float[] merged = new float[0];
+            for (DeliveryStats device : stats) {
+                synchronized (device) {
+                    int index = stage.ordinal();
+                    if (device.samples[index] == null) {
+                        continue;
+                    }
+                    int held = (int) Math.min(device.counts[index], device.samples[index].length);
+                    int offset = merged.length;
+                    merged = Arrays.copyOf(merged, offset + held);
+                    System.arraycopy(device.samples[index], 0, merged, offset, held);
+                    count += device.counts[index];
+                }
+            }
+            if (merged.length > 0) {
+                Arrays.sort(merged);
+                summaries.put(stage, new StageSummary(count, percentile(merged, 50), percentile(merged, 95),
+                        round(merged[merged.length - 1])));
+            }
+        }
+        return summaries;
+    }
+
+    private static double percentile(float[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return round(sorted[Math.max(0, index)]);
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 100) / 100.0;
+    }
+
+    /**
+     * Latency of one stage over the recent samples
+     * @param count Samples recorded in total, including ones that dropped out of the ring
+     */
+    public record StageSummary(long count, double p50Ms, double p95Ms, double maxMs) {
+    }
+}
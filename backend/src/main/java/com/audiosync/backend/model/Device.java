@@ -1,16 +1,54 @@
 package com.audiosync.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session state of a device in a room. Everything the server tracks per device lives here,
+ * so it is created at join and goes away with the device on leave, expiry or room removal.
+ */
 @Data
 public class Device {
     private String id;
+    private int handle; // dense handle from HandleRegistry, resolves back to this session
+    @JsonIgnore
+    private int roomHandle; // handle of the room the session belongs to
     private String name;
     private ConnectionQuality connectionQuality;
     private int latency;
     private int volume;
     private long lastHeartbeat;
 
+    // Latency statistics over the reports received in this session
+    private int minLatency;
+    private int maxLatency;
+    private double averageLatency; // smoothed, 1/8 weight per report
+    private double latencyJitter; // smoothed deviation between consecutive reports, 1/16 weight
+    private long latencyReports;
+
+    private int bufferSize; // playback buffer in ms, recalculated from latency and quality
+    private boolean audioBatching; // client accepts several chunks per frame on /topic/audio-batch
+
+    // Playout reconciliation against the room clock, positive drift means the device plays ahead
+    private double playoutDrift; // smoothed, 1/8 weight per position report with bounded steps
+    private double playoutRate = 1.0; // rate hint last sent to the device
+    private long playoutReports;
+    @JsonIgnore
+    private int playoutResyncStreak; // consecutive reports past the resync threshold
+    @JsonIgnore
+    private double playoutResyncDrift; // smallest drift of the streak, the jump if it resyncs
+    private long playoutResyncs;
+
+    // Outbound counters, updated by the audio fan-out
+    private final AtomicLong chunksSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong chunksDropped = new AtomicLong();
+
+    @JsonIgnore
+    private final DeliveryStats deliveryStats = new DeliveryStats(256); // timings of traced chunks
+
     public Device(String id, String name) {
         this.id = id;
         this.name = name;
@@ -18,6 +56,7 @@ public class Device {
         this.latency = 0;
         this.volume = 70;
         this.lastHeartbeat = System.currentTimeMillis();
+        this.bufferSize = 300;
     }
 
     public void updateHeartbeat() {
@@ -25,10 +64,35 @@ public class Device {
     }
 
     public void updateLatency(int latency) {
+        if (latencyReports == 0) {
+            minLatency = latency;
+            maxLatency = latency;
+            averageLatency = latency;
+        } else {
+            minLatency = Math.min(minLatency, latency);
+            maxLatency = Math.max(maxLatency, latency);
+            averageLatency += (latency - averageLatency) / 8;
+            latencyJitter += (Math.abs(latency - this.latency) - latencyJitter) / 16;
+        }
+        latencyReports++;
         this.latency = latency;
         updateConnectionQuality();
     }
 
+    /**
+     * Count a chunk handed to the transport for this device
+     * @param bytes Payload size of the chunk
+     * @param queued Whether the transport accepted it, false if it was dropped
+     */
+    public void recordSend(int bytes, boolean queued) {
+        if (queued) {
+            chunksSent.incrementAndGet();
+            bytesSent.addAndGet(bytes);
+        } else {
+            chunksDropped.incrementAndGet();
+        }
+    }
+
     private void updateConnectionQuality() {
         if (latency < 50) {
             this.connectionQuality = ConnectionQuality.GOOD;
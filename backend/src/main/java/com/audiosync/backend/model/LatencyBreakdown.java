@@ -0,0 +1,27 @@
+package com.audiosync.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-stage delivery latency of a room's traced chunks, in total and per device
+ */
+@Data
+@AllArgsConstructor
+public class LatencyBreakdown {
+    private String roomId;
+    private Map<DeliveryStage, DeliveryStats.StageSummary> stages; // all listeners of the room together
+    private List<DeviceLatency> devices;
+
+    @Data
+    @AllArgsConstructor
+    public static class DeviceLatency {
+        private String deviceId;
+        private String deviceName;
+        private int reportedLatency; // latency the device reports itself, for comparison
+        private Map<DeliveryStage, DeliveryStats.StageSummary> stages;
+    }
+}
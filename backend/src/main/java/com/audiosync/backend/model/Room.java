@@ -1,37 +1,62 @@
 package com.audiosync.backend.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Data
 @Getter
 @Setter
 public class Room {
+    /** Last sound timestamp before any audible chunk, timestamps start at 0 */
+    public static final long NO_SOUND = Long.MIN_VALUE;
+
     private String id;
+    private int handle; // dense handle from HandleRegistry, resolves back to this room
     private String code;
     private String hostId;
-    private List<Device> devices;
+    private List<Device> devices; // copy-on-write, iterated for every audio chunk
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Map<String, Device> devicesById = new ConcurrentHashMap<>(); // index into devices for lookups by ID
     private AudioSource audioSource;
     private boolean isPlaying;
     private int masterVolume;
     private long currentTimestamp;
     private long lastUpdateTime;
+    private int silenceThreshold;
+    private int silenceHangoverMs;
+    private boolean mixingEnabled;
+    private Map<String, Integer> sourceGains; // additional mixing sources and their gain in percent
+    private RoomEventLog eventLog;
+    private volatile long lastAudioTimestamp; // timestamp of the latest chunk broadcast to the room
+    private volatile long lastSoundTimestamp; // timestamp of the latest non-silent chunk, NO_SOUND if none since playback started
+    private volatile RoomSnapshot snapshot; // cached REST views, rebuilt once the version moves on
+    private volatile int playoutDelay; // largest listener buffer in ms, how far listeners play behind the room clock
 
     public Room(String hostId) {
         this.id = UUID.randomUUID().toString();
         this.code = generateRoomCode();
         this.hostId = hostId;
-        this.devices = new ArrayList<>();
+        this.devices = new CopyOnWriteArrayList<>();
         this.audioSource = null;
         this.isPlaying = false;
         this.masterVolume = 80;
         this.currentTimestamp = 0;
         this.lastUpdateTime = System.currentTimeMillis();
+        this.silenceThreshold = 64; // ~-54 dBFS peak, 0 disables silence detection
+        this.silenceHangoverMs = 500;
+        this.mixingEnabled = false;
+        this.sourceGains = new ConcurrentHashMap<>();
+        this.eventLog = new RoomEventLog(256);
+        this.lastSoundTimestamp = NO_SOUND;
     }
 
     private String generateRoomCode() {
@@ -47,19 +72,33 @@ public class Room {
         return code.toString();
     }
 
-    public void addDevice(Device device) {
+    /**
+     * Add a device session, replacing any previous session of the same device
+     * @return The replaced session, or null if the device wasn't in the room
+     */
+    public synchronized Device addDevice(Device device) {
+        Device replaced = this.devicesById.put(device.getId(), device);
+        if (replaced != null) {
+            this.devices.remove(replaced);
+        }
         this.devices.add(device);
+        return replaced;
     }
 
-    public void removeDevice(String deviceId) {
-        this.devices.removeIf(device -> device.getId().equals(deviceId));
+    /**
+     * Remove a device session
+     * @return The removed session, or null if the device wasn't in the room
+     */
+    public synchronized Device removeDevice(String deviceId) {
+        Device removed = this.devicesById.remove(deviceId);
+        if (removed != null) {
+            this.devices.remove(removed);
+        }
+        return removed;
     }
 
     public Device getDevice(String deviceId) {
-        return this.devices.stream()
-                .filter(device -> device.getId().equals(deviceId))
-                .findFirst()
-                .orElse(null);
+        return deviceId != null ? this.devicesById.get(deviceId) : null;
     }
     
     public String getHostId() {
@@ -70,6 +109,22 @@ public class Room {
         return this.id;
     }
 
+    /**
+     * Check whether a device may send audio to this room. The host always can,
+     * other devices only when mixing is enabled and they were added as sources.
+     */
+    public boolean isAudioSource(String deviceId) {
+        return deviceId.equals(this.hostId) || (this.mixingEnabled && this.sourceGains.containsKey(deviceId));
+    }
+
+    public int getSourceGain(String deviceId) {
+        return this.sourceGains.getOrDefault(deviceId, 100);
+    }
+
+    public long getVersion() {
+        return this.eventLog.getVersion();
+    }
+
     public void updatePlaybackTime(long timestamp) {
         this.currentTimestamp = timestamp;
         this.lastUpdateTime = System.currentTimeMillis();
@@ -81,4 +136,11 @@ public class Room {
         }
         return currentTimestamp;
     }
+
+    /**
+     * Stream position listeners should be playing right now, the room clock less the playout delay
+     */
+    public long getExpectedPlayoutPosition() {
+        return getCurrentPlaybackTime() - playoutDelay;
+    }
 }
@@ -2,6 +2,8 @@ package com.audiosync.backend.model;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class RoomDTO {
     private String id;
@@ -11,6 +13,10 @@ public class RoomDTO {
     private boolean isPlaying;
     private int masterVolume;
     private AudioSource audioSource;
+    private int silenceThreshold;
+    private int silenceHangoverMs;
+    private boolean mixingEnabled;
+    private Map<String, Integer> sourceGains;
     
     public static RoomDTO fromRoom(Room room) {
         RoomDTO dto = new RoomDTO();
@@ -21,6 +27,10 @@ public class RoomDTO {
         dto.setPlaying(room.isPlaying());
         dto.setMasterVolume(room.getMasterVolume());
         dto.setAudioSource(room.getAudioSource());
+        dto.setSilenceThreshold(room.getSilenceThreshold());
+        dto.setSilenceHangoverMs(room.getSilenceHangoverMs());
+        dto.setMixingEnabled(room.isMixingEnabled());
+        dto.setSourceGains(Map.copyOf(room.getSourceGains()));
         return dto;
     }
 }
@@ -0,0 +1,17 @@
+package com.audiosync.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A single versioned change to a room's state
+ */
+@Data
+@AllArgsConstructor
+public class RoomEvent {
+    private long version;
+    private RoomEventType type;
+    private String deviceId; // device the change applies to, null for room-wide changes
+    private Object data;
+    private long timestamp;
+}
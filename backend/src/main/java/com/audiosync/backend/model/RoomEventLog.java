@@ -0,0 +1,65 @@
+package com.audiosync.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, versioned log of room state changes. Keeps the most recent events in a ring
+ * so reconnecting clients can catch up with only the changes they missed.
+ */
+public class RoomEventLog {
+    private final RoomEvent[] events;
+    private long version;
+    // Not a monitor, so a virtual thread publishing under it doesn't pin its carrier thread
+    private final ReentrantLock publishLock = new ReentrantLock();
+
+    public RoomEventLog(int capacity) {
+        this.events = new RoomEvent[capacity];
+        this.version = 0;
+    }
+
+    /**
+     * Append a change and assign it the next version
+     * @return The recorded event
+     */
+    public synchronized RoomEvent append(RoomEventType type, String deviceId, Object data) {
+        RoomEvent event = new RoomEvent(++version, type, deviceId, data, System.currentTimeMillis());
+        events[(int) (version % events.length)] = event;
+        return event;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Lock held while an appended event is published, so subscribers receive versions in order
+     */
+    public ReentrantLock getPublishLock() {
+        return publishLock;
+    }
+
+    /**
+     * Get the events a client missed since its last seen version
+     * @param lastVersion Last version the client applied
+     * @return Missed events in order, or null if they are no longer all in the log
+     *         and the client needs a full snapshot
+     */
+    public synchronized List<RoomEvent> eventsSince(long lastVersion) {
+        if (lastVersion == version) {
+            return List.of();
+        }
+
+        long oldest = Math.max(1, version - events.length + 1);
+        if (lastVersion > version || lastVersion + 1 < oldest) {
+            return null;
+        }
+
+        List<RoomEvent> missed = new ArrayList<>((int) (version - lastVersion));
+        for (long v = lastVersion + 1; v <= version; v++) {
+            missed.add(events[(int) (v % events.length)]);
+        }
+        return missed;
+    }
+}
@@ -0,0 +1,12 @@
+package com.audiosync.backend.model;
+
+public enum RoomEventType {
+    DEVICE_JOIN,
+    DEVICE_LEAVE,
+    DEVICE_UPDATE,
+    DEVICE_VOLUME,
+    MASTER_VOLUME,
+    PLAYBACK,
+    AUDIO_SOURCE,
+    SETTINGS
+}
@@ -0,0 +1,19 @@
+package com.audiosync.backend.model;
+
+/**
+ * Serialized REST views of a room at one version, shared by every request until the room changes.
+ * The device lists also carry live statistics that change without a new version, so they are
+ * tagged with the time they were built as well. Tags carry the room ID because versions
+ * restart at 1 in every room, and a room code can be reused by a new room.
+ */
+public record RoomSnapshot(long version, long builtAt, RoomDTO dto,
+                           byte[] roomJson, byte[] devicesJson, byte[] activeDevicesJson) {
+
+    public String roomETag() {
+        return "\"" + dto.getId() + "." + version + "\"";
+    }
+
+    public String devicesETag() {
+        return "\"" + dto.getId() + "." + version + "." + builtAt + "\"";
+    }
+}
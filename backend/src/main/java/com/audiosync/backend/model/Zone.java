@@ -0,0 +1,22 @@
+package com.audiosync.backend.model;
+
+import lombok.Data;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Data
+public class Zone {
+    private String id;
+    private String name;
+    private String sourceDeviceId;
+    private Set<String> roomIds;
+
+    public Zone(String name, String sourceDeviceId) {
+        this.id = UUID.randomUUID().toString();
+        this.name = name;
+        this.sourceDeviceId = sourceDeviceId;
+        this.roomIds = ConcurrentHashMap.newKeySet();
+    }
+}
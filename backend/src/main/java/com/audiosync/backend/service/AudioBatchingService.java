@@ -0,0 +1,328 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.diagnostics.ChunkTrace;
+import com.audiosync.backend.diagnostics.DeliveryTracer;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.transport.PreparedMessage;
+import com.audiosync.backend.websocket.AudioBatchMessage;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Aggregates consecutive audio chunks per listener into one frame. Listeners with a large
+ * playback buffer, typically on poor connections, can absorb a short delay, so their chunks
+ * are held for a window derived from that buffer and sent together, saving the per-frame
+ * overhead of every chunk. Listeners with small buffers get every chunk immediately.
+ * Listeners that flush the same run of chunks at the same time share one encoded frame.
+ */
+@Service
+public class AudioBatchingService {
+    private static final String DESTINATION = "/topic/audio-batch";
+    private static final Comparator<DeviceBatch> BY_HANDLE = Comparator.comparingInt(batch -> batch.device.getHandle());
+
+    private final DeviceMessenger deviceMessenger;
+    private final DeliveryTracer deliveryTracer;
+    private final boolean enabled;
+    private final int minBufferMs;
+    private final double windowFraction;
+    private final int maxWindowMs;
+
+    private final Map<String, DeviceBatch> batches = new ConcurrentHashMap<>();
+
+    private final Counter batchFrames;
+    private final Counter batchedChunks;
+
+    @Autowired
+    public AudioBatchingService(DeviceMessenger deviceMessenger, DeliveryTracer deliveryTracer, MeterRegistry meterRegistry,
+                                @Value("${audio.batching.enabled:true}") boolean enabled,
+                                @Value("${audio.batching.min-buffer-ms:250}") int minBufferMs,
+                                @Value("${audio.batching.window-fraction:0.25}") double windowFraction,
+                                @Value("${audio.batching.max-window-ms:200}") int maxWindowMs) {
+        this.deviceMessenger = deviceMessenger;
+        this.deliveryTracer = deliveryTracer;
+        this.enabled = enabled;
+        this.minBufferMs = minBufferMs;
+        this.windowFraction = windowFraction;
+        this.maxWindowMs = maxWindowMs;
+        this.batchFrames = meterRegistry.counter("audio.batch.frames");
+        this.batchedChunks = meterRegistry.counter("audio.batch.chunks");
+    }
+
+    /**
+     * How long a device's chunks may be held back to be sent together
+     * @param device The listener
+     * @return The batching window in milliseconds, 0 to send every chunk immediately
+     */
+    public int windowMs(Device device) {
+        if (!enabled || !device.isAudioBatching() || device.getBufferSize() < minBufferMs) {
+            return 0;
+        }
+        return Math.min(maxWindowMs, (int) (device.getBufferSize() * windowFraction));
+    }
+
+    /**
+     * Hold a chunk for a device
+     * @param roomId Room the chunk belongs to
+     * @param device The listener
+     * @param chunk The outgoing chunk, shared with the other listeners
+     * @param trace Trace of the chunk, or null if it isn't sampled
+     * @param payloadBytes Audio payload size
+     * @param windowMs Current batching window of the device
+     * @return true if the device's batch is full and should be flushed
+     */
+    public boolean add(String roomId, Device device, AudioDataMessage chunk, ChunkTrace trace, int payloadBytes, int windowMs) {
+        DeviceBatch batch = batches.computeIfAbsent(device.getId(), id -> new DeviceBatch(roomId, device));
+        if (chunk.getAudioBuffer() != null) {
+            chunk.getAudioBuffer().retain();
+        }
+        return batch.add(new BatchEntry(chunk, trace, payloadBytes, chunkDurationMs(chunk)), windowMs);
+    }
+
+    /**
+     * Send whatever is held for a device, e.g. before its next chunk goes out unbatched
+     * @param deviceId The device ID
+     */
+    public void flush(String deviceId) {
+        DeviceBatch batch = batches.get(deviceId);
+        if (batch != null && !batch.isEmpty()) {
+            flush(List.of(batch));
+        }
+    }
+
+    /**
+     * Send the batches of several devices, encoding each distinct run of chunks only once
+     * @param devices Devices whose batches are due
+     */
+    public void flushDevices(List<Device> devices) {
+        List<DeviceBatch> due = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            DeviceBatch batch = batches.get(device.getId());
+            if (batch != null) {
+                due.add(batch);
+            }
+        }
+        flush(due);
+    }
+
+    /**
+     * Send batches that have been held for their whole window, so chunks are never stuck
+     * when the stream pauses before a batch fills up
+     */
+    public void flushExpired() {
+        long now = System.nanoTime();
+        List<DeviceBatch> expired = new ArrayList<>();
+        for (DeviceBatch batch : batches.values()) {
+            if (batch.isExpired(now)) {
+                expired.add(batch);
+            }
+        }
+        if (!expired.isEmpty()) {
+            flush(expired);
+        }
+    }
+
+    /**
+     * Drop what is held for a device whose session has ended
+     * @param deviceId The device ID
+     */
+    public void discard(String deviceId) {
+        DeviceBatch batch = batches.remove(deviceId);
+        if (batch != null) {
+            release(batch.take());
+        }
+    }
+
+    /**
+     * Each device's batch stays locked from taking its chunks until they are sent, so two
+     * flushes of the same device can't overtake each other while flushes of other devices,
+     * e.g. in other rooms, run in parallel. Locks are taken in handle order, so flushes of
+     * overlapping sets of devices can't deadlock.
+     */
+    private void flush(List<DeviceBatch> due) {
+        if (due.size() > 1) {
+            due.sort(BY_HANDLE);
+        }
+        for (DeviceBatch batch : due) {
+            batch.sendLock.lock();
+        }
+        try {
+            List<BatchGroup> groups = new ArrayList<>();
+            for (DeviceBatch batch : due) {
+                List<BatchEntry> entries = batch.take();
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                // Devices holding the same run of chunks get the same frame
+                BatchGroup group = null;
+                for (BatchGroup candidate : groups) {
+                    if (candidate.matches(batch.roomId, entries)) {
+                        group = candidate;
+                        break;
+                    }
+                }
+                if (group == null) {
+                    group = new BatchGroup(batch.roomId, entries);
+                    groups.add(group);
+                }
+                group.devices.add(batch.device);
+            }
+
+            for (BatchGroup group : groups) {
+                send(group);
+            }
+        } finally {
+            for (DeviceBatch batch : due) {
+                batch.sendLock.unlock();
+            }
+        }
+    }
+
+    private void send(BatchGroup group) {
+        List<AudioDataMessage> chunks = new ArrayList<>(group.entries.size());
+        for (BatchEntry entry : group.entries) {
+            chunks.add(entry.chunk);
+        }
+        PreparedMessage encoded = deviceMessenger.prepare(DESTINATION, new AudioBatchMessage(group.roomId, chunks));
+        try {
+            for (Device device : group.devices) {
+                boolean queued = sendTraced(device, encoded, group.entries);
+                for (BatchEntry entry : group.entries) {
+                    device.recordSend(entry.payloadBytes, queued);
+                }
+                batchFrames.increment();
+                batchedChunks.increment(group.entries.size());
+            }
+        } finally {
+            encoded.release();
+            // Each device retained the pooled payloads of its own batch
+            for (int i = 0; i < group.devices.size(); i++) {
+                release(group.entries);
+            }
+        }
+    }
+
+    private boolean sendTraced(Device device, PreparedMessage encoded, List<BatchEntry> entries) {
+        List<ChunkTrace> traces = null;
+        for (BatchEntry entry : entries) {
+            if (entry.trace != null) {
+                if (traces == null) {
+                    traces = new ArrayList<>(1);
+                }
+                traces.add(entry.trace);
+            }
+        }
+        if (traces == null) {
+            return deviceMessenger.sendPrepared(device.getId(), encoded);
+        }
+        long[] dispatchNanos = new long[traces.size()];
+        for (int i = 0; i < traces.size(); i++) {
+            dispatchNanos[i] = deliveryTracer.dispatched(traces.get(i), device);
+        }
+        List<ChunkTrace> traced = traces;
+        return deviceMessenger.sendPrepared(device.getId(), encoded, () -> {
+            for (int i = 0; i < traced.size(); i++) {
+                deliveryTracer.written(traced.get(i), device, dispatchNanos[i]);
+            }
+        });
+    }
+
+    private void release(List<BatchEntry> entries) {
+        for (BatchEntry entry : entries) {
+            if (entry.chunk.getAudioBuffer() != null) {
+                entry.chunk.getAudioBuffer().release();
+            }
+        }
+    }
+
+    private static int chunkDurationMs(AudioDataMessage chunk) {
+        if (chunk.isSilent()) {
+            return chunk.getDurationMs();
+        }
+        if (!"PCM".equalsIgnoreCase(chunk.getEncoding())) {
+            return 0; // unknown for compressed audio, the batch is flushed by age instead
+        }
+        return SilenceDetector.chunkDurationMs(chunk.getPayloadLength(), chunk.getSampleRate(), chunk.getChannels());
+    }
+
+    private record BatchEntry(AudioDataMessage chunk, ChunkTrace trace, int payloadBytes, int durationMs) {
+    }
+
+    /**
+     * Chunks held for one device, full once they cover the window or the oldest has waited that long
+     */
+    private static final class DeviceBatch {
+        private final String roomId;
+        private final Device device;
+        private final ReentrantLock sendLock = new ReentrantLock(); // held from take() until the chunks are sent
+        private List<BatchEntry> entries = new ArrayList<>();
+        private int durationMs;
+        private long firstAddedNanos;
+        private long windowNanos;
+
+        private DeviceBatch(String roomId, Device device) {
+            this.roomId = roomId;
+            this.device = device;
+        }
+
+        synchronized boolean add(BatchEntry entry, int windowMs) {
+            long now = System.nanoTime();
+            if (entries.isEmpty()) {
+                firstAddedNanos = now;
+            }
+            entries.add(entry);
+            durationMs += entry.durationMs;
+            windowNanos = windowMs * 1_000_000L;
+            return durationMs >= windowMs || now - firstAddedNanos >= windowNanos;
+        }
+
+        synchronized boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        synchronized boolean isExpired(long now) {
+            return !entries.isEmpty() && now - firstAddedNanos >= windowNanos;
+        }
+
+        synchronized List<BatchEntry> take() {
+            List<BatchEntry> taken = entries;
+            entries = new ArrayList<>();
+            durationMs = 0;
+            return taken;
+        }
+    }
+
+    private static final class BatchGroup {
+        private final String roomId;
+        private final List<BatchEntry> entries;
+        private final List<Device> devices = new ArrayList<>();
+
+        private BatchGroup(String roomId, List<BatchEntry> entries) {
+            this.roomId = roomId;
+            this.entries = entries;
+        }
+
+        boolean matches(String otherRoomId, List<BatchEntry> otherEntries) {
+            if (!roomId.equals(otherRoomId) || entries.size() != otherEntries.size()) {
+                return false;
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i).chunk != otherEntries.get(i).chunk) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Optional server-side mixing stage for rooms with several audio sources.
+ * Keeps one {@link RoomMixer} per room and serializes access to it.
+ */
+@Service
+public class AudioMixingService {
+
+    private final int jitterMs;
+    private final Map<String, LockedMixer> roomMixers = new ConcurrentHashMap<>();
+
+    private final Timer submitTimer;
+    private final Timer latencyTimer;
+    private final Counter rejectedChunks;
+
+    @Autowired
+    public AudioMixingService(MeterRegistry meterRegistry,
+                              @Value("${audio.mixing.jitter-ms:60}") int jitterMs) {
+        this.jitterMs = jitterMs;
+        this.submitTimer = meterRegistry.timer("audio.mix.submit");
+        this.latencyTimer = meterRegistry.timer("audio.mix.latency");
+        this.rejectedChunks = meterRegistry.counter("audio.mix.rejected");
+    }
+
+    /**
+     * Add a chunk from one of the room's sources to the room mix
+     * @param room The room the chunk belongs to
+     * @param message PCM audio chunk from an authorized source
+     * @param emit Receives the mixed chunks for broadcasting
+     */
+    public void submit(Room room, AudioDataMessage message, Consumer<AudioDataMessage> emit) {
+        if (!"PCM".equalsIgnoreCase(message.getEncoding())) {
+            rejectedChunks.increment();
+            return;
+        }
+
+        LockedMixer locked = roomMixers.computeIfAbsent(room.getId(),
+                id -> new LockedMixer(new RoomMixer(id, room.getHostId(), jitterMs, latencyTimer), new ReentrantLock()));
+
+        // Mixed chunks are emitted while holding the lock to keep the room's output ordered,
+        // so the submit timer covers mixing plus the broadcast of any emitted chunk
+        locked.lock.lock();
+        try {
+            long start = System.nanoTime();
+            boolean accepted = locked.mixer.submit(message, room.getSourceGain(message.getDeviceId()), emit);
+            submitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!accepted) {
+                rejectedChunks.increment();
+            }
+        } finally {
+            locked.lock.unlock();
+        }
+    }
+
+    /**
+     * Send the slots of every room that waited out the jitter window, for rooms whose sources paused
+     */
+    public void flushExpired() {
+        long now = System.nanoTime();
+        for (LockedMixer locked : roomMixers.values()) {
+            locked.lock.lock();
+            try {
+                locked.mixer.flushExpired(now);
+            } finally {
+                locked.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stop waiting for a source that was removed from the room or left it
+     * @param roomId The room ID
+     * @param deviceId The source's device ID
+     */
+    public void removeSource(String roomId, String deviceId) {
+        LockedMixer locked = roomMixers.get(roomId);
+        if (locked != null) {
+            locked.lock.lock();
+            try {
+                locked.mixer.removeSource(deviceId);
+            } finally {
+                locked.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Clean up the mixer for a room when it's removed or mixing is turned off
+     * @param roomId The room ID
+     */
+    public void cleanupRoom(String roomId) {
+        roomMixers.remove(roomId);
+    }
+
+    /**
+     * A room's mixer with the lock that serializes it. Emitting broadcasts under the lock, so
+     * it is not a monitor that would pin a virtual thread to its carrier.
+     */
+    private record LockedMixer(RoomMixer mixer, ReentrantLock lock) {
+    }
+}
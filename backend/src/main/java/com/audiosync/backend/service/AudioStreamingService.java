@@ -1,89 +1,337 @@
 package com.audiosync.backend.service;
 
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.diagnostics.BufferRecalculationEvent;
+import com.audiosync.backend.diagnostics.ChunkIngestEvent;
+import com.audiosync.backend.diagnostics.ChunkTrace;
+import com.audiosync.backend.diagnostics.DeliveryTracer;
+import com.audiosync.backend.diagnostics.DeviceSendEvent;
+import com.audiosync.backend.diagnostics.FanoutEvent;
 import com.audiosync.backend.model.Device;
 import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.transport.PreparedMessage;
 import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.EventType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class AudioStreamingService {
     private static final Logger logger = LoggerFactory.getLogger(AudioStreamingService.class);
+    // Checked before allocating an event per chunk and listener
+    private static final EventType CHUNK_INGEST = EventType.getEventType(ChunkIngestEvent.class);
+    private static final EventType FANOUT = EventType.getEventType(FanoutEvent.class);
+    private static final EventType BUFFER_RECALCULATION = EventType.getEventType(BufferRecalculationEvent.class);
+    private static final EventType DEVICE_SEND = EventType.getEventType(DeviceSendEvent.class);
     
-    private final SimpMessagingTemplate messagingTemplate;
+    private final DeviceMessenger deviceMessenger;
     private final RoomService roomService;
+    private final IngestAdmissionService admissionService;
+    private final AudioMixingService mixingService;
+    private final DeliveryTracer deliveryTracer;
+    private final AudioBatchingService batchingService;
+    private final AudioBufferPool bufferPool;
     
-    // Store the latest audio chunk timestamp for each room
-    private final Map<String, Long> roomLastAudioTimestamp = new ConcurrentHashMap<>();
-    
-    // Store buffer size for each device (in ms) for latency compensation
-    private final Map<String, Integer> deviceBufferSizes = new ConcurrentHashMap<>();
+    private final Counter fanoutBytes;
+    private final Counter silenceChunks;
+    private final Counter silenceBytesSaved;
     
     @Autowired
-    public AudioStreamingService(SimpMessagingTemplate messagingTemplate, RoomService roomService) {
-        this.messagingTemplate = messagingTemplate;
+    public AudioStreamingService(DeviceMessenger deviceMessenger, RoomService roomService,
+                                 IngestAdmissionService admissionService, AudioMixingService mixingService,
+                                 DeliveryTracer deliveryTracer, AudioBatchingService batchingService,
+                                 AudioBufferPool bufferPool, MeterRegistry meterRegistry) {
+        this.deviceMessenger = deviceMessenger;
         this.roomService = roomService;
+        this.admissionService = admissionService;
+        this.mixingService = mixingService;
+        this.deliveryTracer = deliveryTracer;
+        this.batchingService = batchingService;
+        this.bufferPool = bufferPool;
+        this.fanoutBytes = meterRegistry.counter("audio.fanout.bytes");
+        this.silenceChunks = meterRegistry.counter("audio.silence.chunks");
+        this.silenceBytesSaved = meterRegistry.counter("audio.silence.bytes.saved");
     }
     
     /**
-     * Process incoming audio data from the host and broadcast to clients
+     * Process incoming audio data from the host (or any authorized source when the room
+     * mixes several sources) and broadcast to clients
      * @param message The audio data message
      */
     public void processAudioData(AudioDataMessage message) {
-        String roomId = message.getRoomId();
-        Optional<Room> roomOpt = roomService.getRoomById(roomId);
+        message.setReceivedNanos(System.nanoTime());
+        ChunkIngestEvent event = CHUNK_INGEST.isEnabled() ? new ChunkIngestEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        String outcome = ingest(message);
+        if (event != null && event.shouldCommit()) {
+            event.roomId = message.getRoomId();
+            event.deviceId = message.getDeviceId();
+            event.bytes = message.getPayloadLength();
+            event.encoding = message.getEncoding();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    private String ingest(AudioDataMessage message) {
+        Optional<Room> roomOpt = roomService.getRoom(message.getRoomId(), message.getRoomHandle());
         
         if (roomOpt.isEmpty()) {
-            logger.warn("Received audio data for non-existent room: {}", roomId);
-            return;
+            logger.warn("Received audio data for non-existent room: {}", message.getRoomId());
+            return "NO_ROOM";
         }
         
         Room room = roomOpt.get();
+        String roomId = room.getId();
+        message.setRoomId(roomId);
         
-        // Only the host can send audio data
-        if (!message.getDeviceId().equals(room.getHostId())) {
+        // Only the host, or an added source in a mixing room, can send audio data
+        if (!room.isAudioSource(message.getDeviceId())) {
             logger.warn("Non-host device attempted to send audio data: {}", message.getDeviceId());
-            return;
+            return "NOT_SOURCE";
         }
         
+        // Reject malformed, oversized or rate-limited chunks before any fan-out work
+        if (!admissionService.admit(message)) {
+            logger.debug("Rejected audio data from device {} in room {}", message.getDeviceId(), roomId);
+            return "REJECTED";
+        }
+        
+        if (room.isMixingEnabled()) {
+            mixingService.submit(room, message, mixed -> broadcastMixed(room, mixed));
+        } else {
+            broadcastAudio(room, message);
+        }
+        return "ACCEPTED";
+    }
+    
+    /**
+     * Broadcast a chunk emitted by the room mixer. The mixer reuses its output array for the
+     * next slot, so the chunk is broadcast from a pooled copy that batching listeners can hold.
+     * @param room The room to broadcast to
+     * @param mixed The mixer's output chunk
+     */
+    private void broadcastMixed(Room room, AudioDataMessage mixed) {
+        PooledAudioBuffer copy = bufferPool.copyOf(mixed.getAudioData());
+        mixed.setAudioBuffer(copy);
+        try {
+            broadcastAudio(room, mixed);
+        } finally {
+            mixed.setAudioBuffer(null);
+            copy.release();
+        }
+    }
+    
+    /**
+     * Broadcast an audio chunk to every listener in the room
+     * @param room The room to broadcast to
+     * @param message The audio chunk, either from the host or from the room mixer
+     */
+    private void broadcastAudio(Room room, AudioDataMessage message) {
+        String roomId = room.getId();
+        
         // Update the last audio timestamp for this room
-        roomLastAudioTimestamp.put(roomId, message.getTimestamp());
+        room.setLastAudioTimestamp(message.getTimestamp());
+        
+        // Silent chunks are replaced by a marker that only carries the timestamp and duration
+        boolean silent = isSilentChunk(room, message);
+        
+        // The outgoing chunk is identical for every listener, so it is encoded at most once
+        AudioDataMessage outgoing = new AudioDataMessage();
+        outgoing.setRoomId(roomId);
+        outgoing.setDeviceId(message.getDeviceId());
+        outgoing.setTimestamp(message.getTimestamp());
+        outgoing.setSampleRate(message.getSampleRate());
+        outgoing.setChannels(message.getChannels());
+        outgoing.setEncoding(message.getEncoding());
+        ChunkTrace trace = deliveryTracer.start(room, message);
+        if (trace != null) {
+            outgoing.setTraceId(trace.getId());
+        }
+        if (silent) {
+            outgoing.setSilent(true);
+            outgoing.setDurationMs(SilenceDetector.chunkDurationMs(message.getPayloadLength(),
+                    message.getSampleRate(), message.getChannels()));
+        } else {
+            outgoing.setAudioData(message.getAudioData());
+            outgoing.setAudioBuffer(message.getAudioBuffer());
+        }
+        
+        int listeners = sendToListeners(room, outgoing, null, silent ? 0 : message.getPayloadLength(), trace);
         
-        // Broadcast to all clients in the room with latency compensation
+        long bytes = (long) message.getPayloadLength() * listeners;
+        if (silent) {
+            silenceChunks.increment();
+            silenceBytesSaved.increment(bytes);
+        } else {
+            fanoutBytes.increment(bytes);
+        }
+    }
+    
+    /**
+     * Serialize an audio chunk once so it can be sent to many listeners without re-encoding
+     * @param message The audio chunk to send
+     * @return The encoded message, to be released after the last send
+     */
+    public PreparedMessage encodeAudio(AudioDataMessage message) {
+        return deviceMessenger.prepare("/topic/audio", message);
+    }
+    
+    /**
+     * Send an audio chunk to every listener in the room with latency compensation.
+     * Listeners with a large enough buffer get the chunk batched with the following ones.
+     * @param room The room to send to
+     * @param chunk The outgoing audio chunk, for listeners that batch
+     * @param encoded The encoded audio chunk, or null to encode it only if a listener gets it
+     *                unbatched, so rooms of batching listeners don't encode every chunk twice
+     * @param payloadBytes Audio payload size, counted per device
+     * @param trace Trace of the chunk, or null if it isn't sampled
+     * @return Number of listeners the chunk was sent to
+     */
+    public int sendToListeners(Room room, AudioDataMessage chunk, PreparedMessage encoded, int payloadBytes, ChunkTrace trace) {
+        PreparedMessage[] prepared = {encoded};
+        try {
+            return fanOut(room, chunk, prepared, payloadBytes, trace);
+        } finally {
+            if (encoded == null && prepared[0] != null) {
+                prepared[0].release();
+            }
+        }
+    }
+
+    private int fanOut(Room room, AudioDataMessage chunk, PreparedMessage[] encoded, int payloadBytes, ChunkTrace trace) {
+        FanoutEvent fanout = FANOUT.isEnabled() ? new FanoutEvent() : null;
+        if (fanout != null) {
+            fanout.begin();
+        }
+        int listeners = 0;
+        int dropped = 0;
+        int playoutDelay = 0;
+        List<Device> batchesDue = null;
         for (Device device : room.getDevices()) {
-            // Skip the host
-            if (device.getId().equals(room.getHostId())) {
+            // Skip the host and other sources
+            if (room.isAudioSource(device.getId())) {
                 continue;
             }
             
-            // Get or calculate buffer size for this device based on latency
+            // Recalculate the buffer size for this device based on latency
             int bufferSize = calculateBufferSize(device);
-            deviceBufferSizes.put(device.getId(), bufferSize);
+            if (bufferSize != device.getBufferSize()) {
+                if (BUFFER_RECALCULATION.isEnabled()) {
+                    BufferRecalculationEvent recalculation = new BufferRecalculationEvent();
+                    recalculation.roomId = room.getId();
+                    recalculation.deviceId = device.getId();
+                    recalculation.previousBufferMs = device.getBufferSize();
+                    recalculation.bufferMs = bufferSize;
+                    recalculation.latencyMs = device.getLatency();
+                    recalculation.quality = String.valueOf(device.getConnectionQuality());
+                    recalculation.commit();
+                }
+                device.setBufferSize(bufferSize);
+            }
+            playoutDelay = Math.max(playoutDelay, bufferSize);
             
-            // Create a copy of the message with device-specific metadata
-            AudioDataMessage deviceMessage = new AudioDataMessage();
-            deviceMessage.setRoomId(roomId);
-            deviceMessage.setDeviceId(message.getDeviceId());
-            deviceMessage.setAudioData(message.getAudioData());
-            deviceMessage.setTimestamp(message.getTimestamp());
-            deviceMessage.setSampleRate(message.getSampleRate());
-            deviceMessage.setChannels(message.getChannels());
-            deviceMessage.setEncoding(message.getEncoding());
+            // Devices with room in their buffer collect chunks and get them in one frame
+            int batchWindow = batchingService.windowMs(device);
+            if (batchWindow > 0) {
+                if (batchingService.add(room.getId(), device, chunk, trace, payloadBytes, batchWindow)) {
+                    if (batchesDue == null) {
+                        batchesDue = new ArrayList<>();
+                    }
+                    batchesDue.add(device);
+                }
+                listeners++;
+                continue;
+            }
+            if (device.isAudioBatching()) {
+                // The window closed, send what is still held before this chunk
+                batchingService.flush(device.getId());
+            }
             
             // Send to the specific device
-            messagingTemplate.convertAndSendToUser(
-                device.getId(),
-                "/topic/audio",
-                deviceMessage
-            );
+            if (encoded[0] == null) {
+                encoded[0] = encodeAudio(chunk);
+            }
+            DeviceSendEvent send = DEVICE_SEND.isEnabled() ? new DeviceSendEvent() : null;
+            if (send != null) {
+                send.begin();
+            }
+            boolean queued;
+            if (trace != null) {
+                long dispatchNanos = deliveryTracer.dispatched(trace, device);
+                queued = deviceMessenger.sendPrepared(device.getId(), encoded[0],
+                        () -> deliveryTracer.written(trace, device, dispatchNanos));
+            } else {
+                queued = deviceMessenger.sendPrepared(device.getId(), encoded[0]);
+            }
+            if (send != null && send.shouldCommit()) {
+                send.roomId = room.getId();
+                send.deviceId = device.getId();
+                send.bytes = payloadBytes;
+                send.queued = queued;
+                send.commit();
+            }
+            device.recordSend(payloadBytes, queued);
+            if (!queued) {
+                dropped++;
+            }
+            listeners++;
+        }
+        if (batchesDue != null) {
+            batchingService.flushDevices(batchesDue);
+        }
+        room.setPlayoutDelay(playoutDelay);
+        if (fanout != null && fanout.shouldCommit()) {
+            fanout.roomId = room.getId();
+            fanout.listeners = listeners;
+            fanout.dropped = dropped;
+            fanout.bytes = payloadBytes;
+            fanout.commit();
+        }
+        return listeners;
+    }
+    
+    /**
+     * Record the latest audio timestamp for a room that receives audio from outside its own host
+     * @param room The room
+     * @param timestamp Timestamp of the chunk
+     */
+    public void updateLastAudioTimestamp(Room room, long timestamp) {
+        room.setLastAudioTimestamp(timestamp);
+    }
+    
+    /**
+     * Check whether a chunk can be replaced by a silence marker. PCM chunks whose peak stays
+     * below the room threshold count as silent once the room's hangover has elapsed since
+     * the last audible chunk, so decaying tails are not clipped.
+     * @param room The room the chunk belongs to
+     * @param message The audio data message
+     * @return true if the chunk should be sent as a silence marker
+     */
+    private boolean isSilentChunk(Room room, AudioDataMessage message) {
+        if (room.getSilenceThreshold() <= 0 || !"PCM".equalsIgnoreCase(message.getEncoding())) {
+            return false;
+        }
+        
+        if (!SilenceDetector.isSilent(message.getPayloadBuffer(), message.getPayloadLength(), room.getSilenceThreshold())) {
+            room.setLastSoundTimestamp(message.getTimestamp());
+            return false;
         }
+        
+        long lastSound = room.getLastSoundTimestamp();
+        return lastSound == Room.NO_SOUND || message.getTimestamp() - lastSound >= room.getSilenceHangoverMs();
     }
     
     /**
@@ -121,24 +369,16 @@ public class AudioStreamingService {
         return (int) ((baseBuffer + latencyBuffer) * qualityFactor);
     }
     
-    /**
-     * Get the current buffer size for a device
-     * @param deviceId The device ID
-     * @return Buffer size in milliseconds, or default if not set
-     */
-    public int getDeviceBufferSize(String deviceId) {
-        return deviceBufferSizes.getOrDefault(deviceId, 300); // Default 300ms
-    }
-    
     /**
      * Update the audio playback state for a room
-     * @param roomId The room ID
+     * @param room The room
      * @param isPlaying Whether playback is active
      */
-    public void updatePlaybackState(String roomId, boolean isPlaying) {
+    public void updatePlaybackState(Room room, boolean isPlaying) {
         // Reset timestamps if playback is starting
         if (isPlaying) {
-            roomLastAudioTimestamp.put(roomId, System.currentTimeMillis());
+            room.setLastAudioTimestamp(System.currentTimeMillis());
+            room.setLastSoundTimestamp(Room.NO_SOUND);
         }
     }
     
@@ -147,6 +387,7 @@ public class AudioStreamingService {
      * @param roomId The room ID to clean up
      */
     public void cleanupRoom(String roomId) {
-        roomLastAudioTimestamp.remove(roomId);
+        admissionService.cleanupRoom(roomId);
+        mixingService.cleanupRoom(roomId);
     }
 }
@@ -0,0 +1,127 @@
+package com.audiosync.backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps room and device IDs to dense integer handles. Handles are handed out when a room is
+ * created or a device joins and can be sent by clients instead of the full UUID strings.
+ * Internally a handle is a slot in an array-indexed table, so resolving it is an array read
+ * instead of hashing and comparing a UUID string. Slots are reused after release to keep the
+ * table dense; the upper bits of a handle carry the slot's generation so a stale handle from
+ * an earlier session never resolves to whoever owns the slot now.
+ */
+@Component
+public class HandleRegistry {
+    private static final int SLOT_BITS = 22; // up to ~4M live handles
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+
+    private volatile AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(1024);
+    private int[] generations = new int[1024];
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int nextSlot = 1; // slot 0 is never used so handle 0 stays invalid
+    private volatile int live;
+
+    /**
+     * Assign a new handle to a room or device and attach the object it stands for. The owner
+     * keeps the handle and hands it back to {@link #release(int)}, so the registry needs no
+     * map from IDs to handles.
+     * @param id Room or device ID
+     * @param value Object returned by {@link #lookup(int)} for this handle
+     * @return The handle
+     */
+    public synchronized int register(String id, Object value) {
+        int slot = allocateSlot();
+        int handle = (generations[slot] << SLOT_BITS) | slot;
+        entries.set(slot, new Entry(handle, id, value));
+        live++;
+        return handle;
+    }
+
+    /**
+     * Resolve an ID sent either in full or as a handle
+     * @param id The full ID, may be null
+     * @param handle The handle, may be null
+     * @return The full ID, or null if neither resolves
+     */
+    public String resolve(String id, Integer handle) {
+        if (id != null || handle == null) {
+            return id;
+        }
+        Entry entry = entry(handle);
+        return entry != null ? entry.id : null;
+    }
+
+    /**
+     * Get the object attached to a handle
+     * @param handle The handle
+     * @return The attached object, or null if the handle is unknown, released or has none
+     */
+    public Object lookup(int handle) {
+        Entry entry = entry(handle);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Free a handle so its slot can be reused. Releasing a handle that is already free, or
+     * whose slot moved on to a newer generation, does nothing.
+     * @param handle The handle
+     */
+    public synchronized void release(int handle) {
+        if (entry(handle) == null) {
+            return;
+        }
+        int slot = handle & SLOT_MASK;
+        entries.set(slot, null);
+        generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        live--;
+    }
+
+    /**
+     * Number of handles currently in use
+     */
+    public int size() {
+        return live;
+    }
+
+    private Entry entry(int handle) {
+        int slot = handle & SLOT_MASK;
+        AtomicReferenceArray<Entry> table = entries;
+        if (handle <= 0 || slot >= table.length()) {
+            return null;
+        }
+        Entry entry = table.get(slot);
+        return entry != null && entry.handle == handle ? entry : null;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot > SLOT_MASK) {
+            throw new IllegalStateException("Handle table is full");
+        }
+        int slot = nextSlot++;
+        if (slot >= entries.length()) {
+            // Grow by copying into a new table; readers keep using the old one until it's published
+            AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<>(Math.min(entries.length() * 2, SLOT_MASK + 1));
+            for (int i = 0; i < entries.length(); i++) {
+                grown.set(i, entries.get(i));
+            }
+            generations = Arrays.copyOf(generations, grown.length());
+            entries = grown;
+        }
+        return slot;
+    }
+
+    private record Entry(int handle, String id, Object value) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admission control for incoming audio chunks. Validates the declared format and chunk size
+ * and enforces per-host and per-room byte-rate and message-rate token buckets, so a single
+ * misbehaving host cannot flood the fan-out stage.
+ */
+@Service
+public class IngestAdmissionService {
+    private static final int WAV_HEADER_BYTES = 4096; // RIFF header with optional chunks before the data
+
+    private final double hostBytesPerSecond;
+    private final double hostMessagesPerSecond;
+    private final double roomBytesPerSecond;
+    private final double roomMessagesPerSecond;
+    private final double burstSeconds;
+    private final int maxChunkMs;
+    private final int maxCompressedKbps;
+    private final int minSampleRate;
+    private final int maxSampleRate;
+    private final int maxChannels;
+    private final List<String> allowedEncodings;
+
+    private final Map<String, RoomIngestState> roomStates = new ConcurrentHashMap<>();
+
+    private final Counter rejectedFormat;
+    private final Counter rejectedSize;
+    private final Counter rejectedHostRate;
+    private final Counter rejectedRoomRate;
+
+    @Autowired
+    public IngestAdmissionService(MeterRegistry meterRegistry,
+                                  @Value("${audio.ingest.host.bytes-per-second:524288}") double hostBytesPerSecond,
+                                  @Value("${audio.ingest.host.messages-per-second:100}") double hostMessagesPerSecond,
+                                  @Value("${audio.ingest.room.bytes-per-second:1048576}") double roomBytesPerSecond,
+                                  @Value("${audio.ingest.room.messages-per-second:200}") double roomMessagesPerSecond,
+                                  @Value("${audio.ingest.burst-seconds:2}") double burstSeconds,
+                                  @Value("${audio.ingest.max-chunk-ms:1000}") int maxChunkMs,
+                                  @Value("${audio.ingest.max-compressed-kbps:512}") int maxCompressedKbps,
+                                  @Value("${audio.ingest.min-sample-rate:8000}") int minSampleRate,
+                                  @Value("${audio.ingest.max-sample-rate:192000}") int maxSampleRate,
+                                  @Value("${audio.ingest.max-channels:8}") int maxChannels,
+                                  @Value("${audio.ingest.allowed-encodings:PCM,WAV,MP3,AAC,OPUS,WEBM}") String allowedEncodings) {
+        this.hostBytesPerSecond = hostBytesPerSecond;
+        this.hostMessagesPerSecond = hostMessagesPerSecond;
+        this.roomBytesPerSecond = roomBytesPerSecond;
+        this.roomMessagesPerSecond = roomMessagesPerSecond;
+        this.burstSeconds = burstSeconds;
+        this.maxChunkMs = maxChunkMs;
+        this.maxCompressedKbps = maxCompressedKbps;
+        this.minSampleRate = minSampleRate;
+        this.maxSampleRate = maxSampleRate;
+        this.maxChannels = maxChannels;
+        this.allowedEncodings = Arrays.stream(allowedEncodings.split(","))
+                .map(String::trim)
+                .toList();
+
+        this.rejectedFormat = meterRegistry.counter("audio.ingest.rejected", "reason", "format");
+        this.rejectedSize = meterRegistry.counter("audio.ingest.rejected", "reason", "size");
+        this.rejectedHostRate = meterRegistry.counter("audio.ingest.rejected", "reason", "host-rate");
+        this.rejectedRoomRate = meterRegistry.counter("audio.ingest.rejected", "reason", "room-rate");
+    }
+
+    /**
+     * Decide whether an audio chunk may enter the fan-out stage
+     * @param message The audio data message
+     * @return true if the chunk is admitted, false if it was rejected and counted
+     */
+    public boolean admit(AudioDataMessage message) {
+        return admit(message.getRoomId(), message);
+    }
+
+    /**
+     * Decide whether an audio chunk may enter the fan-out stage of a stream
+     * @param streamId ID of the room or zone the chunk is published to
+     * @param message The audio data message
+     * @return true if the chunk is admitted, false if it was rejected and counted
+     */
+    public boolean admit(String streamId, AudioDataMessage message) {
+        if (streamId == null || !isValidFormat(message)) {
+            rejectedFormat.increment();
+            return false;
+        }
+
+        int length = message.getPayloadLength();
+        if (length > maxChunkBytes(message.getEncoding(), message.getSampleRate(), message.getChannels())) {
+            rejectedSize.increment();
+            return false;
+        }
+
+        RoomIngestState roomState = roomStates.computeIfAbsent(streamId, id -> new RoomIngestState());
+        HostIngestState hostState = roomState.hosts.computeIfAbsent(message.getDeviceId(), id -> new HostIngestState());
+
+        // Take tokens only once every bucket has them, so a rejected chunk costs nothing
+        synchronized (roomState) {
+            if (!hostState.messages.hasTokens(1) || !hostState.bytes.hasTokens(length)) {
+                rejectedHostRate.increment();
+                return false;
+            }
+            if (!roomState.messages.hasTokens(1) || !roomState.bytes.hasTokens(length)) {
+                rejectedRoomRate.increment();
+                return false;
+            }
+            hostState.messages.consume(1);
+            hostState.bytes.consume(length);
+            roomState.messages.consume(1);
+            roomState.bytes.consume(length);
+        }
+        return true;
+    }
+
+    /**
+     * Largest chunk accepted for a format. Uncompressed chunks are bounded by 16-bit PCM at the
+     * declared rate (32-bit for WAV, which may carry float samples, plus room for its header),
+     * compressed chunks by the maximum compressed bitrate.
+     * @param encoding Declared encoding
+     * @param sampleRate Sample rate in Hz
+     * @param channels Number of channels
+     * @return Maximum chunk size in bytes
+     */
+    public int maxChunkBytes(String encoding, int sampleRate, int channels) {
+        if ("PCM".equalsIgnoreCase(encoding)) {
+            return (int) ((long) sampleRate * channels * 2 * maxChunkMs / 1000);
+        }
+        if ("WAV".equalsIgnoreCase(encoding)) {
+            return (int) ((long) sampleRate * channels * 4 * maxChunkMs / 1000) + WAV_HEADER_BYTES;
+        }
+        return (int) ((long) maxCompressedKbps * 1000 / 8 * maxChunkMs / 1000);
+    }
+
+    /**
+     * Release the rate limiter state for a room or zone when it's removed
+     * @param streamId The room or zone ID
+     */
+    public void cleanupRoom(String streamId) {
+        roomStates.remove(streamId);
+    }
+
+    private boolean isValidFormat(AudioDataMessage message) {
+        if (message.getDeviceId() == null || message.getEncoding() == null) {
+            return false;
+        }
+        return message.getSampleRate() >= minSampleRate
+                && message.getSampleRate() <= maxSampleRate
+                && message.getChannels() >= 1
+                && message.getChannels() <= maxChannels
+                && isAllowedEncoding(message.getEncoding());
+    }
+
+    private boolean isAllowedEncoding(String encoding) {
+        for (String allowed : allowedEncodings) {
+            if (allowed.equalsIgnoreCase(encoding)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class RoomIngestState {
+        final TokenBucket bytes = new TokenBucket(roomBytesPerSecond, roomBytesPerSecond * burstSeconds);
+        final TokenBucket messages = new TokenBucket(roomMessagesPerSecond, roomMessagesPerSecond * burstSeconds);
+        final Map<String, HostIngestState> hosts = new ConcurrentHashMap<>();
+    }
+
+    private class HostIngestState {
+        final TokenBucket bytes = new TokenBucket(hostBytesPerSecond, hostBytesPerSecond * burstSeconds);
+        final TokenBucket messages = new TokenBucket(hostMessagesPerSecond, hostMessagesPerSecond * burstSeconds);
+    }
+}
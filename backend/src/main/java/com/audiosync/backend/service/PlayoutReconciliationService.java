@@ -0,0 +1,157 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.websocket.PlayoutCorrectionMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps listeners aligned with the room clock. Devices report the position they are playing
+ * out, and the smoothed difference to the expected position is corrected with small playback
+ * rate hints, or with a resync once several reports in a row show it too large to correct by rate. Reports only update
+ * primitive state on the device, messages are built only when a correction is sent.
+ */
+@Service
+public class PlayoutReconciliationService {
+    private static final Logger logger = LoggerFactory.getLogger(PlayoutReconciliationService.class);
+
+    private final DeviceMessenger deviceMessenger;
+    private final int rateThresholdMs;
+    private final int resyncThresholdMs;
+    private final int resyncReports;
+    private final double maxRateAdjustment;
+    private final int correctionWindowMs;
+    private final double rateStep;
+    private final Counter rateCorrections;
+    private final Counter resyncs;
+
+    @Autowired
+    public PlayoutReconciliationService(DeviceMessenger deviceMessenger, MeterRegistry meterRegistry,
+                                        @Value("${audio.playout.rate-threshold-ms:15}") int rateThresholdMs,
+                                        @Value("${audio.playout.resync-threshold-ms:150}") int resyncThresholdMs,
+                                        @Value("${audio.playout.resync-reports:3}") int resyncReports,
+                                        @Value("${audio.playout.max-rate-adjustment:0.005}") double maxRateAdjustment,
+                                        @Value("${audio.playout.correction-window-ms:10000}") int correctionWindowMs,
+                                        @Value("${audio.playout.rate-step:0.0005}") double rateStep) {
+        this.deviceMessenger = deviceMessenger;
+        this.rateThresholdMs = rateThresholdMs;
+        this.resyncThresholdMs = resyncThresholdMs;
+        this.resyncReports = Math.max(1, resyncReports);
+        this.maxRateAdjustment = maxRateAdjustment;
+        this.correctionWindowMs = Math.max(1, correctionWindowMs);
+        this.rateStep = rateStep;
+        this.rateCorrections = Counter.builder("audio.playout.corrections")
+                .tag("action", "rate")
+                .description("Playout corrections sent to listeners, by action")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("audio.playout.corrections")
+                .tag("action", "resync")
+                .description("Playout corrections sent to listeners, by action")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Handle a playout position report of a listener
+     * @param room The room the device plays in
+     * @param device The reporting device
+     * @param position Stream position the device was playing when it sent the report
+     */
+    public void reportPosition(Room room, Device device, long position) {
+        if (!room.isPlaying() || room.isAudioSource(device.getId())) {
+            return;
+        }
+        // The device kept playing while the report was in flight
+        double drift = position + device.getAverageLatency() - room.getExpectedPlayoutPosition();
+        reconcile(room, device, drift);
+    }
+
+    /**
+     * Fold a drift sample into the device's state and send a correction if one is due
+     * @param room The room the device plays in
+     * @param device The device
+     * @param driftMs Measured drift, positive if the device plays ahead of the room clock
+     */
+    public void reconcile(Room room, Device device, double driftMs) {
+        // A report held up on the way in looks like drift, so large drift only counts once
+        // it shows in several reports in a row, and then only as much as the smallest of them
+        if (Math.abs(driftMs) >= resyncThresholdMs) {
+            int streak = device.getPlayoutResyncStreak();
+            if (streak > 0 && Math.signum(driftMs) == Math.signum(device.getPlayoutResyncDrift())) {
+                if (Math.abs(driftMs) < Math.abs(device.getPlayoutResyncDrift())) {
+                    device.setPlayoutResyncDrift(driftMs);
+                }
+                device.setPlayoutResyncStreak(streak + 1);
+            } else {
+                device.setPlayoutResyncDrift(driftMs);
+                device.setPlayoutResyncStreak(1);
+            }
+            if (device.getPlayoutResyncStreak() >= resyncReports) {
+                resync(room, device, device.getPlayoutResyncDrift());
+                return;
+            }
+        } else {
+            device.setPlayoutResyncStreak(0);
+        }
+
+        // Outliers move the smoothed drift by a bounded step only
+        double smoothed;
+        if (device.getPlayoutReports() == 0) {
+            smoothed = Math.max(-rateThresholdMs, Math.min(rateThresholdMs, driftMs));
+        } else {
+            double step = Math.max(-2.0 * rateThresholdMs, Math.min(2.0 * rateThresholdMs, driftMs - device.getPlayoutDrift()));
+            smoothed = device.getPlayoutDrift() + step / 8;
+        }
+        device.setPlayoutDrift(smoothed);
+        device.setPlayoutReports(device.getPlayoutReports() + 1);
+
+        // Correct over the window, back to nominal only once well inside the threshold
+        double current = device.getPlayoutRate();
+        double rate = current;
+        if (Math.abs(smoothed) < rateThresholdMs / 2.0) {
+            rate = 1.0;
+        } else if (Math.abs(smoothed) >= rateThresholdMs || current != 1.0) {
+            double adjustment = Math.max(-maxRateAdjustment, Math.min(maxRateAdjustment, smoothed / correctionWindowMs));
+            rate = 1.0 - adjustment;
+        }
+        if (rate == current || (rate != 1.0 && Math.abs(rate - current) < rateStep)) {
+            return;
+        }
+        device.setPlayoutRate(rate);
+        rateCorrections.increment();
+        send(device, new PlayoutCorrectionMessage("RATE", rate, 0, (int) Math.round(smoothed)));
+    }
+
+    /**
+     * Forget the reconciliation state of a device, e.g. when playback restarts at another position
+     * @param device The device
+     */
+    public void reset(Device device) {
+        device.setPlayoutDrift(0);
+        device.setPlayoutRate(1.0);
+        device.setPlayoutReports(0);
+        device.setPlayoutResyncStreak(0);
+    }
+
+    private void resync(Room room, Device device, double driftMs) {
+        device.setPlayoutDrift(0);
+        device.setPlayoutRate(1.0);
+        device.setPlayoutReports(0);
+        device.setPlayoutResyncStreak(0);
+        device.setPlayoutResyncs(device.getPlayoutResyncs() + 1);
+        resyncs.increment();
+        logger.debug("Resyncing device {} in room {}, drift {} ms", device.getId(), room.getId(), Math.round(driftMs));
+        send(device, new PlayoutCorrectionMessage("RESYNC", 1.0,
+                room.getExpectedPlayoutPosition() + Math.round(device.getAverageLatency()), (int) Math.round(driftMs)));
+    }
+
+    private void send(Device device, PlayoutCorrectionMessage correction) {
+        deviceMessenger.sendToDevice(device.getId(), "/topic/playout", correction);
+    }
+}
@@ -0,0 +1,306 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.RoomEvent;
+import com.audiosync.backend.model.RoomSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-sent events stream of room changes for dashboards. A subscriber starts from a full
+ * snapshot, or from the version in its Last-Event-ID when it reconnects, and then receives
+ * every event of the room's event log in order.
+ * <p>
+ * Subscribers are drained one at a time each from a small pool, so room mutations never wait
+ * on a dashboard and a slow dashboard only holds up one pool thread. The event log is every
+ * subscriber's queue: one that is still being drained when it falls more than max-lag events
+ * behind is evicted, and its client reconnects with its Last-Event-ID to catch up.
+ */
+@Component
+public class RoomEventStream {
+    private static final Logger logger = LoggerFactory.getLogger(RoomEventStream.class);
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, String>> encodedEvents = new ConcurrentHashMap<>();
+    private final RoomSnapshotService snapshotService;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int maxLag;
+    private final Executor dispatcher;
+    private final Counter evictions;
+
+    @Autowired
+    public RoomEventStream(RoomSnapshotService snapshotService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           @Value("${audio.rooms.sse-timeout-ms:1800000}") long timeoutMs,
+                           @Value("${audio.rooms.sse-max-lag:64}") int maxLag,
+                           @Value("${audio.rooms.sse-threads:4}") int threads) {
+        this(snapshotService, objectMapper, meterRegistry, timeoutMs, maxLag,
+                Executors.newFixedThreadPool(threads, daemonThreads()));
+    }
+
+    RoomEventStream(RoomSnapshotService snapshotService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                    long timeoutMs, int maxLag, Executor dispatcher) {
+        this.snapshotService = snapshotService;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.maxLag = maxLag;
+        this.dispatcher = dispatcher;
+        this.evictions = meterRegistry.counter("room.events.evicted");
+    }
+
+    private static CustomizableThreadFactory daemonThreads() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("room-events-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    /**
+     * Open a stream of a room's changes
+     * @param room The room
+     * @param lastVersion Last version the client applied, or null to start with a snapshot
+     * @return The emitter to return from the controller
+     */
+    public SseEmitter subscribe(Room room, Long lastVersion) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(room, emitter);
+        emitter.onCompletion(() -> finished(subscriber));
+        emitter.onTimeout(() -> finished(subscriber));
+        emitter.onError(error -> finished(subscriber));
+        subscribers.compute(room.getId(), (id, roomSubscribers) -> {
+            if (roomSubscribers == null) {
+                roomSubscribers = new CopyOnWriteArrayList<>();
+                encodedEvents.put(id, new ConcurrentHashMap<>());
+            }
+            roomSubscribers.add(subscriber);
+            return roomSubscribers;
+        });
+
+        synchronized (subscriber) {
+            if (lastVersion == null) {
+                sendSnapshot(subscriber);
+            } else {
+                subscriber.lastVersion = lastVersion;
+            }
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Push a room's new events to its subscribers
+     * @param room The room that changed
+     */
+    public void publish(Room room) {
+        List<Subscriber> roomSubscribers = subscribers.get(room.getId());
+        if (roomSubscribers == null) {
+            return;
+        }
+        long version = room.getVersion();
+        for (Subscriber subscriber : roomSubscribers) {
+            if (subscriber.draining.get() && version - subscriber.lastVersion > maxLag) {
+                logger.debug("Evicting room event subscriber for room {}, {} events behind",
+                        room.getId(), version - subscriber.lastVersion);
+                evictions.increment();
+                unlist(subscriber);
+            } else {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Tell a removed room's subscribers and close their streams
+     * @param roomId The room ID
+     */
+    public void closeRoom(String roomId) {
+        List<Subscriber> roomSubscribers = subscribers.remove(roomId);
+        encodedEvents.remove(roomId);
+        if (roomSubscribers == null) {
+            return;
+        }
+        roomSubscribers.forEach(subscriber -> {
+            subscriber.roomRemoved = true;
+            subscriber.closed = true;
+            schedule(subscriber);
+        });
+    }
+
+    /**
+     * Number of open streams of a room
+     */
+    int subscriberCount(String roomId) {
+        return subscribers.getOrDefault(roomId, List.of()).size();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            catchUp(subscriber);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Published, evicted or removed while this drain still counted as running
+        if (!subscriber.done && (subscriber.closed || subscriber.room.getVersion() > subscriber.lastVersion)) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Send a subscriber everything it missed since its last version, falling back to a
+     * snapshot when the missed events are no longer in the log or more than it may lag.
+     * A closed subscriber is told if its room was removed and its stream completed.
+     */
+    private void catchUp(Subscriber subscriber) {
+        synchronized (subscriber) {
+            if (subscriber.done) {
+                return;
+            }
+            List<RoomEvent> missed = subscriber.closed ? List.of()
+                    : subscriber.room.getEventLog().eventsSince(subscriber.lastVersion);
+            if (missed == null || missed.size() > maxLag) {
+                sendSnapshot(subscriber);
+                missed = List.of();
+            }
+            for (RoomEvent event : missed) {
+                if (subscriber.closed || !send(subscriber, SseEmitter.event()
+                        .id(String.valueOf(event.getVersion()))
+                        .name(event.getType().name())
+                        .data(encode(subscriber.room.getId(), event), MediaType.APPLICATION_JSON))) {
+                    break;
+                }
+                subscriber.lastVersion = event.getVersion();
+            }
+            if (subscriber.closed && !subscriber.done) {
+                subscriber.done = true;
+                if (subscriber.roomRemoved) {
+                    send(subscriber, SseEmitter.event().name("REMOVED").data(subscriber.room.getId()));
+                }
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Most subscribers of a room miss the same events, so each is encoded once while it's
+     * within max-lag of the newest
+     */
+    private String encode(String roomId, RoomEvent event) {
+        Map<Long, String> encoded = encodedEvents.get(roomId);
+        if (encoded == null) {
+            return toJson(event);
+        }
+        String data = encoded.get(event.getVersion());
+        if (data == null) {
+            data = toJson(event);
+            if (encoded.putIfAbsent(event.getVersion(), data) == null) {
+                encoded.remove(event.getVersion() - maxLag - 1);
+            }
+        }
+        return data;
+    }
+
+    private void sendSnapshot(Subscriber subscriber) {
+        RoomSnapshot snapshot = snapshotService.snapshot(subscriber.room);
+        String data = "{\"room\":" + new String(snapshot.roomJson(), StandardCharsets.UTF_8)
+                + ",\"devices\":" + new String(snapshot.devicesJson(), StandardCharsets.UTF_8) + "}";
+        if (send(subscriber, SseEmitter.event()
+                .id(String.valueOf(snapshot.version()))
+                .name("SNAPSHOT")
+                .data(data, MediaType.APPLICATION_JSON))) {
+            subscriber.lastVersion = snapshot.version();
+        }
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping room event subscriber for room {}: {}", subscriber.room.getId(), e.getMessage());
+            finished(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * The subscriber's stream is over, nothing more is sent to it
+     */
+    private void finished(Subscriber subscriber) {
+        subscriber.done = true;
+        unlist(subscriber);
+    }
+
+    /**
+     * Stop publishing to a subscriber, its drain completes the stream
+     */
+    private void unlist(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.room.getId(), (id, roomSubscribers) -> {
+            roomSubscribers.remove(subscriber);
+            if (!roomSubscribers.isEmpty()) {
+                return roomSubscribers;
+            }
+            encodedEvents.remove(id);
+            return null;
+        });
+    }
+
+    private String toJson(RoomEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static class Subscriber {
+        private final Room room;
+        private final SseEmitter emitter;
+        private final AtomicBoolean draining = new AtomicBoolean(); // a drain is queued or running
+        private volatile long lastVersion;
+        private volatile boolean closed; // no longer published to, completed by its next drain
+        private volatile boolean roomRemoved;
+        private volatile boolean done; // stream completed, nothing more is sent
+
+        private Subscriber(Room room, SseEmitter emitter) {
+            this.room = room;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Timer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Mixes 16-bit PCM chunks from several sources of one room into a single stream.
+ * Chunks are aligned by timestamp in a small ring of mix slots that acts as a jitter buffer:
+ * a slot is emitted as soon as every active source contributed to it, or once it is older
+ * than the jitter window, either by timestamp as later chunks arrive or by wall time through
+ * {@link #flushExpired} when the sources pause. Sources that stop sending are evicted so their
+ * index can be reused. Slots, accumulators and the output buffer are reused, so the
+ * steady-state mixing loop does not allocate.
+ * Not thread-safe, callers must serialize access per room.
+ */
+public class RoomMixer {
+    private static final int SLOT_COUNT = 16;
+    private static final int MAX_SOURCES = 32;
+    private static final long SOURCE_IDLE_NANOS = 1_000_000_000L; // 1 second
+    private static final long SOURCE_EVICT_NANOS = 30_000_000_000L; // 30 seconds
+
+    private final String roomId;
+    private final String outputDeviceId;
+    private final int jitterMs;
+    private final Timer latencyTimer;
+
+    private final MixSlot[] slots = new MixSlot[SLOT_COUNT];
+    private final Map<String, Integer> sourceIndexes = new HashMap<>();
+    private final String[] sourceIds = new String[MAX_SOURCES]; // null for a free index
+    private final long[] sourceLastSeen = new long[MAX_SOURCES];
+    private Consumer<AudioDataMessage> lastEmit; // where the timed flush sends expired slots
+
+    private final AudioDataMessage output = new AudioDataMessage();
+    private byte[] outputBuffer = new byte[0];
+
+    private int sampleRate;
+    private int channels;
+
+    /**
+     * @param roomId The room ID
+     * @param outputDeviceId Device ID stamped on mixed chunks
+     * @param jitterMs How long a slot may wait for late sources
+     * @param latencyTimer Records how long each slot was held in the jitter buffer
+     */
+    public RoomMixer(String roomId, String outputDeviceId, int jitterMs, Timer latencyTimer) {
+        this.roomId = roomId;
+        this.outputDeviceId = outputDeviceId;
+        this.jitterMs = jitterMs;
+        this.latencyTimer = latencyTimer;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            slots[i] = new MixSlot();
+        }
+    }
+
+    /**
+     * Add a chunk from one source to the mix
+     * @param chunk PCM audio chunk from an authorized source, read in place whether pooled or not
+     * @param gainPercent Gain applied to this source (100 = unity)
+     * @param emit Receives mixed chunks in timestamp order. The emitted message and its
+     *             audio data are reused, so the consumer must not keep references to them.
+     * @return false if the chunk could not be mixed
+     */
+    public boolean submit(AudioDataMessage chunk, int gainPercent, Consumer<AudioDataMessage> emit) {
+        ByteBuffer pcm = chunk.getPayloadBuffer();
+        int length = chunk.getPayloadLength();
+        if (pcm == null || length < 2) {
+            return false;
+        }
+        lastEmit = emit;
+
+        // A format change invalidates everything still waiting in the jitter buffer
+        if (chunk.getSampleRate() != sampleRate || chunk.getChannels() != channels) {
+            flush(emit);
+            sampleRate = chunk.getSampleRate();
+            channels = chunk.getChannels();
+        }
+
+        Integer sourceIndex = sourceIndexes.get(chunk.getDeviceId());
+        if (sourceIndex == null) {
+            sourceIndex = freeSourceIndex();
+            if (sourceIndex < 0) {
+                return false;
+            }
+            sourceIds[sourceIndex] = chunk.getDeviceId();
+            sourceIndexes.put(chunk.getDeviceId(), sourceIndex);
+        }
+        long now = System.nanoTime();
+        sourceLastSeen[sourceIndex] = now;
+        int sourceBit = 1 << sourceIndex;
+
+        long timestamp = chunk.getTimestamp();
+        int samples = length / 2;
+        int toleranceMs = Math.max(1, SilenceDetector.chunkDurationMs(length, sampleRate, channels) / 2);
+
+        MixSlot slot = findSlot(timestamp, toleranceMs, sourceBit);
+        if (slot == null) {
+            slot = acquireSlot(timestamp, emit);
+        }
+
+        // Accumulate with Q8 fixed-point gain
+        int gain = gainPercent * 256 / 100;
+        int[] acc = slot.ensureCapacity(samples);
+        for (int i = 0, b = 0; i < samples; i++, b += 2) {
+            acc[i] += (pcm.getShort(b) * gain) >> 8;
+        }
+        slot.sources |= sourceBit;
+
+        // Release slots that fell out of the jitter window, then the current one if complete
+        emitOlderThan(timestamp - jitterMs, emit);
+        if (slot.used && Integer.bitCount(slot.sources) >= activeSourceCount(now)) {
+            emitUpTo(slot, emit);
+        }
+        return true;
+    }
+
+    /**
+     * Emit every pending slot in timestamp order
+     * @param emit Receives the mixed chunks
+     */
+    public void flush(Consumer<AudioDataMessage> emit) {
+        MixSlot oldest;
+        while ((oldest = oldestSlot()) != null) {
+            emitSlot(oldest, emit);
+        }
+    }
+
+    /**
+     * Emit slots that waited longer than the jitter window, so the mix keeps flowing when
+     * every source pauses, and evict sources that stopped sending a while ago
+     * @param now Current {@link System#nanoTime()}
+     */
+    public void flushExpired(long now) {
+        long cutoff = now - jitterMs * 1_000_000L;
+        MixSlot oldest;
+        while (lastEmit != null && (oldest = oldestSlot()) != null && oldest.openedNanos <= cutoff) {
+            emitSlot(oldest, lastEmit);
+        }
+        for (int i = 0; i < MAX_SOURCES; i++) {
+            if (sourceIds[i] != null && now - sourceLastSeen[i] >= SOURCE_EVICT_NANOS) {
+                removeSource(sourceIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Forget a source that left the room, pending slots no longer wait for it
+     * @param deviceId The source's device ID
+     */
+    public void removeSource(String deviceId) {
+        Integer sourceIndex = sourceIndexes.remove(deviceId);
+        if (sourceIndex == null) {
+            return;
+        }
+        sourceIds[sourceIndex] = null;
+        int sourceBit = 1 << sourceIndex;
+        for (MixSlot slot : slots) {
+            slot.sources &= ~sourceBit;
+        }
+    }
+
+    /**
+     * Number of sources the mixer currently keeps an index for
+     */
+    public int sourceCount() {
+        return sourceIndexes.size();
+    }
+
+    private int freeSourceIndex() {
+        for (int i = 0; i < MAX_SOURCES; i++) {
+            if (sourceIds[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private MixSlot findSlot(long timestamp, int toleranceMs, int sourceBit) {
+        for (MixSlot slot : slots) {
+            if (slot.used && (slot.sources & sourceBit) == 0 && Math.abs(slot.timestamp - timestamp) <= toleranceMs) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private MixSlot acquireSlot(long timestamp, Consumer<AudioDataMessage> emit) {
+        MixSlot free = null;
+        for (MixSlot slot : slots) {
+            if (!slot.used) {
+                free = slot;
+                break;
+            }
+        }
+        if (free == null) {
+            // Jitter buffer full, give up on the oldest slot
+            free = oldestSlot();
+            emitSlot(free, emit);
+        }
+        free.used = true;
+        free.timestamp = timestamp;
+        free.openedNanos = System.nanoTime();
+        return free;
+    }
+
+    private void emitOlderThan(long cutoff, Consumer<AudioDataMessage> emit) {
+        MixSlot oldest;
+        while ((oldest = oldestSlot()) != null && oldest.timestamp <= cutoff) {
+            emitSlot(oldest, emit);
+        }
+    }
+
+    private void emitUpTo(MixSlot target, Consumer<AudioDataMessage> emit) {
+        while (target.used) {
+            emitSlot(oldestSlot(), emit);
+        }
+    }
+
+    private MixSlot oldestSlot() {
+        MixSlot oldest = null;
+        for (MixSlot slot : slots) {
+            if (slot.used && (oldest == null || slot.timestamp < oldest.timestamp)) {
+                oldest = slot;
+            }
+        }
+        return oldest;
+    }
+
+    private int activeSourceCount(long now) {
+        int active = 0;
+        for (int i = 0; i < MAX_SOURCES; i++) {
+            if (sourceIds[i] != null && now - sourceLastSeen[i] < SOURCE_IDLE_NANOS) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    private void emitSlot(MixSlot slot, Consumer<AudioDataMessage> emit) {
+        int length = slot.samples * 2;
+        if (outputBuffer.length != length) {
+            outputBuffer = new byte[length];
+        }
+
+        int[] acc = slot.acc;
+        for (int i = 0, b = 0; i < slot.samples; i++, b += 2) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, acc[i]));
+            outputBuffer[b] = (byte) sample;
+            outputBuffer[b + 1] = (byte) (sample >> 8);
+        }
+
+        output.setRoomId(roomId);
+        output.setDeviceId(outputDeviceId);
+        output.setAudioData(outputBuffer);
+        output.setTimestamp(slot.timestamp);
+        output.setSampleRate(sampleRate);
+        output.setChannels(channels);
+        output.setEncoding("PCM");
+        latencyTimer.record(System.nanoTime() - slot.openedNanos, TimeUnit.NANOSECONDS);
+        slot.reset();
+
+        emit.accept(output);
+    }
+
+    private static class MixSlot {
+        boolean used;
+        long timestamp;
+        long openedNanos;
+        int sources;
+        int samples;
+        int[] acc = new int[0];
+
+        int[] ensureCapacity(int sampleCount) {
+            if (acc.length < sampleCount) {
+                int[] grown = new int[sampleCount];
+                System.arraycopy(acc, 0, grown, 0, samples);
+                acc = grown;
+            }
+            if (samples < sampleCount) {
+                Arrays.fill(acc, samples, sampleCount, 0);
+                samples = sampleCount;
+            }
+            return acc;
+        }
+
+        void reset() {
+            used = false;
+            sources = 0;
+            samples = 0;
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.audiosync.backend.service;
 
+import com.audiosync.backend.diagnostics.HeartbeatExpiryEvent;
+import com.audiosync.backend.diagnostics.RoomLifecycleEvent;
 import com.audiosync.backend.model.AudioSource;
 import com.audiosync.backend.model.ConnectionQuality;
 import com.audiosync.backend.model.Device;
 import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.RoomDTO;
+import com.audiosync.backend.model.RoomEvent;
+import com.audiosync.backend.model.RoomEventLog;
+import com.audiosync.backend.model.RoomEventType;
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.websocket.DeviceUpdateMessage;
+import com.audiosync.backend.websocket.PlaybackControlMessage;
+import com.audiosync.backend.websocket.VolumeControlMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
@@ -14,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,10 +33,29 @@ public class RoomService {
     private static final Logger logger = LoggerFactory.getLogger(RoomService.class);
 
     private final Map<String, Room> rooms = new ConcurrentHashMap<>();
-    private final Map<String, String> roomCodeToId = new ConcurrentHashMap<>();
+    private final Map<String, Room> roomsByCode = new ConcurrentHashMap<>();
+    
+    private final DeviceMessenger deviceMessenger;
+    private final HandleRegistry handleRegistry;
+    private final RoomEventStream eventStream;
+    private final AudioBatchingService batchingService;
+    private final AudioMixingService mixingService;
+    private final long sessionExpiryMs;
     
     private AudioStreamingService audioStreamingService;
     
+    @Autowired
+    public RoomService(DeviceMessenger deviceMessenger, HandleRegistry handleRegistry, RoomEventStream eventStream,
+                       AudioBatchingService batchingService, AudioMixingService mixingService,
+                       @Value("${audio.session.expiry-ms:300000}") long sessionExpiryMs) {
+        this.deviceMessenger = deviceMessenger;
+        this.handleRegistry = handleRegistry;
+        this.eventStream = eventStream;
+        this.batchingService = batchingService;
+        this.mixingService = mixingService;
+        this.sessionExpiryMs = sessionExpiryMs;
+    }
+    
     @Autowired
     public void setAudioStreamingService(@Lazy AudioStreamingService audioStreamingService) {
         this.audioStreamingService = audioStreamingService;
@@ -33,22 +64,68 @@ public class RoomService {
     public Room createRoom(String hostId) {
         Room room = new Room(hostId);
         rooms.put(room.getId(), room);
-        roomCodeToId.put(room.getCode(), room.getId());
+        roomsByCode.put(room.getCode(), room);
+        room.setHandle(handleRegistry.register(room.getId(), room));
+        recordLifecycle(room, "CREATE");
         return room;
     }
 
     public Optional<Room> getRoomByCode(String code) {
-        String roomId = roomCodeToId.get(code);
-        if (roomId == null) {
+        if (code == null) {
             return Optional.empty();
         }
-        return Optional.ofNullable(rooms.get(roomId));
+        return Optional.ofNullable(roomsByCode.get(code));
     }
 
     public Optional<Room> getRoomById(String roomId) {
+        if (roomId == null) {
+            return Optional.empty();
+        }
         return Optional.ofNullable(rooms.get(roomId));
     }
 
+    /**
+     * Find a room by its handle or, when no handle was sent, by its ID. A handle is resolved
+     * through the handle table, so frequent messages that carry one skip the string lookup.
+     * @param roomId The room ID, may be null
+     * @param roomHandle The room handle, may be null
+     * @return The room if either resolves
+     */
+    public Optional<Room> getRoom(String roomId, Integer roomHandle) {
+        if (roomHandle != null) {
+            Object room = handleRegistry.lookup(roomHandle);
+            if (room instanceof Room) {
+                return Optional.of((Room) room);
+            }
+            // A stale handle only counts as missing when there is no ID to fall back to
+            if (roomId == null) {
+                return Optional.empty();
+            }
+        }
+        return getRoomById(roomId);
+    }
+
+    /**
+     * Find a device of a room by its handle or, when no handle was sent, by its ID
+     * @param room The room
+     * @param deviceId The device ID, may be null
+     * @param deviceHandle The device handle, may be null
+     * @return The device session if it resolves and belongs to the room, otherwise null
+     */
+    public Device getDevice(Room room, String deviceId, Integer deviceHandle) {
+        if (deviceHandle != null) {
+            // Released handles don't resolve, so a live session only has to be checked for its room
+            Object device = handleRegistry.lookup(deviceHandle);
+            if (device instanceof Device && ((Device) device).getRoomHandle() == room.getHandle()) {
+                return (Device) device;
+            }
+            if (deviceId == null) {
+                return null;
+            }
+        }
+        return room.getDevice(deviceId);
+    }
+
     public Device addDeviceToRoom(String roomId, String deviceId, String deviceName) {
         Room room = rooms.get(roomId);
         if (room == null) {
@@ -56,7 +133,14 @@ public class RoomService {
         }
 
         Device device = new Device(deviceId, deviceName);
-        room.addDevice(device);
+        device.setHandle(handleRegistry.register(deviceId, device));
+        device.setRoomHandle(room.getHandle());
+        Device replaced = room.addDevice(device);
+        if (replaced != null) {
+            // The earlier session's handle must not resolve to the new one
+            handleRegistry.release(replaced.getHandle());
+        }
+        recordEvent(room, RoomEventType.DEVICE_JOIN, deviceId, deviceSnapshot(device, "JOIN"));
         return device;
     }
 
@@ -66,7 +150,20 @@ public class RoomService {
             return false;
         }
 
-        room.removeDevice(deviceId);
+        // A device that already left keeps nothing to release, and a rejoined one must keep its session
+        Device device = room.removeDevice(deviceId);
+        if (device == null) {
+            return false;
+        }
+        mixingService.removeSource(roomId, deviceId);
+        releaseSession(device);
+        DeviceUpdateMessage leave = new DeviceUpdateMessage();
+        leave.setDeviceId(deviceId);
+        leave.setAction("LEAVE");
+        recordEvent(room, RoomEventType.DEVICE_LEAVE, deviceId, leave);
+        
+        // Notify host about device leaving, whether it left or its session expired
+        deviceMessenger.sendToDevice(room.getHostId(), "/topic/devices", leave);
         return true;
     }
 
@@ -77,6 +174,7 @@ public class RoomService {
         }
 
         room.setAudioSource(audioSource);
+        recordEvent(room, RoomEventType.AUDIO_SOURCE, null, audioSource);
         return true;
     }
 
@@ -88,6 +186,11 @@ public class RoomService {
 
         room.setPlaying(isPlaying);
         room.updatePlaybackTime(timestamp);
+        PlaybackControlMessage playback = new PlaybackControlMessage();
+        playback.setRoomId(roomId);
+        playback.setPlaying(isPlaying);
+        playback.setTimestamp(timestamp);
+        recordEvent(room, RoomEventType.PLAYBACK, null, playback);
         return true;
     }
 
@@ -98,6 +201,57 @@ public class RoomService {
         }
 
         room.setMasterVolume(Math.max(0, Math.min(100, volume)));
+        recordEvent(room, RoomEventType.MASTER_VOLUME, null, volumeSnapshot(roomId, null, room.getMasterVolume()));
+        return true;
+    }
+
+    public boolean setSilenceDetection(String roomId, int threshold, int hangoverMs) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return false;
+        }
+
+        room.setSilenceThreshold(Math.max(0, Math.min(32767, threshold)));
+        room.setSilenceHangoverMs(Math.max(0, hangoverMs));
+        recordEvent(room, RoomEventType.SETTINGS, null, RoomDTO.fromRoom(room));
+        return true;
+    }
+
+    public boolean setMixingEnabled(String roomId, boolean enabled) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return false;
+        }
+
+        room.setMixingEnabled(enabled);
+        if (!enabled) {
+            // Drop what the mixer still holds, so it isn't emitted when mixing is turned on again
+            mixingService.cleanupRoom(roomId);
+        }
+        recordEvent(room, RoomEventType.SETTINGS, null, RoomDTO.fromRoom(room));
+        return true;
+    }
+
+    public boolean setSourceGain(String roomId, String deviceId, int gain) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return false;
+        }
+
+        room.getSourceGains().put(deviceId, Math.max(0, Math.min(200, gain)));
+        recordEvent(room, RoomEventType.SETTINGS, null, RoomDTO.fromRoom(room));
+        return true;
+    }
+
+    public boolean removeAudioSource(String roomId, String deviceId) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return false;
+        }
+
+        room.getSourceGains().remove(deviceId);
+        mixingService.removeSource(roomId, deviceId);
+        recordEvent(room, RoomEventType.SETTINGS, null, RoomDTO.fromRoom(room));
         return true;
     }
 
@@ -113,6 +267,7 @@ public class RoomService {
         }
 
         device.setVolume(Math.max(0, Math.min(100, volume)));
+        recordEvent(room, RoomEventType.DEVICE_VOLUME, deviceId, volumeSnapshot(roomId, deviceId, device.getVolume()));
         return true;
     }
 
@@ -127,7 +282,12 @@ public class RoomService {
             return false;
         }
 
+        ConnectionQuality quality = device.getConnectionQuality();
         device.updateLatency(latency);
+        if (device.getConnectionQuality() != quality) {
+            // Latency alone is reported to the host directly, only a quality change is room state
+            recordEvent(room, RoomEventType.DEVICE_UPDATE, deviceId, deviceSnapshot(device, "UPDATE"));
+        }
         return true;
     }
 
@@ -142,7 +302,12 @@ public class RoomService {
             return false;
         }
 
+        boolean wasActive = device.isActive();
         device.updateHeartbeat();
+        if (!wasActive) {
+            // Coming back changes the active device list, so it gets a new version
+            recordEvent(room, RoomEventType.DEVICE_UPDATE, deviceId, deviceSnapshot(device, "UPDATE"));
+        }
         return true;
     }
 
@@ -157,12 +322,28 @@ public class RoomService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Mark devices that stopped sending heartbeats as disconnected, and end the sessions of
+     * devices that stayed silent past the session expiry so they can't pile up in long-lived rooms
+     */
     public void cleanupInactiveDevices() {
+        long now = System.currentTimeMillis();
+        long expiredBefore = now - sessionExpiryMs;
         rooms.values().forEach(room -> {
             room.getDevices().stream()
                     .filter(device -> !device.isActive())
+                    .filter(device -> device.getConnectionQuality() != ConnectionQuality.DISCONNECTED)
                     .forEach(device -> {
+                        recordExpiry(room, device, now, false);
                         device.setConnectionQuality(ConnectionQuality.DISCONNECTED);
+                        recordEvent(room, RoomEventType.DEVICE_UPDATE, device.getId(), deviceSnapshot(device, "UPDATE"));
+                    });
+            room.getDevices().stream()
+                    .filter(device -> device.getLastHeartbeat() < expiredBefore)
+                    .forEach(device -> {
+                        logger.debug("Session of device {} in room {} expired", device.getId(), room.getId());
+                        recordExpiry(room, device, now, true);
+                        removeDeviceFromRoom(room.getId(), device.getId());
                     });
         });
     }
@@ -170,7 +351,11 @@ public class RoomService {
     public void removeRoom(String roomId) {
         Room room = rooms.remove(roomId);
         if (room != null) {
-            roomCodeToId.remove(room.getCode());
+            recordLifecycle(room, "REMOVE");
+            roomsByCode.remove(room.getCode());
+            handleRegistry.release(room.getHandle());
+            eventStream.closeRoom(roomId);
+            room.getDevices().forEach(this::releaseSession);
             
             // Clean up audio streaming resources for this room
             if (audioStreamingService != null) {
@@ -202,4 +387,83 @@ public class RoomService {
                 .filter(room -> room.getHostId().equals(hostId))
                 .collect(Collectors.toList());
     }
+    
+    /**
+     * Release what is kept for a device outside its session object once the session has ended
+     */
+    private void releaseSession(Device device) {
+        handleRegistry.release(device.getHandle());
+        batchingService.discard(device.getId());
+        deviceMessenger.releaseDevice(device.getId());
+    }
+    
+    private void recordLifecycle(Room room, String action) {
+        RoomLifecycleEvent event = new RoomLifecycleEvent();
+        if (event.shouldCommit()) {
+            event.roomId = room.getId();
+            event.hostId = room.getHostId();
+            event.action = action;
+            event.devices = room.getDevices().size();
+            event.commit();
+        }
+    }
+    
+    private void recordExpiry(Room room, Device device, long now, boolean sessionEnded) {
+        HeartbeatExpiryEvent event = new HeartbeatExpiryEvent();
+        if (event.shouldCommit()) {
+            event.roomId = room.getId();
+            event.deviceId = device.getId();
+            event.sinceLastHeartbeatMs = now - device.getLastHeartbeat();
+            event.sessionEnded = sessionEnded;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Append a change to the room's event log and publish it to clients following the log
+     */
+    private void recordEvent(Room room, RoomEventType type, String deviceId, Object data) {
+        RoomEventLog eventLog = room.getEventLog();
+        // Broadcast under the log's lock so subscribers receive the versions in order
+        ReentrantLock publishLock = eventLog.getPublishLock();
+        publishLock.lock();
+        try {
+            RoomEvent event = eventLog.append(type, deviceId, data);
+            deviceMessenger.broadcast("/topic/room/" + room.getId() + "/events", event);
+        } finally {
+            publishLock.unlock();
+        }
+        eventStream.publish(room);
+    }
+
+    /**
+     * Current state of every device in the room, for snapshots sent instead of missed events
+     * @param room The room
+     * @return One update per device
+     */
+    public List<DeviceUpdateMessage> deviceSnapshots(Room room) {
+        return room.getDevices().stream()
+                .map(device -> deviceSnapshot(device, "UPDATE"))
+                .collect(Collectors.toList());
+    }
+    
+    private DeviceUpdateMessage deviceSnapshot(Device device, String action) {
+        DeviceUpdateMessage snapshot = new DeviceUpdateMessage();
+        snapshot.setDeviceId(device.getId());
+        snapshot.setDeviceHandle(device.getHandle());
+        snapshot.setDeviceName(device.getName());
+        snapshot.setConnectionQuality(device.getConnectionQuality());
+        snapshot.setLatency(device.getLatency());
+        snapshot.setVolume(device.getVolume());
+        snapshot.setAction(action);
+        return snapshot;
+    }
+    
+    private VolumeControlMessage volumeSnapshot(String roomId, String targetDeviceId, int volume) {
+        VolumeControlMessage snapshot = new VolumeControlMessage();
+        snapshot.setRoomId(roomId);
+        snapshot.setTargetDeviceId(targetDeviceId);
+        snapshot.setVolume(volume);
+        return snapshot;
+    }
 }
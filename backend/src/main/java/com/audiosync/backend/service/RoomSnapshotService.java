@@ -0,0 +1,91 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.RoomDTO;
+import com.audiosync.backend.model.RoomSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Builds and caches the REST views of rooms. A room's DTO and JSON are built once per room
+ * version and then served to every poll, so polling dashboards cost a version check instead
+ * of a DTO build and serialization per request.
+ */
+@Service
+public class RoomSnapshotService {
+    private final ObjectMapper objectMapper;
+    private final long deviceMaxAgeMs;
+    private final Counter snapshotsBuilt;
+    private final Counter snapshotsReused;
+
+    @Autowired
+    public RoomSnapshotService(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                               @Value("${audio.rooms.device-snapshot-max-age-ms:1000}") long deviceMaxAgeMs) {
+        this.objectMapper = objectMapper;
+        this.deviceMaxAgeMs = deviceMaxAgeMs;
+        this.snapshotsBuilt = Counter.builder("room.snapshots")
+                .tag("result", "built")
+                .description("REST room snapshot lookups, by whether the snapshot was built or reused")
+                .register(meterRegistry);
+        this.snapshotsReused = Counter.builder("room.snapshots")
+                .tag("result", "reused")
+                .description("REST room snapshot lookups, by whether the snapshot was built or reused")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the current snapshot of a room, building it if the room changed since the last one
+     * @param room The room
+     * @return The snapshot
+     */
+    public RoomSnapshot snapshot(Room room) {
+        long now = System.currentTimeMillis();
+        long version = room.getVersion();
+        RoomSnapshot current = room.getSnapshot();
+        if (current != null && current.version() == version && now - current.builtAt() < deviceMaxAgeMs) {
+            snapshotsReused.increment();
+            return current;
+        }
+
+        RoomSnapshot built = build(room, version, current, now);
+        snapshotsBuilt.increment();
+        // A change during the build may have slipped into the views, only cache them if there was none
+        if (room.getVersion() == version) {
+            room.setSnapshot(built);
+        }
+        return built;
+    }
+
+    private RoomSnapshot build(Room room, long version, RoomSnapshot previous, long now) {
+        RoomDTO dto;
+        byte[] roomJson;
+        if (previous != null && previous.version() == version) {
+            // Only the device statistics aged out, the room itself is unchanged
+            dto = previous.dto();
+            roomJson = previous.roomJson();
+        } else {
+            dto = RoomDTO.fromRoom(room);
+            roomJson = toJson(dto);
+        }
+        List<Device> devices = room.getDevices();
+        return new RoomSnapshot(version, now, dto, roomJson, toJson(devices),
+                toJson(devices.stream().filter(Device::isActive).toList()));
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.audiosync.backend.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fast peak-based silence detection for 16-bit little-endian PCM chunks
+ */
+public final class SilenceDetector {
+
+    private SilenceDetector() {
+    }
+
+    /**
+     * Check whether every sample in the first {@code length} bytes stays below the threshold
+     * @param pcm Little-endian view of 16-bit PCM data, read with absolute gets only
+     * @param length Number of valid bytes in the buffer
+     * @param threshold Peak amplitude (0-32767) below which a sample counts as silent
+     * @return true if the chunk is silent or near-silent
+     */
+    public static boolean isSilent(ByteBuffer pcm, int length, int threshold) {
+        if (pcm == null) {
+            return true;
+        }
+        int limit = length - 1;
+        for (int i = 0; i < limit; i += 2) {
+            int sample = pcm.getShort(i);
+            if (sample >= threshold || sample <= -threshold) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculate the playback duration of a PCM chunk
+     * @param byteLength Length of the chunk in bytes
+     * @param sampleRate Sample rate in Hz
+     * @param channels Number of interleaved channels
+     * @return Duration in milliseconds, or 0 if the format is unknown
+     */
+    public static int chunkDurationMs(int byteLength, int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            return 0;
+        }
+        return (int) (byteLength * 1000L / (2L * sampleRate * channels));
+    }
+}
@@ -0,0 +1,43 @@
+package com.audiosync.backend.service;
+
+/**
+ * Simple token bucket used for ingest rate limiting. Tokens are refilled lazily
+ * on each call, so an idle bucket costs nothing.
+ */
+public class TokenBucket {
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param ratePerSecond Tokens added per second
+     * @param capacity Maximum number of tokens the bucket can hold (burst size)
+     */
+    public TokenBucket(double ratePerSecond, double capacity) {
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Check whether the bucket holds enough tokens without taking them
+     * @param amount Number of tokens needed
+     * @return true if that many tokens are available
+     */
+    public synchronized boolean hasTokens(double amount) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerNano);
+        lastRefillNanos = now;
+        return tokens >= amount;
+    }
+
+    /**
+     * Take tokens after {@link #hasTokens} confirmed they are available
+     * @param amount Number of tokens to take
+     */
+    public synchronized void consume(double amount) {
+        tokens -= amount;
+    }
+}
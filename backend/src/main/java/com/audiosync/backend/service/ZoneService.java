@@ -0,0 +1,225 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.diagnostics.ChunkIngestEvent;
+import com.audiosync.backend.model.Zone;
+import com.audiosync.backend.transport.PreparedMessage;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Broadcast zones publish one ingest stream to many rooms. Each chunk is encoded once at
+ * the zone level and handed to a fixed set of dispatch shards, each of which serves a
+ * subset of the zone's rooms on its own thread. A shard keeps its rooms in order and
+ * drops its oldest pending chunk when it falls behind, so latency stays bounded.
+ */
+@Service
+public class ZoneService {
+    private static final Logger logger = LoggerFactory.getLogger(ZoneService.class);
+    // Checked before allocating an event per chunk
+    private static final EventType CHUNK_INGEST = EventType.getEventType(ChunkIngestEvent.class);
+
+    private final Map<String, Zone> zones = new ConcurrentHashMap<>();
+
+    private final RoomService roomService;
+    private final AudioStreamingService audioStreamingService;
+    private final IngestAdmissionService admissionService;
+
+    private final ThreadPoolExecutor[] dispatchShards;
+    private final Timer dispatchTimer;
+    private final Counter droppedChunks;
+
+    @Autowired
+    public ZoneService(RoomService roomService,
+                       AudioStreamingService audioStreamingService,
+                       IngestAdmissionService admissionService,
+                       MeterRegistry meterRegistry,
+                       @Value("${audio.zone.dispatch-threads:4}") int dispatchThreads,
+                       @Value("${audio.zone.dispatch-queue-size:64}") int dispatchQueueSize) {
+        this.roomService = roomService;
+        this.audioStreamingService = audioStreamingService;
+        this.admissionService = admissionService;
+        this.dispatchTimer = meterRegistry.timer("audio.zone.dispatch");
+        this.droppedChunks = meterRegistry.counter("audio.zone.dropped");
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("zone-dispatch-");
+        this.dispatchShards = new ThreadPoolExecutor[Math.max(1, dispatchThreads)];
+        for (int i = 0; i < dispatchShards.length; i++) {
+            dispatchShards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(dispatchQueueSize), threadFactory,
+                    (task, executor) -> {
+                        // Drop the oldest pending chunk rather than letting the shard fall further behind
+                        Runnable dropped = executor.getQueue().poll();
+                        if (dropped instanceof ShardDispatch dispatch) {
+                            dispatch.onDrop.run();
+                        }
+                        droppedChunks.increment();
+                        if (executor.isShutdown()) {
+                            ((ShardDispatch) task).onDrop.run();
+                        } else {
+                            executor.execute(task);
+                        }
+                    });
+        }
+    }
+
+    public Zone createZone(String name, String sourceDeviceId) {
+        Zone zone = new Zone(name, sourceDeviceId);
+        zones.put(zone.getId(), zone);
+        return zone;
+    }
+
+    public Optional<Zone> getZoneById(String zoneId) {
+        return Optional.ofNullable(zones.get(zoneId));
+    }
+
+    public boolean addRoomToZone(String zoneId, String roomId) {
+        Zone zone = zones.get(zoneId);
+        if (zone == null || roomService.getRoomById(roomId).isEmpty()) {
+            return false;
+        }
+
+        zone.getRoomIds().add(roomId);
+        return true;
+    }
+
+    public boolean removeRoomFromZone(String zoneId, String roomId) {
+        Zone zone = zones.get(zoneId);
+        if (zone == null) {
+            return false;
+        }
+
+        zone.getRoomIds().remove(roomId);
+        return true;
+    }
+
+    public void removeZone(String zoneId) {
+        if (zones.remove(zoneId) != null) {
+            admissionService.cleanupRoom(zoneId);
+            logger.info("Removed zone: {}", zoneId);
+        }
+    }
+
+    /**
+     * Process incoming audio data from a zone's source and distribute it to every room in the zone
+     * @param message The audio data message, addressed by zone ID
+     */
+    public void processZoneAudio(AudioDataMessage message) {
+        ChunkIngestEvent event = CHUNK_INGEST.isEnabled() ? new ChunkIngestEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        String outcome = ingest(message);
+        if (event != null && event.shouldCommit()) {
+            event.zoneId = message.getZoneId();
+            event.deviceId = message.getDeviceId();
+            event.bytes = message.getPayloadLength();
+            event.encoding = message.getEncoding();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    private String ingest(AudioDataMessage message) {
+        Zone zone = zones.get(message.getZoneId());
+        if (zone == null) {
+            logger.warn("Received audio data for non-existent zone: {}", message.getZoneId());
+            return "NO_ROOM";
+        }
+
+        // Only the zone source can send audio data
+        if (!zone.getSourceDeviceId().equals(message.getDeviceId())) {
+            logger.warn("Non-source device attempted to send zone audio data: {}", message.getDeviceId());
+            return "NOT_SOURCE";
+        }
+
+        if (!admissionService.admit(zone.getId(), message)) {
+            logger.debug("Rejected zone audio data from device {} in zone {}", message.getDeviceId(), zone.getId());
+            return "REJECTED";
+        }
+
+        // Encode and frame once for the whole zone, each room keeps its own volume and playback state
+        AudioDataMessage outgoing = new AudioDataMessage();
+        outgoing.setZoneId(zone.getId());
+        outgoing.setDeviceId(message.getDeviceId());
+        outgoing.setAudioData(message.getAudioData());
+        outgoing.setAudioBuffer(message.getAudioBuffer());
+        outgoing.setTimestamp(message.getTimestamp());
+        outgoing.setSampleRate(message.getSampleRate());
+        outgoing.setChannels(message.getChannels());
+        outgoing.setEncoding(message.getEncoding());
+        PreparedMessage encoded = audioStreamingService.encodeAudio(outgoing);
+        int payloadBytes = message.getPayloadLength();
+
+        // The shards outlive this call, so they hold their own reference to the pooled payload.
+        // It is released with the encoded chunk by whichever shard finishes with it last.
+        PooledAudioBuffer payload = outgoing.getAudioBuffer() != null ? outgoing.getAudioBuffer().retain() : null;
+        AtomicInteger pendingShards = new AtomicInteger(dispatchShards.length);
+        long publishedAt = System.nanoTime();
+        for (int shard = 0; shard < dispatchShards.length; shard++) {
+            int shardIndex = shard;
+            dispatchShards[shard].execute(new ShardDispatch(() -> {
+                try {
+                    dispatch(zone, shardIndex, outgoing, encoded, payloadBytes, publishedAt);
+                } finally {
+                    releaseIfLast(pendingShards, encoded, payload);
+                }
+            }, () -> releaseIfLast(pendingShards, encoded, payload)));
+        }
+        return "ACCEPTED";
+    }
+
+    private void releaseIfLast(AtomicInteger pendingShards, PreparedMessage encoded, PooledAudioBuffer payload) {
+        if (pendingShards.decrementAndGet() == 0) {
+            encoded.release();
+            if (payload != null) {
+                payload.release();
+            }
+        }
+    }
+
+    private void dispatch(Zone zone, int shard, AudioDataMessage outgoing, PreparedMessage encoded, int payloadBytes, long publishedAt) {
+        for (String roomId : zone.getRoomIds()) {
+            if (Math.floorMod(roomId.hashCode(), dispatchShards.length) != shard) {
+                continue;
+            }
+            roomService.getRoomById(roomId).ifPresentOrElse(room -> {
+                audioStreamingService.updateLastAudioTimestamp(room, outgoing.getTimestamp());
+                audioStreamingService.sendToListeners(room, outgoing, encoded, payloadBytes, null);
+            }, () -> zone.getRoomIds().remove(roomId));
+        }
+        dispatchTimer.record(System.nanoTime() - publishedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private record ShardDispatch(Runnable work, Runnable onDrop) implements Runnable {
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : dispatchShards) {
+            shard.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.audiosync.backend.transport;
+
+/**
+ * Transport-neutral way of sending messages to connected devices. Services and the
+ * message handlers only talk to this interface, so the same room and audio logic runs
+ * on the STOMP transport and on the Netty transport.
+ */
+public interface DeviceMessenger {
+
+    /**
+     * Send a message to a single device
+     * @param deviceId The device ID
+     * @param destination Destination on the device, e.g. "/topic/room"
+     * @param payload The message payload
+     */
+    void sendToDevice(String deviceId, String destination, Object payload);
+
+    /**
+     * Send a message to every device subscribed to a destination
+     * @param destination Broadcast destination, e.g. "/topic/room/{roomId}/playback"
+     * @param payload The message payload
+     */
+    void broadcast(String destination, Object payload);
+
+    /**
+     * Encode a message once so it can be sent to many devices without re-encoding
+     * @param destination Destination on the devices
+     * @param payload The message payload
+     * @return The encoded message, which must be released after the last send
+     */
+    PreparedMessage prepare(String destination, Object payload);
+
+    /**
+     * Send a message encoded with {@link #prepare} to a single device
+     * @param deviceId The device ID
+     * @param message The encoded message
+     * @return false if the device is not connected or its outbound queue is full
+     */
+    boolean sendPrepared(String deviceId, PreparedMessage message);
+
+    /**
+     * Send a message encoded with {@link #prepare} to a single device and report when it is
+     * written to the device's socket. Transports that can't observe the write report when
+     * they accepted the message.
+     * @param deviceId The device ID
+     * @param message The encoded message
+     * @param onWrite Called once the message is written, not called if it was dropped
+     * @return false if the device is not connected or its outbound queue is full
+     */
+    default boolean sendPrepared(String deviceId, PreparedMessage message, Runnable onWrite) {
+        boolean queued = sendPrepared(deviceId, message);
+        if (queued) {
+            onWrite.run();
+        }
+        return queued;
+    }
+
+    /**
+     * Drop any per-device transport state once the device's session has ended
+     * @param deviceId The device ID
+     */
+    default void releaseDevice(String deviceId) {
+    }
+}
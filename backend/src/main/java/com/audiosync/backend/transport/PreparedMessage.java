@@ -0,0 +1,13 @@
+package com.audiosync.backend.transport;
+
+/**
+ * A message encoded once by a {@link DeviceMessenger} for fan-out to many devices
+ */
+public interface PreparedMessage {
+
+    /**
+     * Release the encoded form once it has been handed to every recipient
+     */
+    default void release() {
+    }
+}
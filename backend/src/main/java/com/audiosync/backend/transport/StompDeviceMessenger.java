@@ -0,0 +1,47 @@
+package com.audiosync.backend.transport;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default transport, sends through the STOMP message broker over SockJS
+ */
+@Component
+@Profile("!netty")
+public class StompDeviceMessenger implements DeviceMessenger {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    public StompDeviceMessenger(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Override
+    public void sendToDevice(String deviceId, String destination, Object payload) {
+        messagingTemplate.convertAndSendToUser(deviceId, destination, payload);
+    }
+
+    @Override
+    public void broadcast(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+    }
+
+    @Override
+    public PreparedMessage prepare(String destination, Object payload) {
+        return new StompPreparedMessage(destination, messagingTemplate.getMessageConverter().toMessage(payload, null));
+    }
+
+    @Override
+    public boolean sendPrepared(String deviceId, PreparedMessage message) {
+        StompPreparedMessage prepared = (StompPreparedMessage) message;
+        messagingTemplate.send(messagingTemplate.getUserDestinationPrefix() + deviceId + prepared.destination, prepared.message);
+        return true;
+    }
+
+    private record StompPreparedMessage(String destination, Message<?> message) implements PreparedMessage {
+    }
+}
@@ -0,0 +1,154 @@
+package com.audiosync.backend.transport.netty;
+
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+
+/**
+ * Encodes and decodes Netty transport frames as JSON text or, for connections that
+ * negotiated the "cbor" subprotocol, as compact CBOR binary frames. Audio frames are
+ * parsed in streaming mode so their payload is decoded straight into a pooled buffer,
+ * without an intermediate tree, string or array; this requires the frame's "destination"
+ * to come before its "payload", otherwise the frame takes the generic path.
+ */
+@Component
+@Profile("netty")
+public class FrameCodec {
+
+    private static final Set<String> AUDIO_DESTINATIONS = Set.of("/app/audio-data", "/app/zone-audio-data");
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final AudioBufferPool bufferPool;
+
+    @Autowired
+    public FrameCodec(ObjectMapper jsonMapper, AudioBufferPool bufferPool) {
+        this.jsonMapper = jsonMapper;
+        this.cborMapper = new CBORMapper();
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Encode a frame into a pooled direct buffer
+     * @param cbor Whether to encode as CBOR instead of JSON
+     * @param frame The frame to encode
+     * @return The encoded frame, owned by the caller
+     * @throws IOException if the payload cannot be serialized
+     */
+    public ByteBuf encode(boolean cbor, TransportFrame frame) throws IOException {
+        ByteBuf buffer = ByteBufAllocator.DEFAULT.directBuffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+            mapper(cbor).writeValue((OutputStream) out, frame);
+            return buffer;
+        } catch (IOException e) {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Decode a frame without copying it out of the receive buffer
+     * @param cbor Whether the frame is CBOR instead of JSON
+     * @param content Frame content, still owned by the caller
+     * @return The decoded frame, to be released after it has been handled
+     * @throws IOException if the content is malformed
+     */
+    public InboundFrame decode(boolean cbor, ByteBuf content) throws IOException {
+        // Upper bound for the decoded audio payload, base64 text shrinks by a quarter
+        int payloadBound = cbor ? content.readableBytes() : content.readableBytes() / 4 * 3 + 3;
+        ObjectMapper mapper = mapper(cbor);
+        String type = null;
+        String destination = null;
+        JsonNode payload = MissingNode.getInstance();
+        AudioDataMessage audio = null;
+
+        try (JsonParser parser = mapper.createParser((InputStream) new ByteBufInputStream(content))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Frame is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "type" -> type = parser.getValueAsString();
+                    case "destination" -> destination = parser.getValueAsString();
+                    case "payload" -> {
+                        if (audio == null && token == JsonToken.START_OBJECT && destination != null
+                                && AUDIO_DESTINATIONS.contains(destination)) {
+                            audio = new AudioDataMessage();
+                            readAudio(parser, payloadBound, audio);
+                        } else {
+                            payload = mapper.readTree(parser);
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (audio != null && audio.getAudioBuffer() != null) {
+                audio.getAudioBuffer().release();
+            }
+            throw e;
+        }
+        return new InboundFrame(type, destination, payload, audio);
+    }
+
+    private void readAudio(JsonParser parser, int payloadBound, AudioDataMessage audio) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "roomId" -> audio.setRoomId(parser.getValueAsString());
+                case "roomHandle", "rh" -> audio.setRoomHandle(token == JsonToken.VALUE_NULL ? null : parser.getValueAsInt());
+                case "zoneId" -> audio.setZoneId(parser.getValueAsString());
+                case "deviceId" -> audio.setDeviceId(parser.getValueAsString());
+                case "timestamp" -> audio.setTimestamp(parser.getValueAsLong());
+                case "sampleRate" -> audio.setSampleRate(parser.getValueAsInt());
+                case "channels" -> audio.setChannels(parser.getValueAsInt());
+                case "encoding" -> audio.setEncoding(parser.getValueAsString());
+                case "silent" -> audio.setSilent(parser.getValueAsBoolean());
+                case "durationMs" -> audio.setDurationMs(parser.getValueAsInt());
+                case "audioData" -> {
+                    if (token == JsonToken.VALUE_NULL || audio.getAudioBuffer() != null) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    PooledAudioBuffer buffer = bufferPool.acquire(payloadBound);
+                    audio.setAudioBuffer(buffer);
+                    parser.readBinaryValue(buffer.outputStream());
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Bind a decoded payload to a message class, regardless of the wire format it came in
+     */
+    public <T> T convert(JsonNode payload, Class<T> type) throws IOException {
+        return jsonMapper.treeToValue(payload, type);
+    }
+
+    private ObjectMapper mapper(boolean cbor) {
+        return cbor ? cborMapper : jsonMapper;
+    }
+}
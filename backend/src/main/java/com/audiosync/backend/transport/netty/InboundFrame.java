@@ -0,0 +1,22 @@
+package com.audiosync.backend.transport.netty;
+
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A decoded inbound frame. Audio frames carry their chunk already bound, with the payload
+ * decoded into a pooled buffer that is released once the frame has been handled; every
+ * other frame carries its payload as a tree.
+ */
+public record InboundFrame(String type, String destination, JsonNode payload, AudioDataMessage audio) {
+
+    /**
+     * Drop the frame's reference to its pooled audio payload, if any
+     */
+    public void release() {
+        if (audio != null && audio.getAudioBuffer() != null) {
+            audio.getAudioBuffer().release();
+            audio.setAudioBuffer(null);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.audiosync.backend.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single client connection on the Netty transport. Outbound frames go through a bounded
+ * queue that is drained as fast as the socket accepts writes; when a slow client lets the
+ * queue fill up, new frames are dropped instead of buffering without limit. Audio frames
+ * may only fill three quarters of the queue, so a client that falls behind on audio still
+ * gets room updates and playout corrections.
+ */
+public class NettyConnection {
+    private final boolean cbor;
+    private final Sinks.Many<WebSocketFrame> outbound;
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private final int audioQueueLimit;
+    private final AtomicInteger queued = new AtomicInteger();
+    private volatile String deviceId;
+
+    /**
+     * @param queueSize Maximum number of outbound frames waiting for the socket
+     * @param cbor Whether the client negotiated CBOR binary frames instead of JSON text
+     */
+    public NettyConnection(int queueSize, boolean cbor) {
+        this.cbor = cbor;
+        this.audioQueueLimit = Math.max(1, queueSize * 3 / 4);
+        this.outbound = Sinks.many().unicast().onBackpressureBuffer(Queues.<WebSocketFrame>get(queueSize).get());
+    }
+
+    /**
+     * Queue an encoded frame for this connection. Takes ownership of the buffer.
+     * @param frame Frame content in this connection's encoding
+     * @return false if the frame was dropped because the queue is full or the connection closed
+     */
+    public boolean send(ByteBuf frame) {
+        return send(frame, null, false);
+    }
+
+    /**
+     * Queue an encoded frame and get notified when it is handed to the socket. Takes ownership of the buffer.
+     * @param frame Frame content in this connection's encoding
+     * @param onWrite Called when the frame leaves the queue for the socket, may be null
+     * @param audio Whether the frame carries audio, which is dropped first when the client falls behind
+     * @return false if the frame was dropped because the queue is full or the connection closed
+     */
+    public boolean send(ByteBuf frame, Runnable onWrite, boolean audio) {
+        if (audio && queued.get() >= audioQueueLimit) {
+            frame.release();
+            return false;
+        }
+        WebSocketFrame webSocketFrame;
+        if (onWrite == null) {
+            webSocketFrame = cbor ? new BinaryWebSocketFrame(frame) : new TextWebSocketFrame(frame);
+        } else {
+            webSocketFrame = cbor ? new TracedBinaryFrame(frame, onWrite) : new TracedTextFrame(frame, onWrite);
+        }
+        Sinks.EmitResult result;
+        // The unicast sink requires serialized producers
+        synchronized (this) {
+            result = outbound.tryEmitNext(webSocketFrame);
+        }
+        if (result.isFailure()) {
+            frame.release();
+            return false;
+        }
+        queued.incrementAndGet();
+        return true;
+    }
+
+    public Flux<WebSocketFrame> frames() {
+        // Frames still queued when the connection goes away must give their buffers back
+        return outbound.asFlux()
+                .doOnNext(frame -> {
+                    queued.decrementAndGet();
+                    if (frame instanceof TracedFrame traced) {
+                        traced.onWrite().run();
+                    }
+                })
+                .doOnDiscard(WebSocketFrame.class, WebSocketFrame::release);
+    }
+
+    public synchronized void close() {
+        outbound.tryEmitComplete();
+    }
+
+    public boolean isCbor() {
+        return cbor;
+    }
+
+    public Set<String> getSubscriptions() {
+        return subscriptions;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    private interface TracedFrame {
+        Runnable onWrite();
+    }
+
+    private static final class TracedTextFrame extends TextWebSocketFrame implements TracedFrame {
+        private final Runnable onWrite;
+
+        private TracedTextFrame(ByteBuf content, Runnable onWrite) {
+            super(content);
+            this.onWrite = onWrite;
+        }
+
+        @Override
+        public Runnable onWrite() {
+            return onWrite;
+        }
+    }
+
+    private static final class TracedBinaryFrame extends BinaryWebSocketFrame implements TracedFrame {
+        private final Runnable onWrite;
+
+        private TracedBinaryFrame(ByteBuf content, Runnable onWrite) {
+            super(content);
+            this.onWrite = onWrite;
+        }
+
+        @Override
+        public Runnable onWrite() {
+            return onWrite;
+        }
+    }
+}
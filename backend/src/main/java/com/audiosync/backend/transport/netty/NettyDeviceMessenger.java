@@ -0,0 +1,249 @@
+package com.audiosync.backend.transport.netty;
+
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.transport.PreparedMessage;
+import com.audiosync.backend.websocket.AudioBatchMessage;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Netty transport implementation of {@link DeviceMessenger}. Frames are encoded straight
+ * into pooled direct buffers; prepared messages are encoded once per wire format and every
+ * recipient gets a reference-counted duplicate of the same buffer. Devices are bound to a
+ * connection when they join or resume a room, and frames a client can't queue are counted
+ * in netty.outbound.dropped by kind.
+ */
+@Component
+@Profile("netty")
+public class NettyDeviceMessenger implements DeviceMessenger {
+    private static final Logger logger = LoggerFactory.getLogger(NettyDeviceMessenger.class);
+
+    private final FrameCodec frameCodec;
+
+    private final Map<String, NettyConnection> deviceConnections = new ConcurrentHashMap<>();
+    private final Map<String, Set<NettyConnection>> subscriptions = new ConcurrentHashMap<>();
+
+    private final Counter droppedAudio;
+    private final Counter droppedControl;
+
+    @Autowired
+    public NettyDeviceMessenger(FrameCodec frameCodec, MeterRegistry meterRegistry) {
+        this.frameCodec = frameCodec;
+        this.droppedAudio = meterRegistry.counter("netty.outbound.dropped", "kind", "audio");
+        this.droppedControl = meterRegistry.counter("netty.outbound.dropped", "kind", "control");
+    }
+
+    @Override
+    public void sendToDevice(String deviceId, String destination, Object payload) {
+        NettyConnection connection = deviceConnections.get(deviceId);
+        if (connection == null) {
+            return;
+        }
+        ByteBuf frame = encode(connection.isCbor(), destination, payload);
+        if (frame != null) {
+            send(connection, frame, null, isAudio(payload));
+        }
+    }
+
+    @Override
+    public void broadcast(String destination, Object payload) {
+        Set<NettyConnection> subscribers = subscriptions.get(destination);
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        NettyPreparedMessage prepared = new NettyPreparedMessage(destination, payload);
+        try {
+            for (NettyConnection connection : subscribers) {
+                sendPrepared(connection, prepared);
+            }
+        } finally {
+            prepared.release();
+        }
+    }
+
+    @Override
+    public PreparedMessage prepare(String destination, Object payload) {
+        return new NettyPreparedMessage(destination, payload);
+    }
+
+    @Override
+    public boolean sendPrepared(String deviceId, PreparedMessage message) {
+        NettyConnection connection = deviceConnections.get(deviceId);
+        return connection != null && sendPrepared(connection, (NettyPreparedMessage) message);
+    }
+
+    @Override
+    public boolean sendPrepared(String deviceId, PreparedMessage message, Runnable onWrite) {
+        NettyConnection connection = deviceConnections.get(deviceId);
+        if (connection == null) {
+            return false;
+        }
+        NettyPreparedMessage prepared = (NettyPreparedMessage) message;
+        ByteBuf frame = prepared.frame(connection.isCbor());
+        return frame != null && send(connection, frame.retainedDuplicate(), onWrite, prepared.audio);
+    }
+
+    @Override
+    public void releaseDevice(String deviceId) {
+        NettyConnection connection = deviceConnections.remove(deviceId);
+        if (connection != null && deviceId.equals(connection.getDeviceId())) {
+            // The connection stays open and is bound again when the device joins or resumes
+            connection.setDeviceId(null);
+        }
+    }
+
+    /**
+     * Associate a connection with the device that joined or resumed a room on it. A connection
+     * carries one device at a time, and a device that reconnects takes over from its old connection.
+     */
+    public void bindDevice(String deviceId, NettyConnection connection) {
+        String previousDevice = connection.getDeviceId();
+        if (deviceId.equals(previousDevice)) {
+            return;
+        }
+        if (previousDevice != null) {
+            deviceConnections.remove(previousDevice, connection);
+        }
+        connection.setDeviceId(deviceId);
+        NettyConnection previous = deviceConnections.put(deviceId, connection);
+        if (previous != null && previous != connection) {
+            previous.setDeviceId(null);
+        }
+    }
+
+    public void subscribe(NettyConnection connection, String destination) {
+        if (connection.getSubscriptions().add(destination)) {
+            subscriptions.compute(destination, (d, subscribers) -> {
+                Set<NettyConnection> updated = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                updated.add(connection);
+                return updated;
+            });
+        }
+    }
+
+    public void unsubscribe(NettyConnection connection, String destination) {
+        if (connection.getSubscriptions().remove(destination)) {
+            removeSubscriber(destination, connection);
+        }
+    }
+
+    /**
+     * Forget everything about a closed connection
+     */
+    public void unregister(NettyConnection connection) {
+        if (connection.getDeviceId() != null) {
+            deviceConnections.remove(connection.getDeviceId(), connection);
+        }
+        for (String destination : connection.getSubscriptions()) {
+            removeSubscriber(destination, connection);
+        }
+        connection.getSubscriptions().clear();
+        connection.close();
+    }
+
+    private ByteBuf encode(boolean cbor, String destination, Object payload) {
+        try {
+            return frameCodec.encode(cbor, new TransportFrame("MESSAGE", destination, payload));
+        } catch (IOException e) {
+            logger.warn("Failed to encode frame for {}", destination, e);
+            return null;
+        }
+    }
+
+    private boolean sendPrepared(NettyConnection connection, NettyPreparedMessage prepared) {
+        ByteBuf frame = prepared.frame(connection.isCbor());
+        return frame != null && send(connection, frame.retainedDuplicate(), null, prepared.audio);
+    }
+
+    private boolean send(NettyConnection connection, ByteBuf frame, Runnable onWrite, boolean audio) {
+        if (!connection.send(frame, onWrite, audio)) {
+            (audio ? droppedAudio : droppedControl).increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isAudio(Object payload) {
+        return payload instanceof AudioDataMessage || payload instanceof AudioBatchMessage;
+    }
+
+    private void removeSubscriber(String destination, NettyConnection connection) {
+        subscriptions.computeIfPresent(destination, (d, subscribers) -> {
+            subscribers.remove(connection);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * Message encoded lazily, at most once per wire format. A pooled audio payload stays
+     * referenced until the message is released, since encoding may happen after the caller
+     * has dropped its own reference.
+     */
+    private final class NettyPreparedMessage implements PreparedMessage {
+        private final String destination;
+        private final Object payload;
+        private final boolean audio;
+        private ByteBuf jsonFrame;
+        private ByteBuf cborFrame;
+        private boolean released;
+
+        private final PooledAudioBuffer pooledPayload;
+
+        private NettyPreparedMessage(String destination, Object payload) {
+            this.destination = destination;
+            this.payload = payload;
+            this.audio = isAudio(payload);
+            this.pooledPayload = payload instanceof AudioDataMessage audio && audio.getAudioBuffer() != null
+                    ? audio.getAudioBuffer().retain()
+                    : null;
+        }
+
+        synchronized ByteBuf frame(boolean cbor) {
+            if (released) {
+                return null;
+            }
+            if (cbor) {
+                if (cborFrame == null) {
+                    cborFrame = encode(true, destination, payload);
+                }
+                return cborFrame;
+            }
+            if (jsonFrame == null) {
+                jsonFrame = encode(false, destination, payload);
+            }
+            return jsonFrame;
+        }
+
+        @Override
+        public synchronized void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            if (pooledPayload != null) {
+                pooledPayload.release();
+            }
+            if (jsonFrame != null) {
+                jsonFrame.release();
+                jsonFrame = null;
+            }
+            if (cborFrame != null) {
+                cborFrame.release();
+                cborFrame = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.audiosync.backend.transport.netty;
+
+import com.audiosync.backend.controller.WebSocketController;
+import com.audiosync.backend.diagnostics.FrameDecodeEvent;
+import com.audiosync.backend.service.HandleRegistry;
+import com.audiosync.backend.websocket.*;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import jdk.jfr.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.WebsocketServerSpec;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.http.websocket.WebsocketOutbound;
+
+import java.io.IOException;
+
+/**
+ * Non-blocking WebSocket transport on Reactor Netty, enabled with the "netty" profile.
+ * Carries the same room, join, heartbeat and audio protocol as the STOMP endpoint using
+ * plain JSON frames: {"type":"SEND","destination":"/app/join","payload":{...}} and
+ * SUBSCRIBE/UNSUBSCRIBE frames for broadcast destinations. Clients that offer the "cbor"
+ * subprotocol at connect time get the same frames as compact CBOR binary frames. Inbound frames are parsed
+ * straight from the direct receive buffers on the event loop and handled in order per
+ * connection on a worker scheduler, reusing the same handlers as the STOMP transport.
+ * Audio payloads are decoded into pooled buffers that go back to the pool once the
+ * chunk has been handled and every prepared fan-out message referencing it is released.
+ * A connection speaks for the device that joined or resumed a room on it; other messages
+ * naming a different device by ID or handle, or sent before a join, are rejected.
+ */
+@Component
+@Profile("netty")
+public class NettyTransportServer implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(NettyTransportServer.class);
+    // Checked before allocating an event per frame
+    private static final EventType FRAME_DECODE = EventType.getEventType(FrameDecodeEvent.class);
+
+    private final WebSocketController webSocketController;
+    private final NettyDeviceMessenger deviceMessenger;
+    private final FrameCodec frameCodec;
+    private final HandleRegistry handleRegistry;
+    private final Counter rejectedFrames;
+
+    private final int port;
+    private final String path;
+    private final int maxFrameSize;
+    private final int outboundQueueSize;
+
+    private Scheduler dispatchScheduler;
+    private DisposableServer server;
+
+    @Autowired
+    public NettyTransportServer(WebSocketController webSocketController,
+                                NettyDeviceMessenger deviceMessenger,
+                                FrameCodec frameCodec,
+                                HandleRegistry handleRegistry,
+                                MeterRegistry meterRegistry,
+                                @Value("${audio.netty.port:8081}") int port,
+                                @Value("${audio.netty.path:/ws}") String path,
+                                @Value("${audio.netty.max-frame-size:1048576}") int maxFrameSize,
+                                @Value("${audio.netty.outbound-queue-size:256}") int outboundQueueSize) {
+        this.webSocketController = webSocketController;
+        this.deviceMessenger = deviceMessenger;
+        this.frameCodec = frameCodec;
+        this.handleRegistry = handleRegistry;
+        this.rejectedFrames = meterRegistry.counter("netty.inbound.rejected");
+        this.port = port;
+        this.path = path;
+        this.maxFrameSize = maxFrameSize;
+        this.outboundQueueSize = outboundQueueSize;
+    }
+
+    @Override
+    public void start() {
+        dispatchScheduler = Schedulers.newBoundedElastic(
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "netty-dispatch");
+        // Subprotocols are only configured for clients that offer one of ours, Reactor Netty
+        // cancels the inbound side of connections that negotiated none against a configured list
+        WebsocketServerSpec negotiatingSpec = WebsocketServerSpec.builder()
+                .protocols("cbor,json")
+                .maxFramePayloadLength(maxFrameSize)
+                .build();
+        WebsocketServerSpec plainSpec = WebsocketServerSpec.builder()
+                .maxFramePayloadLength(maxFrameSize)
+                .build();
+        server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes.get(path, (request, response) -> response.sendWebsocket(this::handle,
+                        offersKnownSubprotocol(request.requestHeaders().get(HttpHeaderNames.SEC_WEBSOCKET_PROTOCOL))
+                                ? negotiatingSpec : plainSpec)))
+                .bindNow();
+        logger.info("Netty transport listening on port {} at {}", server.port(), path);
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+        if (dispatchScheduler != null) {
+            dispatchScheduler.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    private boolean offersKnownSubprotocol(String offered) {
+        if (offered == null) {
+            return false;
+        }
+        for (String protocol : offered.split(",")) {
+            String name = protocol.trim();
+            if (name.equals("cbor") || name.equals("json")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> handle(WebsocketInbound in, WebsocketOutbound out) {
+        NettyConnection connection = new NettyConnection(outboundQueueSize, "cbor".equals(in.selectedSubprotocol()));
+
+        Mono<Void> inbound = in.aggregateFrames(maxFrameSize)
+                .receiveFrames()
+                .mapNotNull(this::parse)
+                .publishOn(dispatchScheduler)
+                .doOnNext(frame -> dispatch(connection, frame))
+                .doOnDiscard(InboundFrame.class, InboundFrame::release)
+                .doFinally(signal -> deviceMessenger.unregister(connection))
+                .then();
+
+        Mono<Void> outbound = out.sendObject(connection.frames()).then();
+
+        return Mono.when(inbound, outbound);
+    }
+
+    private InboundFrame parse(WebSocketFrame frame) {
+        FrameDecodeEvent event = FRAME_DECODE.isEnabled() ? new FrameDecodeEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        boolean cbor = frame instanceof BinaryWebSocketFrame;
+        int size = frame.content().readableBytes();
+        try {
+            InboundFrame decoded = frameCodec.decode(cbor, frame.content());
+            if (event != null && event.shouldCommit()) {
+                event.destination = decoded.destination();
+                event.deviceId = decoded.audio() != null ? decoded.audio().getDeviceId() : decoded.payload().path("deviceId").asText(null);
+                event.bytes = size;
+                event.cbor = cbor;
+                event.commit();
+            }
+            return decoded;
+        } catch (IOException e) {
+            logger.debug("Discarding malformed frame", e);
+            return null;
+        }
+    }
+
+    private void dispatch(NettyConnection connection, InboundFrame frame) {
+        try {
+            dispatchFrame(connection, frame);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void dispatchFrame(NettyConnection connection, InboundFrame frame) {
+        String type = String.valueOf(frame.type());
+        String destination = String.valueOf(frame.destination());
+
+        switch (type) {
+            case "SUBSCRIBE" -> deviceMessenger.subscribe(connection, destination);
+            case "UNSUBSCRIBE" -> deviceMessenger.unsubscribe(connection, destination);
+            case "SEND" -> {
+                String deviceId = frame.audio() != null
+                        ? frame.audio().getDeviceId()
+                        : claimedDevice(frame.payload());
+                if (!authorize(connection, destination, deviceId)) {
+                    rejectedFrames.increment();
+                    logger.debug("Rejecting {} for device {} on a connection bound to {}",
+                            destination, deviceId, connection.getDeviceId());
+                    return;
+                }
+                try {
+                    route(destination, frame);
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.debug("Discarding invalid payload for {}", destination, e);
+                } catch (RuntimeException e) {
+                    logger.warn("Error handling {} from device {}", destination, deviceId, e);
+                }
+            }
+            default -> logger.debug("Discarding frame with unknown type: {}", type);
+        }
+    }
+
+    /**
+     * Device a payload speaks for, by ID or by handle. A handle that no longer resolves is
+     * reported as the empty string so it can't pass for a frame without a device.
+     */
+    private String claimedDevice(JsonNode payload) {
+        String deviceId = payload.path("deviceId").asText(null);
+        if (deviceId != null) {
+            return deviceId;
+        }
+        JsonNode handle = payload.has("deviceHandle") ? payload.get("deviceHandle") : payload.get("dh");
+        if (handle == null || !handle.canConvertToInt()) {
+            return null;
+        }
+        String resolved = handleRegistry.resolve(null, handle.asInt());
+        return resolved != null ? resolved : "";
+    }
+
+    /**
+     * Bind the device on join and resume, and check that everything else comes from the bound device
+     */
+    private boolean authorize(NettyConnection connection, String destination, String deviceId) {
+        if (destination.equals("/app/join") || destination.equals("/app/resume")) {
+            if (deviceId == null || deviceId.isEmpty()) {
+                return false;
+            }
+            deviceMessenger.bindDevice(deviceId, connection);
+            return true;
+        }
+        String boundDevice = connection.getDeviceId();
+        return boundDevice != null && (deviceId == null || deviceId.equals(boundDevice));
+    }
+
+    private void route(String destination, InboundFrame frame) throws IOException {
+        JsonNode payload = frame.payload();
+        switch (destination) {
+            case "/app/join" -> webSocketController.joinRoom(frameCodec.convert(payload, JoinRoomMessage.class));
+            case "/app/resume" -> webSocketController.resumeRoom(frameCodec.convert(payload, ResumeRoomMessage.class));
+            case "/app/leave" -> webSocketController.leaveRoom(frameCodec.convert(payload, LeaveRoomMessage.class));
+            case "/app/playback" -> webSocketController.updatePlayback(frameCodec.convert(payload, PlaybackControlMessage.class));
+            case "/app/volume" -> webSocketController.updateVolume(frameCodec.convert(payload, VolumeControlMessage.class));
+            case "/app/audio-source" -> webSocketController.setAudioSource(frameCodec.convert(payload, AudioSourceMessage.class));
+            case "/app/latency" -> webSocketController.updateLatency(frameCodec.convert(payload, LatencyMessage.class));
+            case "/app/heartbeat" -> webSocketController.heartbeat(frameCodec.convert(payload, HeartbeatMessage.class));
+            case "/app/playout-position" -> webSocketController.reportPlayoutPosition(frameCodec.convert(payload, PlayoutPositionMessage.class));
+            case "/app/audio-ack" -> webSocketController.acknowledgeAudio(frameCodec.convert(payload, AudioAckMessage.class));
+            case "/app/audio-data" -> webSocketController.handleAudioData(audio(frame));
+            case "/app/zone-audio-data" -> webSocketController.handleZoneAudioData(audio(frame));
+            default -> logger.debug("Discarding message for unknown destination: {}", destination);
+        }
+    }
+
+    private AudioDataMessage audio(InboundFrame frame) throws IOException {
+        return frame.audio() != null ? frame.audio() : frameCodec.convert(frame.payload(), AudioDataMessage.class);
+    }
+}
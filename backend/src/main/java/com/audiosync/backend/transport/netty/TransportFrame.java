@@ -0,0 +1,16 @@
+package com.audiosync.backend.transport.netty;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outbound frame of the Netty transport. Mirrors the STOMP commands the clients already use:
+ * clients send SEND, SUBSCRIBE and UNSUBSCRIBE frames and receive MESSAGE frames.
+ */
+@Data
+@AllArgsConstructor
+public class TransportFrame {
+    private String type; // MESSAGE, ERROR
+    private String destination;
+    private Object payload;
+}
@@ -0,0 +1,19 @@
+package com.audiosync.backend.websocket;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Data;
+
+/**
+ * Receipt ack a listener sends for a traced audio chunk
+ */
+@Data
+public class AudioAckMessage {
+    private String roomId;
+    private String deviceId;
+    @JsonAlias("rh")
+    private Integer roomHandle; // compact alternative to roomId
+    @JsonAlias("dh")
+    private Integer deviceHandle; // compact alternative to deviceId
+    private long traceId;
+    private int processingMs; // time between receiving the chunk and sending this ack
+}
@@ -0,0 +1,16 @@
+package com.audiosync.backend.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Consecutive audio chunks sent to a listener as a single frame on /topic/audio-batch
+ */
+@Data
+@AllArgsConstructor
+public class AudioBatchMessage {
+    private String roomId;
+    private List<AudioDataMessage> chunks; // in stream order
+}
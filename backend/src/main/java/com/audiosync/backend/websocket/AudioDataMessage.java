@@ -1,32 +1,94 @@
 package com.audiosync.backend.websocket;
 
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSetter;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 @Data
 @Getter
 @Setter
 public class AudioDataMessage {
     private String roomId;
+    @JsonAlias("rh")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer roomHandle; // may be sent instead of roomId
+    private String zoneId; // set instead of roomId for chunks published to a zone
     private String deviceId;
     private byte[] audioData;
     private long timestamp;
     private int sampleRate;
     private int channels;
     private String encoding; // e.g., "PCM", "MP3", etc.
+    private boolean silent; // true for a silence marker without audio data
+    private int durationMs; // duration of the silence covered by a marker
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long traceId; // set on sampled outgoing chunks, listeners ack them on receipt
+    @JsonIgnore
+    private long receivedNanos; // System.nanoTime() at server ingest
+    @JsonIgnore
+    private PooledAudioBuffer audioBuffer; // pooled payload, used instead of audioData on the pooled ingest path
     
     public String getRoomId() {
         return roomId;
     }
     
+    public Integer getRoomHandle() {
+        return roomHandle;
+    }
+    
+    public String getZoneId() {
+        return zoneId;
+    }
+    
     public String getDeviceId() {
         return deviceId;
     }
     
+    @JsonIgnore
     public byte[] getAudioData() {
         return audioData;
     }
+
+    @JsonSetter("audioData")
+    public void setAudioData(byte[] audioData) {
+        this.audioData = audioData;
+    }
+
+    /**
+     * Payload as written to the wire, taken from the pooled buffer when there is one
+     */
+    @JsonGetter("audioData")
+    public Object getAudioPayload() {
+        return audioBuffer != null ? audioBuffer : audioData;
+    }
+
+    /**
+     * Little-endian view of the payload for absolute reads, whichever way it is held
+     */
+    @JsonIgnore
+    public ByteBuffer getPayloadBuffer() {
+        if (audioBuffer != null) {
+            return audioBuffer.buffer();
+        }
+        return audioData != null ? ByteBuffer.wrap(audioData).order(ByteOrder.LITTLE_ENDIAN) : null;
+    }
+
+    @JsonIgnore
+    public int getPayloadLength() {
+        if (audioBuffer != null) {
+            return audioBuffer.length();
+        }
+        return audioData != null ? audioData.length : 0;
+    }
     
     public long getTimestamp() {
         return timestamp;
@@ -43,4 +105,16 @@ public class AudioDataMessage {
     public String getEncoding() {
         return encoding;
     }
+    
+    public boolean isSilent() {
+        return silent;
+    }
+    
+    public int getDurationMs() {
+        return durationMs;
+    }
+
+    public Long getTraceId() {
+        return traceId;
+    }
 }
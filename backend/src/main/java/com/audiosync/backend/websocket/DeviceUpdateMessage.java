@@ -6,6 +6,7 @@ import lombok.Data;
 @Data
 public class DeviceUpdateMessage {
     private String deviceId;
+    private Integer deviceHandle;
     private String deviceName;
     private ConnectionQuality connectionQuality;
     private int latency;
@@ -7,4 +7,5 @@ public class JoinRoomMessage {
     private String roomCode;
     private String deviceId;
     private String deviceName;
+    private boolean audioBatching; // client can receive batched chunks on /topic/audio-batch
 }
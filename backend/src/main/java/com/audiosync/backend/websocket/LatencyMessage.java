@@ -1,10 +1,15 @@
 package com.audiosync.backend.websocket;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import lombok.Data;
 
 @Data
 public class LatencyMessage {
     private String roomId;
     private String deviceId;
+    @JsonAlias("rh")
+    private Integer roomHandle; // compact alternative to roomId
+    @JsonAlias("dh")
+    private Integer deviceHandle; // compact alternative to deviceId
     private int latency;
 }
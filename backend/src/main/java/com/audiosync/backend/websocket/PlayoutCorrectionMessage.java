@@ -0,0 +1,20 @@
+package com.audiosync.backend.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Correction sent to a listener whose playout drifted from the room clock. RATE asks the
+ * device to play slightly faster or slower until the drift is gone, RESYNC asks it to jump
+ * to a position because the drift is too large to correct by rate.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlayoutCorrectionMessage {
+    private String action; // "RATE" or "RESYNC"
+    private double rate; // playback rate to use, 1.0 is nominal
+    private long position; // position to jump to on RESYNC, estimated for when the message arrives
+    private int driftMs; // measured drift, positive if the device plays ahead
+}
@@ -0,0 +1,19 @@
+package com.audiosync.backend.websocket;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Data;
+
+/**
+ * Stream position a listener is playing out, reported periodically during playback
+ */
+@Data
+public class PlayoutPositionMessage {
+    private String roomId;
+    private String deviceId;
+    @JsonAlias("rh")
+    private Integer roomHandle; // compact alternative to roomId
+    @JsonAlias("dh")
+    private Integer deviceHandle; // compact alternative to deviceId
+    @JsonAlias("p")
+    private long position; // stream timestamp in ms audible on the device when the report was sent
+}
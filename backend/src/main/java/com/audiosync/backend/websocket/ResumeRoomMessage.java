@@ -0,0 +1,11 @@
+package com.audiosync.backend.websocket;
+
+import lombok.Data;
+
+@Data
+public class ResumeRoomMessage {
+    private String roomId;
+    private String deviceId;
+    private String deviceName;
+    private long lastVersion; // last room version the client applied
+}
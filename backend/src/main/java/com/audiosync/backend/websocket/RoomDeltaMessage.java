@@ -0,0 +1,15 @@
+package com.audiosync.backend.websocket;
+
+import com.audiosync.backend.model.RoomEvent;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class RoomDeltaMessage {
+    private String roomId;
+    private long fromVersion;
+    private long version;
+    private List<RoomEvent> events; // missed events, empty when a snapshot is sent
+    private RoomInfoMessage snapshot; // full room state when the client is too far behind
+}
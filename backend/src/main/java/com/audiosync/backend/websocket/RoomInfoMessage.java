@@ -3,6 +3,8 @@ package com.audiosync.backend.websocket;
 import com.audiosync.backend.model.AudioSource;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class RoomInfoMessage {
     private String roomId;
@@ -11,4 +13,8 @@ public class RoomInfoMessage {
     private long currentTimestamp;
     private int masterVolume;
     private AudioSource audioSource;
+    private List<DeviceUpdateMessage> devices; // devices in the room when the snapshot was taken
+    private long version; // room event log version this snapshot reflects
+    private int roomHandle; // short handle clients may send instead of roomId
+    private int deviceHandle; // short handle the receiving device may send instead of its deviceId
 }
@@ -1,11 +1,18 @@
 package com.audiosync.backend.websocket;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import lombok.Data;
 
 @Data
 public class VolumeControlMessage {
     private String roomId;
     private String deviceId;
+    @JsonAlias("rh")
+    private Integer roomHandle; // compact alternative to roomId
+    @JsonAlias("dh")
+    private Integer deviceHandle; // compact alternative to deviceId
     private String targetDeviceId; // null for master volume
+    @JsonAlias("th")
+    private Integer targetDeviceHandle; // compact alternative to targetDeviceId
     private int volume;
 }
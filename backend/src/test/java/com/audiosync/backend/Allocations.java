@@ -0,0 +1,22 @@
+package com.audiosync.backend;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated by the current thread, for benchmarks that check a hot path stays allocation-free
+ */
+public final class Allocations {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    public static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static long cpuNanos() {
+        return THREADS.getCurrentThreadCpuTime();
+    }
+}
@@ -0,0 +1,41 @@
+package com.audiosync.backend;
+
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.transport.PreparedMessage;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Transport that accepts every message without encoding or keeping it, for benchmarks that
+ * measure the services rather than the wire format
+ */
+@TestConfiguration
+public class NullTransportConfig {
+
+    @Bean
+    @Primary
+    public DeviceMessenger nullDeviceMessenger() {
+        PreparedMessage prepared = new PreparedMessage() {
+        };
+        return new DeviceMessenger() {
+            @Override
+            public void sendToDevice(String deviceId, String destination, Object payload) {
+            }
+
+            @Override
+            public void broadcast(String destination, Object payload) {
+            }
+
+            @Override
+            public PreparedMessage prepare(String destination, Object payload) {
+                return prepared;
+            }
+
+            @Override
+            public boolean sendPrepared(String deviceId, PreparedMessage message) {
+                return true;
+            }
+        };
+    }
+}
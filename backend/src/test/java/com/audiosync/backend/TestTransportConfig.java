@@ -0,0 +1,19 @@
+package com.audiosync.backend;
+
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Replaces the transport with one that records what is sent to each device
+ */
+@TestConfiguration
+public class TestTransportConfig {
+
+    @Bean
+    @Primary
+    public RecordingDeviceMessenger recordingDeviceMessenger() {
+        return new RecordingDeviceMessenger();
+    }
+}
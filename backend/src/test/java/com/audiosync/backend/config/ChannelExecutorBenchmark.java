@@ -0,0 +1,149 @@
+package com.audiosync.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 10k STOMP sessions in rooms of ten sending into the inbound channel, handled once on the
+ * default pooled channel executor and once on virtual threads ordered per room. Each message
+ * blocks for a millisecond, like a send to a slow client. Compares the time from send to
+ * handled and the threads each executor needs. Requires a Java 21 runtime (mvn -Pjava21).
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class ChannelExecutorBenchmark {
+    private static final int SESSIONS = 10_000;
+    private static final int SESSIONS_PER_ROOM = 10;
+    private static final int MESSAGES_PER_SESSION = 3;
+    private static final long BLOCKING_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void pooledVersusVirtualThreads() throws InterruptedException {
+        // What Spring configures for the client inbound channel when no executor is registered
+        ThreadPoolTaskExecutor pooled = new ThreadPoolTaskExecutor();
+        pooled.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        pooled.setThreadNamePrefix("pooled-inbound-");
+        pooled.initialize();
+        Result pooledResult = run(pooled, false);
+        pooled.shutdown();
+
+        Result virtualResult = run(new VirtualThreadChannelExecutor("virtual-inbound-",
+                RoomOrderingInterceptor::orderingKey), true);
+
+        System.out.println("channel executor: " + SESSIONS + " sessions, " + MESSAGES_PER_SESSION
+                + " messages each, 1 ms blocking per message");
+        pooledResult.print("pooled");
+        virtualResult.print("virtual, per room");
+        assertThat(virtualResult.outOfOrder).isZero();
+    }
+
+    private Result run(ThreadPoolTaskExecutor executor, boolean orderPerRoom) throws InterruptedException {
+        int total = SESSIONS * MESSAGES_PER_SESSION;
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        RoomOrderingInterceptor interceptor = new RoomOrderingInterceptor(null, new ObjectMapper());
+        if (orderPerRoom) {
+            channel.addInterceptor(interceptor);
+        }
+
+        long[] latencies = new long[total];
+        AtomicInteger handledCount = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicLongArray lastSeq = new AtomicLongArray(SESSIONS);
+        AtomicInteger outOfOrder = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(total);
+        channel.subscribe(message -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            LockSupport.parkNanos(BLOCKING_NANOS);
+            int session = (int) message.getHeaders().get("session");
+            long seq = (long) message.getHeaders().get("seq");
+            if (lastSeq.getAndSet(session, seq) > seq) {
+                outOfOrder.incrementAndGet();
+            }
+            latencies[handledCount.getAndIncrement()] = System.nanoTime() - (long) message.getHeaders().get("sent");
+            inFlight.decrementAndGet();
+            done.countDown();
+        });
+
+        Map<String, Object>[] attributes = sessions(interceptor);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        int threadsBefore = threads.getThreadCount();
+        long start = System.nanoTime();
+        for (int seq = 0; seq < MESSAGES_PER_SESSION; seq++) {
+            for (int session = 0; session < SESSIONS; session++) {
+                channel.send(message(session, attributes[session], "/app/heartbeat", "{}", seq));
+            }
+        }
+        assertThat(done.await(5, TimeUnit.MINUTES)).isTrue();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(latencies, elapsed, threads.getPeakThreadCount() - threadsBefore, maxInFlight.get(),
+                outOfOrder.get());
+    }
+
+    /**
+     * Session attributes of every session, each already placed in its room
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] sessions(RoomOrderingInterceptor interceptor) {
+        Map<String, Object>[] attributes = new Map[SESSIONS];
+        for (int session = 0; session < SESSIONS; session++) {
+            attributes[session] = new ConcurrentHashMap<>();
+            String body = "{\"roomId\":\"room-" + session / SESSIONS_PER_ROOM + "\"}";
+            interceptor.preSend(message(session, attributes[session], "/app/resume", body, -1), null);
+        }
+        return attributes;
+    }
+
+    private static Message<byte[]> message(int session, Map<String, Object> attributes, String destination,
+                                           String body, long seq) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("session-" + session);
+        accessor.setSessionAttributes(attributes);
+        accessor.setDestination(destination);
+        accessor.setHeader("session", session);
+        accessor.setHeader("seq", seq);
+        accessor.setHeader("sent", System.nanoTime());
+        return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private record Result(long[] sortedLatencies, long elapsedNanos, int extraPlatformThreads, int maxInFlight,
+                          int outOfOrder) {
+
+        double percentileMs(double percentile) {
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile / 100 * sortedLatencies.length) - 1);
+            return sortedLatencies[index] / 1e6;
+        }
+
+        void print(String label) {
+            System.out.printf("  %-18s p50 %8.1f ms, p99 %8.1f ms, p99.9 %8.1f ms, max %8.1f ms, total %6.2f s, "
+                            + "+%d platform threads, %d handlers in flight at most, %d out of order%n",
+                    label, percentileMs(50), percentileMs(99), percentileMs(99.9),
+                    sortedLatencies[sortedLatencies.length - 1] / 1e6, elapsedNanos / 1e9,
+                    extraPlatformThreads, maxInFlight, outOfOrder);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.audiosync.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadChannelExecutorTest {
+    private static final int ROOMS = 20;
+    private static final int MESSAGES_PER_ROOM = 200;
+
+    private static Message<byte[]> message(String sessionId, Map<String, Object> sessionAttributes,
+                                           String destination, String body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSessionAttributes(sessionAttributes);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    private static MessageHandlingRunnable task(Message<?> message, Runnable work) {
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return handled -> work.run();
+            }
+
+            @Override
+            public void run() {
+                work.run();
+            }
+        };
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void messagesOfOneRoomRunOneAtATimeInOrder() throws InterruptedException {
+        VirtualThreadChannelExecutor executor = new VirtualThreadChannelExecutor("test-",
+                message -> message.getHeaders().get("room"));
+        Map<Integer, List<Integer>> handled = new ConcurrentHashMap<>();
+        Map<Integer, AtomicBoolean> running = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(ROOMS * MESSAGES_PER_ROOM);
+
+        for (int seq = 0; seq < MESSAGES_PER_ROOM; seq++) {
+            for (int room = 0; room < ROOMS; room++) {
+                int r = room;
+                int s = seq;
+                handled.computeIfAbsent(r, key -> new CopyOnWriteArrayList<>());
+                running.computeIfAbsent(r, key -> new AtomicBoolean());
+                Message<String> message = MessageBuilder.withPayload("chunk").setHeader("room", r).build();
+                executor.execute(task(message, () -> {
+                    if (!running.get(r).compareAndSet(false, true)) {
+                        overlaps.incrementAndGet();
+                    }
+                    Thread.yield();
+                    handled.get(r).add(s);
+                    running.get(r).set(false);
+                    done.countDown();
+                }));
+            }
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlaps).hasValue(0);
+        List<Integer> expected = new ArrayList<>();
+        for (int seq = 0; seq < MESSAGES_PER_ROOM; seq++) {
+            expected.add(seq);
+        }
+        handled.values().forEach(order -> assertThat(order).isEqualTo(expected));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void messagesWithoutAKeyRunConcurrently() throws InterruptedException {
+        VirtualThreadChannelExecutor executor = new VirtualThreadChannelExecutor("test-");
+        CountDownLatch second = new CountDownLatch(1);
+        CountDownLatch first = new CountDownLatch(1);
+        Message<String> message = MessageBuilder.withPayload("chunk").build();
+
+        executor.execute(task(message, () -> {
+            try {
+                // Only returns if the second task runs while this one is still running
+                if (second.await(5, TimeUnit.SECONDS)) {
+                    first.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        executor.execute(task(message, second::countDown));
+
+        assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void sessionsAreOrderedByTheRoomTheyAreIn() {
+        RoomOrderingInterceptor interceptor = new RoomOrderingInterceptor(null, new ObjectMapper());
+        Map<String, Object> listener = new ConcurrentHashMap<>();
+        Map<String, Object> host = new ConcurrentHashMap<>();
+
+        Message<byte[]> heartbeat = message("listener-session", listener, "/app/heartbeat", "{}");
+        interceptor.preSend(heartbeat, null);
+        assertThat(RoomOrderingInterceptor.orderingKey(heartbeat)).isEqualTo("listener-session");
+
+        Message<byte[]> resume = message("listener-session", listener, "/app/resume", "{\"roomId\":\"room-1\"}");
+        interceptor.preSend(resume, null);
+        assertThat(RoomOrderingInterceptor.orderingKey(resume)).isEqualTo("room-1");
+
+        // A host that created its room over REST is placed by its first message naming the room
+        Message<byte[]> audio = message("host-session", host, "/app/audio-data", "{\"roomId\":\"room-1\",\"timestamp\":0}");
+        interceptor.preSend(audio, null);
+        assertThat(RoomOrderingInterceptor.orderingKey(audio)).isEqualTo("room-1");
+
+        Message<byte[]> leave = message("listener-session", listener, "/app/leave", "{\"roomId\":\"room-1\"}");
+        interceptor.preSend(leave, null);
+        Message<byte[]> afterLeave = message("listener-session", listener, "/app/heartbeat", "{\"roomId\":\"room-1\"}");
+        interceptor.preSend(afterLeave, null);
+        assertThat(RoomOrderingInterceptor.orderingKey(afterLeave)).isEqualTo("listener-session");
+    }
+}
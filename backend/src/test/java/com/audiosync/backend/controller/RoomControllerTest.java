@@ -0,0 +1,131 @@
+package com.audiosync.backend.controller;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.RoomSnapshot;
+import com.audiosync.backend.service.RoomService;
+import com.audiosync.backend.service.RoomSnapshotService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestTransportConfig.class)
+class RoomControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RoomSnapshotService snapshotService;
+
+    @Test
+    void pollWithTheCurrentETagIsNotModifiedUntilTheRoomChanges() throws Exception {
+        Room room = roomService.createRoom("host");
+        String eTag = mockMvc.perform(get("/api/rooms/{roomId}", room.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/rooms/{roomId}", room.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/rooms/code/{code}", room.getCode()).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        roomService.setMasterVolume(room.getId(), 50);
+        String changed = mockMvc.perform(get("/api/rooms/{roomId}", room.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(changed).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void roomsAtTheSameVersionHaveTheirOwnETags() throws Exception {
+        Room first = roomService.createRoom("host");
+        Room second = roomService.createRoom("host");
+        assertThat(first.getVersion()).isEqualTo(second.getVersion());
+
+        String eTag = mockMvc.perform(get("/api/rooms/{roomId}", first.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+        String secondETag = mockMvc.perform(get("/api/rooms/{roomId}", second.getId()).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(secondETag).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void snapshotIsReusedUntilTheRoomChanges() {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+
+        RoomSnapshot snapshot = snapshotService.snapshot(room);
+        assertThat(snapshotService.snapshot(room)).isSameAs(snapshot);
+
+        roomService.setMasterVolume(room.getId(), 50);
+        RoomSnapshot changed = snapshotService.snapshot(room);
+        assertThat(changed).isNotSameAs(snapshot);
+        assertThat(changed.version()).isEqualTo(room.getVersion());
+    }
+
+    @Test
+    void eventStreamStartsWithRoomAndDevicesThenSendsChanges() throws Exception {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/rooms/{roomId}/events", room.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        String snapshot = awaitContent(response, "event:SNAPSHOT");
+        assertThat(snapshot).contains("\"room\":{\"id\":\"" + room.getId() + "\"")
+                .contains("\"devices\":[{\"id\":\"listener\"");
+
+        roomService.setMasterVolume(room.getId(), 50);
+        assertThat(awaitContent(response, "id:" + room.getVersion())).contains("event:MASTER_VOLUME");
+
+        roomService.removeRoom(room.getId());
+        awaitContent(response, "event:REMOVED");
+    }
+
+    @Test
+    void reconnectingStreamOnlyGetsTheMissedEvents() throws Exception {
+        Room room = roomService.createRoom("host");
+        long lastSeen = room.getVersion();
+        roomService.setMasterVolume(room.getId(), 50);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/rooms/{roomId}/events", room.getId())
+                        .header("Last-Event-ID", lastSeen))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        String events = awaitContent(response, "event:MASTER_VOLUME");
+        assertThat(events).doesNotContain("event:SNAPSHOT");
+        roomService.removeRoom(room.getId());
+    }
+
+    /**
+     * Wait until the streamed response contains a text, the stream is sent from the dispatcher threads
+     */
+    private static String awaitContent(MockHttpServletResponse response, String text) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = response.getContentAsString();
+        while (!content.contains(text) && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            content = response.getContentAsString();
+        }
+        assertThat(content).contains(text);
+        return content;
+    }
+}
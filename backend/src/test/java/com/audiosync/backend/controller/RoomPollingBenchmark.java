@@ -0,0 +1,128 @@
+package com.audiosync.backend.controller;
+
+import com.audiosync.backend.NullTransportConfig;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.RoomDTO;
+import com.audiosync.backend.service.RoomService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Dashboards polling a room of 50 listeners that changes once every 100 polls. Compares the
+ * CPU time per poll of building and serializing the DTO on every request, as before the
+ * snapshots, with serving the cached snapshot, and with a conditional poll answered by a 304.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import({NullTransportConfig.class, RoomPollingBenchmark.RebuildingController.class})
+class RoomPollingBenchmark {
+    private static final int LISTENERS = 50;
+    private static final int POLLS = 20_000;
+    private static final int POLLS_PER_CHANGE = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RoomService roomService;
+
+    private long sink;
+
+    @Test
+    void cpuPerPoll() throws Exception {
+        Room room = roomService.createRoom("host");
+        for (int i = 0; i < LISTENERS; i++) {
+            roomService.addDeviceToRoom(room.getId(), "listener-" + i, "Listener " + i);
+        }
+
+        // A warm-up round, then the measured one
+        for (int round = 0; round < 2; round++) {
+            long rebuild = cpuNanos(() -> {
+                for (int i = 0; i < POLLS; i++) {
+                    changeEvery(room, i);
+                    sink += mockMvc.perform(get("/benchmark/rooms/{roomId}", room.getId()))
+                            .andReturn().getResponse().getContentLength();
+                }
+            });
+            long snapshot = cpuNanos(() -> {
+                for (int i = 0; i < POLLS; i++) {
+                    changeEvery(room, i);
+                    sink += mockMvc.perform(get("/api/rooms/{roomId}", room.getId()))
+                            .andReturn().getResponse().getContentLength();
+                }
+            });
+            String[] eTag = {null};
+            long[] notModified = {0};
+            long conditional = cpuNanos(() -> {
+                for (int i = 0; i < POLLS; i++) {
+                    changeEvery(room, i);
+                    var response = mockMvc.perform(eTag[0] == null ? get("/api/rooms/{roomId}", room.getId())
+                                    : get("/api/rooms/{roomId}", room.getId()).header("If-None-Match", eTag[0]))
+                            .andReturn().getResponse();
+                    if (response.getStatus() == 304) {
+                        notModified[0]++;
+                    }
+                    eTag[0] = response.getHeader("ETag");
+                }
+            });
+
+            if (round == 1) {
+                System.out.printf("room polling: %d listeners, %d polls, a change every %d polls%n",
+                        LISTENERS, POLLS, POLLS_PER_CHANGE);
+                System.out.printf("  rebuild per poll   %8.1f µs CPU per poll%n", rebuild / 1e3 / POLLS);
+                System.out.printf("  cached snapshot    %8.1f µs CPU per poll%n", snapshot / 1e3 / POLLS);
+                System.out.printf("  If-None-Match      %8.1f µs CPU per poll, %d of %d not modified%n",
+                        conditional / 1e3 / POLLS, notModified[0], POLLS);
+                assertThat(notModified[0]).isGreaterThan(POLLS * 9L / 10);
+            }
+        }
+        assertThat(sink).isPositive();
+    }
+
+    private void changeEvery(Room room, int poll) {
+        if (poll % POLLS_PER_CHANGE == 0) {
+            roomService.setMasterVolume(room.getId(), poll / POLLS_PER_CHANGE % 100);
+        }
+    }
+
+    private static long cpuNanos(Polls polls) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = threads.getCurrentThreadCpuTime();
+        polls.run();
+        return threads.getCurrentThreadCpuTime() - start;
+    }
+
+    /**
+     * The room view as it was served before snapshots, a DTO built and serialized per request
+     */
+    @RestController
+    static class RebuildingController {
+        @Autowired
+        private RoomService roomService;
+
+        @GetMapping("/benchmark/rooms/{roomId}")
+        ResponseEntity<RoomDTO> getRoomById(@PathVariable String roomId) {
+            return roomService.getRoomById(roomId)
+                    .map(room -> ResponseEntity.ok(RoomDTO.fromRoom(room)))
+                    .orElse(ResponseEntity.notFound().build());
+        }
+    }
+
+    private interface Polls {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,68 @@
+package com.audiosync.backend.controller;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.service.RoomService;
+import com.audiosync.backend.websocket.VolumeControlMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestTransportConfig.class)
+class WebSocketControllerTest {
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private WebSocketController webSocketController;
+
+    private Room room;
+    private Device host;
+    private Device listener;
+
+    @BeforeEach
+    void createRoom() {
+        room = roomService.createRoom("host");
+        host = roomService.addDeviceToRoom(room.getId(), "host", "Host");
+        listener = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+    }
+
+    private VolumeControlMessage volume(Integer deviceHandle, Integer targetHandle, int volume) {
+        VolumeControlMessage message = new VolumeControlMessage();
+        message.setRoomHandle(room.getHandle());
+        message.setDeviceHandle(deviceHandle);
+        message.setTargetDeviceHandle(targetHandle);
+        message.setVolume(volume);
+        return message;
+    }
+
+    @Test
+    void volumeChangeByHandleReachesTheTargetDevice() {
+        webSocketController.updateVolume(volume(host.getHandle(), listener.getHandle(), 30));
+
+        assertThat(listener.getVolume()).isEqualTo(30);
+    }
+
+    @Test
+    void unknownDeviceHandleIsDiscarded() {
+        webSocketController.updateVolume(volume(0x7fff_0000, null, 5));
+
+        assertThat(room.getMasterVolume()).isEqualTo(80);
+    }
+
+    @Test
+    void staleTargetHandleIsNotTakenForMasterVolume() {
+        int staleHandle = listener.getHandle();
+        roomService.removeDeviceFromRoom(room.getId(), "listener");
+
+        webSocketController.updateVolume(volume(host.getHandle(), staleHandle, 5));
+
+        assertThat(room.getMasterVolume()).isEqualTo(80);
+    }
+}
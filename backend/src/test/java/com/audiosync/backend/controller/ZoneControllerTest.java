@@ -0,0 +1,49 @@
+package com.audiosync.backend.controller;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.Zone;
+import com.audiosync.backend.service.RoomService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestTransportConfig.class)
+class ZoneControllerTest {
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private ZoneController zoneController;
+
+    @Test
+    void roomsJoinAndLeaveAZone() {
+        Zone zone = zoneController.createZone("hall", "source").getBody();
+        Room room = roomService.createRoom("host");
+
+        ResponseEntity<Zone> added = zoneController.addRoom(zone.getId(), room.getId());
+        assertThat(added.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(added.getBody().getRoomIds()).containsExactly(room.getId());
+
+        assertThat(zoneController.removeRoom(zone.getId(), room.getId()).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(zoneController.getZoneById(zone.getId()).getBody().getRoomIds()).isEmpty();
+    }
+
+    @Test
+    void unknownZonesAndRoomsAreNotFound() {
+        Zone zone = zoneController.createZone("hall", "source").getBody();
+
+        assertThat(zoneController.addRoom(zone.getId(), "no-such-room").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(zoneController.addRoom("no-such-zone", roomService.createRoom("host").getId()).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+
+        zoneController.deleteZone(zone.getId());
+        assertThat(zoneController.getZoneById(zone.getId()).getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
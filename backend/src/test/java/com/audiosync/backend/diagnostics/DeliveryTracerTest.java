@@ -0,0 +1,126 @@
+package com.audiosync.backend.diagnostics;
+
+import com.audiosync.backend.model.DeliveryStage;
+import com.audiosync.backend.model.DeliveryStats;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.LatencyBreakdown;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class DeliveryTracerTest {
+    private final RecordingDeviceMessenger messenger = new RecordingDeviceMessenger();
+    private final DeliveryTracer tracer = new DeliveryTracer(messenger, 1.0, 5000);
+    private Room room;
+    private Device listener;
+
+    @BeforeEach
+    void setUp() {
+        room = new Room("host");
+        room.addDevice(new Device("host", "Host"));
+        listener = new Device("listener", "Listener");
+        room.addDevice(listener);
+    }
+
+    /**
+     * A chunk stamped with wall-clock capture time, received by the server a while ago
+     */
+    private static AudioDataMessage chunk(long captureAgoMs, long receivedAgoMs) {
+        AudioDataMessage message = new AudioDataMessage();
+        message.setTimestamp(System.currentTimeMillis() - captureAgoMs);
+        message.setReceivedNanos(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(receivedAgoMs));
+        return message;
+    }
+
+    private void deliver(ChunkTrace trace, Device device) {
+        tracer.written(trace, device, tracer.dispatched(trace, device));
+    }
+
+    private Map<DeliveryStage, DeliveryStats.StageSummary> stages(Device device) {
+        return device.getDeliveryStats().summarize();
+    }
+
+    @Test
+    void everyStageOfATracedChunkLandsInTheBreakdown() {
+        ChunkTrace trace = tracer.start(room, chunk(50, 20));
+        deliver(trace, listener);
+        tracer.acknowledged(listener, trace.getId(), 0);
+
+        LatencyBreakdown breakdown = tracer.breakdown(room);
+        assertThat(breakdown.getStages()).containsOnlyKeys(DeliveryStage.values());
+        breakdown.getStages().values().forEach(summary -> assertThat(summary.count()).isEqualTo(1));
+        assertThat(breakdown.getStages().get(DeliveryStage.CAPTURE_TO_INGEST).p50Ms()).isCloseTo(30, within(5.0));
+        assertThat(breakdown.getStages().get(DeliveryStage.INGEST_TO_DISPATCH).p50Ms()).isGreaterThanOrEqualTo(20);
+        // The host is a source, not a listener
+        assertThat(breakdown.getDevices()).singleElement()
+                .satisfies(device -> assertThat(device.getDeviceId()).isEqualTo("listener"));
+    }
+
+    @Test
+    void streamRelativeTimestampsHaveNoCaptureStage() {
+        AudioDataMessage message = chunk(0, 0);
+        message.setTimestamp(20);
+        deliver(tracer.start(room, message), listener);
+
+        assertThat(stages(listener)).doesNotContainKey(DeliveryStage.CAPTURE_TO_INGEST)
+                .containsKeys(DeliveryStage.INGEST_TO_DISPATCH, DeliveryStage.DISPATCH_TO_WRITE);
+    }
+
+    @Test
+    void acksForUnknownRepeatedOrExpiredTracesAreIgnored() {
+        DeliveryTracer expiring = new DeliveryTracer(messenger, 1.0, 100);
+        ChunkTrace acked = expiring.start(room, chunk(0, 0));
+        deliver(acked, listener);
+        ChunkTrace expired = expiring.start(room, chunk(0, 1000));
+        expiring.written(expired, listener, expiring.dispatched(expired, listener));
+
+        expiring.acknowledged(listener, acked.getId() + 1000, 0);
+        expiring.acknowledged(listener, acked.getId(), 0);
+        expiring.acknowledged(listener, acked.getId(), 0);
+        expiring.expireTraces();
+        expiring.acknowledged(listener, expired.getId(), 0);
+
+        assertThat(stages(listener).get(DeliveryStage.WRITE_TO_ACK).count()).isEqualTo(1);
+    }
+
+    @Test
+    void processingTimeIsTakenOffTheAckAndClamped() {
+        ChunkTrace negative = tracer.start(room, chunk(0, 0));
+        deliver(negative, listener);
+        tracer.acknowledged(listener, negative.getId(), -10_000);
+        assertThat(stages(listener).get(DeliveryStage.WRITE_TO_ACK).maxMs()).isLessThan(1000);
+
+        // More processing than the whole round trip can't make the ack negative
+        Device other = new Device("other", "Other");
+        room.addDevice(other);
+        ChunkTrace slow = tracer.start(room, chunk(0, 0));
+        deliver(slow, other);
+        tracer.acknowledged(other, slow.getId(), 10_000);
+        assertThat(stages(other).get(DeliveryStage.WRITE_TO_ACK).maxMs()).isZero();
+    }
+
+    @Test
+    void tracedRoomsAreReportedToTheirHostOnce() {
+        deliver(tracer.start(room, chunk(0, 0)), listener);
+
+        tracer.publishReports();
+        tracer.publishReports();
+
+        assertThat(messenger.sentTo("host", "/topic/latency")).singleElement()
+                .satisfies(report -> assertThat(report.path("roomId").asText()).isEqualTo(room.getId()));
+    }
+
+    @Test
+    void nothingIsTracedWithoutASampleRate() {
+        DeliveryTracer disabled = new DeliveryTracer(messenger, 0, 5000);
+        assertThat(disabled.start(room, chunk(0, 0))).isNull();
+    }
+}
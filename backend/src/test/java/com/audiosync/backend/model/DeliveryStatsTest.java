@@ -0,0 +1,51 @@
+package com.audiosync.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryStatsTest {
+
+    private static DeliveryStats recorded(int capacity, int from, int to) {
+        DeliveryStats stats = new DeliveryStats(capacity);
+        for (int millis = from; millis <= to; millis++) {
+            stats.record(DeliveryStage.DISPATCH_TO_WRITE, millis);
+        }
+        return stats;
+    }
+
+    @Test
+    void percentilesOfTheRecordedSamples() {
+        Map<DeliveryStage, DeliveryStats.StageSummary> summary = recorded(256, 1, 100).summarize();
+
+        assertThat(summary).containsOnlyKeys(DeliveryStage.DISPATCH_TO_WRITE);
+        assertThat(summary.get(DeliveryStage.DISPATCH_TO_WRITE))
+                .isEqualTo(new DeliveryStats.StageSummary(100, 50, 95, 100));
+    }
+
+    @Test
+    void onlyTheMostRecentSamplesAreKeptButAllAreCounted() {
+        DeliveryStats.StageSummary summary = recorded(10, 1, 25).summarize().get(DeliveryStage.DISPATCH_TO_WRITE);
+
+        // 16 to 25 are still in the ring
+        assertThat(summary).isEqualTo(new DeliveryStats.StageSummary(25, 20, 25, 25));
+    }
+
+    @Test
+    void devicesAreMergedSkippingStagesTheyNeverRecorded() {
+        DeliveryStats first = recorded(256, 1, 10);
+        DeliveryStats second = recorded(256, 11, 20);
+        second.record(DeliveryStage.WRITE_TO_ACK, 3.14159);
+
+        Map<DeliveryStage, DeliveryStats.StageSummary> summary = DeliveryStats.summarize(List.of(first, second));
+
+        assertThat(summary.get(DeliveryStage.DISPATCH_TO_WRITE))
+                .isEqualTo(new DeliveryStats.StageSummary(20, 10, 19, 20));
+        assertThat(summary.get(DeliveryStage.WRITE_TO_ACK))
+                .isEqualTo(new DeliveryStats.StageSummary(1, 3.14, 3.14, 3.14));
+        assertThat(DeliveryStats.summarize(List.of(new DeliveryStats(256)))).isEmpty();
+    }
+}
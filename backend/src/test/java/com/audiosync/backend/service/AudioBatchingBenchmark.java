@@ -0,0 +1,177 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.transport.PreparedMessage;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A minute of 10 ms chunks to listeners on poor connections, once unbatched and once with
+ * batching. Compares the frames each listener gets, the bytes JSON-encoded, and the CPU time
+ * per chunk of fanning out and encoding. The transport's socket write per frame isn't
+ * included, the frame count stands for it, so the in-process CPU is expected to be about even.
+ */
+@SpringBootTest(properties = {
+        "audio.ingest.host.bytes-per-second=1000000000",
+        "audio.ingest.host.messages-per-second=1000000",
+        "audio.ingest.room.bytes-per-second=1000000000",
+        "audio.ingest.room.messages-per-second=1000000",
+        "audio.tracing.sample-rate=0"
+})
+@Import(AudioBatchingBenchmark.CountingTransportConfig.class)
+class AudioBatchingBenchmark {
+    private static final int LISTENERS = 20;
+    private static final int CHUNK_MS = 10;
+    private static final int CHUNKS = 60_000 / CHUNK_MS;
+    private static final int CHUNK_BYTES = 48000 * 2 * 2 * CHUNK_MS / 1000;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private AudioBatchingService batchingService;
+
+    @Autowired
+    private AudioBufferPool bufferPool;
+
+    @Autowired
+    private CountingMessenger messenger;
+
+    @Test
+    void framesAndCpuOfATenMillisecondTrace() throws IOException {
+        byte[] pcm = new byte[CHUNK_BYTES];
+        for (int i = 0; i < pcm.length; i += 2) {
+            short sample = (short) (Math.sin(i / 20.0) * 8000);
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+
+        // A warm-up round, then the measured one
+        for (int round = 0; round < 2; round++) {
+            Result unbatched = run(pcm, false);
+            Result batched = run(pcm, true);
+            if (round == 1) {
+                System.out.printf("batching: %d listeners, %d chunks of %d ms%n", LISTENERS, CHUNKS, CHUNK_MS);
+                unbatched.print("unbatched");
+                batched.print("batched");
+                assertThat(batched.frames * 10).isLessThan(unbatched.frames);
+            }
+        }
+    }
+
+    private Result run(byte[] pcm, boolean batching) throws IOException {
+        Room room = roomService.createRoom("host");
+        for (int i = 0; i < LISTENERS; i++) {
+            String deviceId = room.getId() + "-listener-" + i;
+            roomService.addDeviceToRoom(room.getId(), deviceId, "Listener " + i).setAudioBatching(batching);
+            // A poor connection, whose buffer is large enough to batch
+            roomService.updateDeviceLatency(room.getId(), deviceId, 200);
+        }
+
+        long framesBefore = messenger.frames.get();
+        long encodedBefore = messenger.encodedBytes.get();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        for (int k = 0; k < CHUNKS; k++) {
+            ingest(room, pcm, (long) k * CHUNK_MS);
+        }
+        room.getDevices().forEach(device -> batchingService.flush(device.getId()));
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        roomService.removeRoom(room.getId());
+        return new Result(messenger.frames.get() - framesBefore, messenger.encodedBytes.get() - encodedBefore, cpu);
+    }
+
+    private void ingest(Room room, byte[] pcm, long timestamp) throws IOException {
+        PooledAudioBuffer buffer = bufferPool.acquire(pcm.length);
+        buffer.write(pcm, 0, pcm.length);
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId(room.getId());
+        message.setDeviceId(room.getHostId());
+        message.setTimestamp(timestamp);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        message.setAudioBuffer(buffer);
+        try {
+            audioStreamingService.processAudioData(message);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private record Result(long frames, long encodedBytes, long cpuNanos) {
+
+        void print(String label) {
+            System.out.printf("  %-10s %6.1f frames per listener per second, %6.1f µs CPU per chunk, %8.1f KB encoded%n",
+                    label, frames / (double) LISTENERS / (CHUNKS * CHUNK_MS / 1000.0),
+                    cpuNanos / 1e3 / CHUNKS, encodedBytes / 1024.0);
+        }
+    }
+
+    /**
+     * Transport that JSON-encodes each prepared message, as the STOMP transport does, and
+     * counts the frames handed to devices
+     */
+    static class CountingMessenger implements DeviceMessenger {
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final AtomicLong frames = new AtomicLong();
+        private final AtomicLong encodedBytes = new AtomicLong();
+
+        @Override
+        public void sendToDevice(String deviceId, String destination, Object payload) {
+        }
+
+        @Override
+        public void broadcast(String destination, Object payload) {
+        }
+
+        @Override
+        public PreparedMessage prepare(String destination, Object payload) {
+            try {
+                encodedBytes.addAndGet(objectMapper.writeValueAsBytes(payload).length);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new PreparedMessage() {
+            };
+        }
+
+        @Override
+        public boolean sendPrepared(String deviceId, PreparedMessage message) {
+            frames.incrementAndGet();
+            return true;
+        }
+    }
+
+    @TestConfiguration
+    static class CountingTransportConfig {
+
+        @Bean
+        @Primary
+        public CountingMessenger countingDeviceMessenger() {
+            return new CountingMessenger();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "audio.ingest.host.bytes-per-second=100000000",
+        "audio.ingest.host.messages-per-second=100000",
+        "audio.ingest.room.bytes-per-second=100000000",
+        "audio.ingest.room.messages-per-second=100000",
+        "audio.tracing.sample-rate=0"
+})
+@Import(TestTransportConfig.class)
+class AudioBatchingTest {
+    private static final int CHUNK_BYTES = 48000 * 2 * 2 / 50; // 20 ms of 48 kHz stereo
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private AudioBatchingService batchingService;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    @BeforeEach
+    void clear() {
+        messenger.clear();
+    }
+
+    private void ingest(Room room, String deviceId, long timestamp, short level) {
+        byte[] pcm = new byte[CHUNK_BYTES];
+        for (int i = 0; i < pcm.length; i += 2) {
+            pcm[i] = (byte) level;
+            pcm[i + 1] = (byte) (level >> 8);
+        }
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId(room.getId());
+        message.setDeviceId(deviceId);
+        message.setTimestamp(timestamp);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        message.setAudioData(pcm);
+        audioStreamingService.processAudioData(message);
+    }
+
+    @Test
+    void batchedListenersInAMixingRoomGetEveryMix() {
+        Room room = roomService.createRoom("host");
+        roomService.setMixingEnabled(room.getId(), true);
+        roomService.setSourceGain(room.getId(), "guest", 100);
+        roomService.addDeviceToRoom(room.getId(), "batched", "Batched").setAudioBatching(true);
+        // A poor connection gets a buffer large enough to batch
+        roomService.updateDeviceLatency(room.getId(), "batched", 200);
+
+        int chunks = 20;
+        for (int k = 0; k < chunks; k++) {
+            ingest(room, "host", k * 20L, (short) (1000 + k * 100));
+            ingest(room, "guest", k * 20L, (short) 500);
+        }
+
+        // The last slot is mixed once its jitter window expires, then sent by the next flush
+        List<String> mixes = awaitBatchedChunks("batched", chunks);
+        // Every slot mixed a different host level, so no two batched chunks may carry the same
+        // audio. The first host chunk goes out alone, before the guest counts as active.
+        assertThat(mixes).hasSizeGreaterThanOrEqualTo(chunks).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void windowIsAFractionOfTheBufferUpToTheCap() {
+        Room room = roomService.createRoom("host");
+        Device device = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        device.setAudioBatching(true);
+
+        device.setBufferSize(249);
+        assertThat(batchingService.windowMs(device)).isZero();
+        device.setBufferSize(400);
+        assertThat(batchingService.windowMs(device)).isEqualTo(100);
+        device.setBufferSize(1000);
+        assertThat(batchingService.windowMs(device)).isEqualTo(200);
+
+        device.setAudioBatching(false);
+        assertThat(batchingService.windowMs(device)).isZero();
+    }
+
+    @Test
+    void listenersWithASmallBufferGetEveryChunkImmediately() {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "small", "Small").setAudioBatching(true);
+        // A good connection keeps the buffer below the batching minimum
+        roomService.updateDeviceLatency(room.getId(), "small", 10);
+
+        for (int k = 0; k < 10; k++) {
+            ingest(room, "host", k * 20L, (short) 1000);
+            assertThat(messenger.sentTo("small", "/topic/audio")).hasSize(k + 1);
+        }
+        assertThat(messenger.sentTo("small", "/topic/audio-batch")).isEmpty();
+    }
+
+    @Test
+    void batchingSendsAWindowOfChunksPerFrame() {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "direct", "Direct");
+        roomService.updateDeviceLatency(room.getId(), "direct", 200);
+        roomService.addDeviceToRoom(room.getId(), "batched", "Batched").setAudioBatching(true);
+        roomService.updateDeviceLatency(room.getId(), "batched", 200);
+
+        int chunks = 50;
+        for (int k = 0; k < chunks; k++) {
+            ingest(room, "host", k * 20L, (short) 1000);
+        }
+        Device batched = room.getDevice("batched");
+        int window = batchingService.windowMs(batched);
+        assertThat(window).isEqualTo(200);
+        batchingService.flush("batched");
+
+        assertThat(messenger.sentTo("direct", "/topic/audio")).hasSize(chunks);
+        List<JsonNode> frames = messenger.sentTo("batched", "/topic/audio-batch");
+        int batchedChunks = frames.stream().mapToInt(frame -> frame.path("chunks").size()).sum();
+        assertThat(batchedChunks).isEqualTo(chunks);
+        // A full window of 20 ms chunks per frame, plus the remainder
+        assertThat(frames).hasSizeLessThanOrEqualTo((int) Math.ceil(chunks * 20.0 / window));
+        assertThat(messenger.sentTo("batched", "/topic/audio")).isEmpty();
+    }
+
+    /**
+     * Flush a device's batch until it got a number of chunks, bounded by a deadline
+     */
+    private List<String> awaitBatchedChunks(String deviceId, int count) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<String> chunks = new ArrayList<>();
+        while (chunks.size() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            batchingService.flush(deviceId);
+            chunks.clear();
+            for (JsonNode frame : messenger.sentTo(deviceId, "/topic/audio-batch")) {
+                for (JsonNode chunk : frame.path("chunks")) {
+                    chunks.add(chunk.path("audioData").asText());
+                }
+            }
+        }
+        return chunks;
+    }
+}
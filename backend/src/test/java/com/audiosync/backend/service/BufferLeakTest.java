@@ -0,0 +1,146 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every pooled payload taken on ingest must go back to the pool once it was fanned out,
+ * batched and flushed, replaced by a silence marker, mixed, or discarded with a session
+ */
+@SpringBootTest(properties = {
+        "audio.ingest.host.bytes-per-second=100000000",
+        "audio.ingest.host.messages-per-second=100000",
+        "audio.ingest.room.bytes-per-second=100000000",
+        "audio.ingest.room.messages-per-second=100000",
+        "audio.tracing.sample-rate=0"
+})
+@Import(TestTransportConfig.class)
+class BufferLeakTest {
+    private static final int CHUNK_BYTES = 48000 * 2 * 2 / 50; // 20 ms of 48 kHz stereo
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private AudioBatchingService batchingService;
+
+    @Autowired
+    private AudioBufferPool bufferPool;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    private long outstandingBefore;
+
+    @BeforeEach
+    void clear() {
+        messenger.clear();
+        outstandingBefore = bufferPool.outstanding();
+    }
+
+    /**
+     * Ingest a chunk the way the Netty transport does: decode into a pooled buffer, hand it
+     * over, then drop the frame's own reference
+     */
+    private void ingest(Room room, long timestamp, short amplitude) throws IOException {
+        byte[] pcm = new byte[CHUNK_BYTES];
+        for (int i = 0; i < pcm.length; i += 2) {
+            short sample = (short) (Math.sin(i / 20.0) * amplitude);
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+        PooledAudioBuffer buffer = bufferPool.acquire(pcm.length);
+        buffer.write(pcm, 0, pcm.length);
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId(room.getId());
+        message.setDeviceId(room.getHostId());
+        message.setTimestamp(timestamp);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        message.setAudioBuffer(buffer);
+        try {
+            audioStreamingService.processAudioData(message);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Add a listener on a poor connection, whose large buffer makes it batch
+     */
+    private void addBatchingListener(Room room, String deviceId) {
+        roomService.addDeviceToRoom(room.getId(), deviceId, deviceId).setAudioBatching(true);
+        roomService.updateDeviceLatency(room.getId(), deviceId, 200);
+    }
+
+    private void assertEverythingReleased() {
+        assertThat(bufferPool.outstanding()).isEqualTo(outstandingBefore);
+        assertThat(messenger.unreleased()).isZero();
+    }
+
+    @Test
+    void fanOutBatchingAndSilenceReleaseEveryBuffer() throws Exception {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "direct", "Direct");
+        addBatchingListener(room, "batched");
+        addBatchingListener(room, "unreachable");
+        messenger.disconnect("unreachable");
+
+        for (int k = 0; k < 50; k++) {
+            ingest(room, k * 20L, k % 10 < 7 ? (short) 8000 : (short) 0);
+        }
+        batchingService.flush("batched");
+        batchingService.flush("unreachable");
+
+        assertThat(messenger.sentTo("direct", "/topic/audio")).hasSize(50);
+        assertThat(messenger.sentTo("batched", "/topic/audio-batch")).isNotEmpty();
+        assertEverythingReleased();
+    }
+
+    @Test
+    void discardedBatchesReleaseTheirBuffers() throws Exception {
+        Room room = roomService.createRoom("host");
+        addBatchingListener(room, "batched");
+
+        ingest(room, 0, (short) 8000);
+        ingest(room, 20, (short) 8000);
+        roomService.removeDeviceFromRoom(room.getId(), "batched");
+
+        assertThat(messenger.sentTo("batched", "/topic/audio-batch")).isEmpty();
+        assertEverythingReleased();
+    }
+
+    @Test
+    void mixedChunksReleaseTheSourceBuffers() throws Exception {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        addBatchingListener(room, "batched");
+        roomService.setMixingEnabled(room.getId(), true);
+
+        for (int k = 0; k < 20; k++) {
+            ingest(room, k * 20L, (short) 8000);
+        }
+        roomService.setMixingEnabled(room.getId(), false);
+        batchingService.flush("batched");
+
+        assertThat(messenger.sentTo("listener", "/topic/audio")).isNotEmpty();
+        assertEverythingReleased();
+    }
+}
@@ -0,0 +1,123 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestTransportConfig.class)
+class DeviceSessionTest {
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HandleRegistry handleRegistry;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    @BeforeEach
+    void clear() {
+        messenger.clear();
+    }
+
+    @Test
+    void removingADeviceThatIsNotInTheRoomKeepsItsSession() {
+        Room room = roomService.createRoom("host");
+        Room other = roomService.createRoom("other-host");
+        Device device = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+
+        assertThat(roomService.removeDeviceFromRoom(other.getId(), "listener")).isFalse();
+        assertThat(handleRegistry.resolve(null, device.getHandle())).isEqualTo("listener");
+        assertThat(messenger.sentTo("other-host", "/topic/devices")).isEmpty();
+    }
+
+    @Test
+    void expiredSessionIsRemovedAndTheHostIsTold() {
+        Room room = roomService.createRoom("host");
+        Device device = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        device.setLastHeartbeat(0);
+
+        roomService.cleanupInactiveDevices();
+
+        assertThat(room.getDevice("listener")).isNull();
+        assertThat(handleRegistry.resolve(null, device.getHandle())).isNull();
+        List<JsonNode> updates = messenger.sentTo("host", "/topic/devices");
+        assertThat(updates).isNotEmpty();
+        assertThat(updates.get(updates.size() - 1).path("action").asText()).isEqualTo("LEAVE");
+    }
+
+    @Test
+    void rejoinReplacesTheHandleOfTheEarlierSession() {
+        Room room = roomService.createRoom("host");
+        Device first = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        int handlesBefore = handleRegistry.size();
+
+        Device second = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+
+        assertThat(room.getDevices()).containsExactly(second);
+        assertThat(roomService.getDevice(room, null, first.getHandle())).isNull();
+        assertThat(roomService.getDevice(room, null, second.getHandle())).isSameAs(second);
+        assertThat(handleRegistry.size()).isEqualTo(handlesBefore);
+    }
+
+    @Test
+    void handlesResolveThroughTheHandleTableAndStayInTheirRoom() {
+        Room room = roomService.createRoom("host");
+        Room other = roomService.createRoom("other-host");
+        Device device = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        Device stranger = roomService.addDeviceToRoom(other.getId(), "stranger", "Stranger");
+
+        // The handle wins over an ID that doesn't match it
+        assertThat(roomService.getRoom(other.getId(), room.getHandle())).contains(room);
+        assertThat(roomService.getDevice(room, "stranger", device.getHandle())).isSameAs(device);
+        assertThat(roomService.getDevice(room, null, stranger.getHandle())).isNull();
+
+        roomService.removeRoom(other.getId());
+        assertThat(roomService.getRoom(null, other.getHandle())).isEmpty();
+        assertThat(roomService.getRoom(room.getId(), other.getHandle())).contains(room);
+    }
+
+    @Test
+    void heartbeatKeepsTheRecalculatedBuffer() {
+        Room room = roomService.createRoom("host");
+        Device device = roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        device.setBufferSize(520);
+
+        roomService.updateDeviceHeartbeat(room.getId(), "listener");
+
+        assertThat(device.getBufferSize()).isEqualTo(520);
+    }
+
+    @Test
+    void joinLeaveChurnReturnsToBaseline() {
+        Room room = roomService.createRoom("host");
+        int handlesBefore = handleRegistry.size();
+
+        for (int i = 0; i < 20_000; i++) {
+            String deviceId = "churn-" + i;
+            Device device = roomService.addDeviceToRoom(room.getId(), deviceId, "Churn");
+            roomService.updateDeviceHeartbeat(room.getId(), deviceId);
+            if (i % 2 == 0) {
+                roomService.removeDeviceFromRoom(room.getId(), deviceId);
+            } else {
+                device.setLastHeartbeat(0);
+                roomService.cleanupInactiveDevices();
+            }
+        }
+
+        assertThat(room.getDevices()).isEmpty();
+        assertThat(handleRegistry.size()).isEqualTo(handlesBefore);
+    }
+}
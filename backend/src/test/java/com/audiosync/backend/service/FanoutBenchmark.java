@@ -0,0 +1,180 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.Allocations;
+import com.audiosync.backend.NullTransportConfig;
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.Zone;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Heap allocated per ingested chunk on the fan-out path, from pooled ingest to the
+ * per-listener sends, and the dispatch latency of a zone spread over many rooms, with a
+ * transport that accepts every message without encoding it.
+ * What the transport itself allocates is covered by FrameCodecBenchmark.
+ */
+@SpringBootTest(properties = {
+        "audio.ingest.host.bytes-per-second=1000000000",
+        "audio.ingest.host.messages-per-second=1000000",
+        "audio.ingest.room.bytes-per-second=1000000000",
+        "audio.ingest.room.messages-per-second=1000000",
+        "audio.tracing.sample-rate=0"
+})
+@Import(NullTransportConfig.class)
+class FanoutBenchmark {
+    private static final int LISTENERS = 50;
+    private static final int CHUNKS = 20_000;
+    private static final int CHUNK_BYTES = 48000 * 2 * 2 / 50;
+    private static final int ZONE_ROOMS = 40;
+    private static final int ZONE_CHUNKS = 2_000;
+    private static final long ZONE_SPACING_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private ZoneService zoneService;
+
+    @Autowired
+    private AudioBufferPool bufferPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audio.zone.dispatch-threads}")
+    private int dispatchThreads;
+
+    @Test
+    void allocationPerChunk() throws IOException {
+        Room room = roomService.createRoom("host");
+        for (int i = 0; i < LISTENERS; i++) {
+            roomService.addDeviceToRoom(room.getId(), "listener-" + i, "Listener " + i);
+        }
+        byte[] pcm = pcm();
+
+        for (int k = 0; k < CHUNKS / 4; k++) {
+            ingest(room, pcm, k * 20L); // warm-up
+        }
+        long allocatedBefore = Allocations.allocatedBytes();
+        long start = System.nanoTime();
+        for (int k = 0; k < CHUNKS; k++) {
+            ingest(room, pcm, (CHUNKS + k) * 20L);
+        }
+        long nanos = System.nanoTime() - start;
+        double perChunk = (Allocations.allocatedBytes() - allocatedBefore) / (double) CHUNKS;
+
+        System.out.printf("fanout: %d listeners, %.1f us per chunk, %.0f bytes allocated per chunk, %.1f per listener%n",
+                LISTENERS, nanos / 1e3 / CHUNKS, perChunk, perChunk / LISTENERS);
+        assertThat(perChunk / LISTENERS).isLessThan(8);
+    }
+
+    /**
+     * Time from publishing a zone chunk until each dispatch shard has handed it to all of its
+     * rooms, with chunks published faster than real time to keep the shards busy
+     */
+    @Test
+    void zoneDispatchLatency() throws IOException {
+        Zone zone = zoneService.createZone("hall", "source");
+        for (int r = 0; r < ZONE_ROOMS; r++) {
+            Room room = roomService.createRoom("zone-host-" + r);
+            for (int i = 0; i < LISTENERS / 5; i++) {
+                roomService.addDeviceToRoom(room.getId(), "zone-listener-" + r + "-" + i, "Listener " + i);
+            }
+            zoneService.addRoomToZone(zone.getId(), room.getId());
+        }
+        byte[] pcm = pcm();
+        Timer dispatch = meterRegistry.timer("audio.zone.dispatch");
+        Counter dropped = meterRegistry.counter("audio.zone.dropped");
+
+        for (int k = 0; k < ZONE_CHUNKS / 4; k++) {
+            publish(zone, pcm, k * 20L); // warm-up
+            LockSupport.parkNanos(ZONE_SPACING_NANOS);
+        }
+        long countBefore = dispatch.count();
+        double totalBefore = dispatch.totalTime(TimeUnit.MICROSECONDS);
+        double droppedBefore = dropped.count();
+        for (int k = 0; k < ZONE_CHUNKS; k++) {
+            publish(zone, pcm, (ZONE_CHUNKS + k) * 20L);
+            LockSupport.parkNanos(ZONE_SPACING_NANOS);
+        }
+        // Every shard either dispatches or drops each chunk
+        long expected = (long) ZONE_CHUNKS * dispatchThreads;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dispatch.count() - countBefore + (long) (dropped.count() - droppedBefore) < expected
+                && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        long dispatches = dispatch.count() - countBefore;
+        double meanMicros = (dispatch.totalTime(TimeUnit.MICROSECONDS) - totalBefore) / dispatches;
+
+        System.out.printf("zone: %d rooms of %d listeners, one chunk every %d us, %.1f us mean dispatch latency, "
+                        + "%.1f us max, %.0f chunks dropped%n",
+                ZONE_ROOMS, LISTENERS / 5, ZONE_SPACING_NANOS / 1000, meanMicros,
+                dispatch.max(TimeUnit.MICROSECONDS), dropped.count() - droppedBefore);
+        assertThat(dispatches).isPositive();
+    }
+
+    private static byte[] pcm() {
+        byte[] pcm = new byte[CHUNK_BYTES];
+        for (int i = 0; i < pcm.length; i += 2) {
+            short sample = (short) (Math.sin(i / 20.0) * 8000);
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+
+    private void publish(Zone zone, byte[] pcm, long timestamp) throws IOException {
+        PooledAudioBuffer buffer = bufferPool.acquire(pcm.length);
+        buffer.write(pcm, 0, pcm.length);
+        AudioDataMessage message = new AudioDataMessage();
+        message.setZoneId(zone.getId());
+        message.setDeviceId(zone.getSourceDeviceId());
+        message.setTimestamp(timestamp);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        message.setAudioBuffer(buffer);
+        try {
+            zoneService.processZoneAudio(message);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void ingest(Room room, byte[] pcm, long timestamp) throws IOException {
+        PooledAudioBuffer buffer = bufferPool.acquire(pcm.length);
+        buffer.write(pcm, 0, pcm.length);
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId(room.getId());
+        message.setDeviceId(room.getHostId());
+        message.setTimestamp(timestamp);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        message.setAudioBuffer(buffer);
+        try {
+            audioStreamingService.processAudioData(message);
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.NullTransportConfig;
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.Room;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One million device sessions spread over a thousand rooms: the retained heap per session,
+ * and the cost of finding a room and device by handle compared to by ID.
+ */
+@SpringBootTest
+@Import(NullTransportConfig.class)
+class HandleLookupBenchmark {
+    private static final int ROOMS = 1_000;
+    private static final int DEVICES_PER_ROOM = 1_000;
+    private static final int DEVICES = ROOMS * DEVICES_PER_ROOM;
+    private static final int LOOKUPS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HandleRegistry handleRegistry;
+
+    private long sink;
+
+    @Test
+    void lookupByHandleAtAMillionDevices() {
+        int handlesBefore = handleRegistry.size();
+        long heapBefore = liveHeap();
+
+        Room[] rooms = new Room[ROOMS];
+        String[] roomIds = new String[DEVICES];
+        String[] deviceIds = new String[DEVICES];
+        int[] roomHandles = new int[DEVICES];
+        int[] deviceHandles = new int[DEVICES];
+        long arrays = liveHeap() - heapBefore;
+        for (int r = 0; r < ROOMS; r++) {
+            rooms[r] = roomService.createRoom("host-" + r);
+            for (int d = 0; d < DEVICES_PER_ROOM; d++) {
+                int i = r * DEVICES_PER_ROOM + d;
+                Device device = roomService.addDeviceToRoom(rooms[r].getId(), UUID.randomUUID().toString(), "Listener");
+                roomIds[i] = rooms[r].getId();
+                deviceIds[i] = device.getId();
+                roomHandles[i] = rooms[r].getHandle();
+                deviceHandles[i] = device.getHandle();
+            }
+        }
+        // The ID strings are kept by the benchmark as well, so they count towards the sessions
+        double bytesPerDevice = (double) (liveHeap() - heapBefore - arrays) / DEVICES;
+        System.out.printf("handles: %,d devices in %,d rooms, %.0f bytes retained per device%n",
+                DEVICES, ROOMS, bytesPerDevice);
+
+        int[] order = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            order[i] = ThreadLocalRandom.current().nextInt(DEVICES);
+        }
+        // Lookups are dominated by cache misses on the sessions, so compare the best round of each
+        double byHandle = Double.MAX_VALUE;
+        double byId = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            double handleNanos = lookupNanos(order, roomHandles, deviceHandles, null, null);
+            double idNanos = lookupNanos(order, null, null, roomIds, deviceIds);
+            System.out.printf("handles: round %d, %.1f ns by handle, %.1f ns by ID%n", round, handleNanos, idNanos);
+            byHandle = Math.min(byHandle, handleNanos);
+            byId = Math.min(byId, idNanos);
+        }
+
+        for (Room room : rooms) {
+            roomService.removeRoom(room.getId());
+        }
+        assertThat(handleRegistry.size()).isEqualTo(handlesBefore);
+        assertThat(sink).isNotZero();
+        assertThat(bytesPerDevice).isLessThan(1_000);
+        assertThat(byHandle).isLessThan(byId);
+    }
+
+    private double lookupNanos(int[] order, int[] roomHandles, int[] deviceHandles, String[] roomIds, String[] deviceIds) {
+        long start = System.nanoTime();
+        for (int i : order) {
+            Room room = roomIds == null
+                    ? roomService.getRoom(null, roomHandles[i]).orElseThrow()
+                    : roomService.getRoom(roomIds[i], null).orElseThrow();
+            Device device = deviceIds == null
+                    ? roomService.getDevice(room, null, deviceHandles[i])
+                    : roomService.getDevice(room, deviceIds[i], null);
+            sink += device.getHandle();
+        }
+        return (double) (System.nanoTime() - start) / order.length;
+    }
+
+    private static long liveHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
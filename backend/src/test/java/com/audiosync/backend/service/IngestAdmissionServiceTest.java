@@ -0,0 +1,107 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestAdmissionServiceTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Admission with slow refill, so the burst capacity decides what gets through
+     */
+    private IngestAdmissionService admission(double hostMessages, double hostBytes, double roomMessages, double roomBytes) {
+        return new IngestAdmissionService(meterRegistry, hostBytes, hostMessages, roomBytes, roomMessages,
+                1, 1000, 512, 8000, 192000, 8, "PCM,WAV,MP3,AAC,OPUS,WEBM");
+    }
+
+    private static AudioDataMessage chunk(String deviceId, String encoding, int bytes) {
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId("room");
+        message.setDeviceId(deviceId);
+        message.setEncoding(encoding);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setAudioData(new byte[bytes]);
+        return message;
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter("audio.ingest.rejected", "reason", reason).count();
+    }
+
+    @Test
+    void acceptsTheWavChunksOfTheBundledClient() {
+        IngestAdmissionService admission = admission(100, 1_000_000, 100, 1_000_000);
+
+        AudioDataMessage message = chunk("host", "wav", 54);
+        message.setSampleRate(44100);
+        assertThat(admission.admit(message)).isTrue();
+    }
+
+    @Test
+    void rejectsUnknownFormats() {
+        IngestAdmissionService admission = admission(100, 1_000_000, 100, 1_000_000);
+
+        assertThat(admission.admit(chunk("host", "FLAC", 100))).isFalse();
+        AudioDataMessage badRate = chunk("host", "PCM", 100);
+        badRate.setSampleRate(1_000_000);
+        assertThat(admission.admit(badRate)).isFalse();
+        assertThat(rejected("format")).isEqualTo(2);
+    }
+
+    @Test
+    void boundsChunkSizeByEncoding() {
+        IngestAdmissionService admission = admission(100, 10_000_000, 100, 10_000_000);
+
+        // One second of 16-bit stereo at 48 kHz
+        assertThat(admission.maxChunkBytes("PCM", 48000, 2)).isEqualTo(192_000);
+        assertThat(admission.admit(chunk("host", "PCM", 192_000))).isTrue();
+        assertThat(admission.admit(chunk("host", "PCM", 192_002))).isFalse();
+
+        // One second at 512 kbps, far below the PCM bound
+        assertThat(admission.maxChunkBytes("OPUS", 48000, 2)).isEqualTo(64_000);
+        assertThat(admission.admit(chunk("host", "OPUS", 64_000))).isTrue();
+        assertThat(admission.admit(chunk("host", "OPUS", 100_000))).isFalse();
+
+        assertThat(admission.maxChunkBytes("WAV", 48000, 2)).isGreaterThan(384_000);
+        assertThat(rejected("size")).isEqualTo(2);
+    }
+
+    @Test
+    void rejectedChunksDontUseUpTokensOfEarlierBuckets() {
+        // The room allows fewer bytes than the host, so large chunks fail at the room bucket
+        IngestAdmissionService admission = admission(10, 1_000_000, 10, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(admission.admit(chunk("host", "PCM", 2000))).isFalse();
+        }
+        assertThat(rejected("room-rate")).isEqualTo(10);
+
+        // Had the host message bucket been charged for those, these would be rejected as host-rate
+        for (int i = 0; i < 10; i++) {
+            assertThat(admission.admit(chunk("host", "PCM", 100))).isTrue();
+        }
+        assertThat(rejected("host-rate")).isZero();
+    }
+
+    @Test
+    void hostRateRejectionLeavesTheRoomBudgetToOtherSources() {
+        IngestAdmissionService admission = admission(5, 1_000_000, 10, 1_000_000);
+
+        int admitted = 0;
+        for (int i = 0; i < 50; i++) {
+            if (admission.admit(chunk("abusive", "PCM", 100))) {
+                admitted++;
+            }
+        }
+        assertThat(admitted).isEqualTo(5);
+        assertThat(rejected("host-rate")).isEqualTo(45);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(admission.admit(chunk("other", "PCM", 100))).isTrue();
+        }
+    }
+}
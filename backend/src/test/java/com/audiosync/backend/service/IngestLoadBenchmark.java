@@ -0,0 +1,137 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One host flooding its room with maximum-size chunks from two threads, while another
+ * room streams in real time. Compares the quiet room's ingest latency with and without
+ * the flood; the admission counts themselves are covered by IngestLoadTest.
+ */
+@SpringBootTest(properties = "audio.tracing.sample-rate=0")
+@Import(TestTransportConfig.class)
+class IngestLoadBenchmark {
+    private static final int CHUNK_MS = 20;
+    private static final int CHUNKS = 100;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private IngestAdmissionService admissionService;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void abusiveHostDoesNotSlowDownOtherRooms() throws InterruptedException {
+        Room quiet = roomService.createRoom("quiet-host");
+        roomService.addDeviceToRoom(quiet.getId(), "quiet-listener", "quiet-listener");
+        roomService.setSilenceDetection(quiet.getId(), 0, 0);
+        Room flooded = roomService.createRoom("abusive-host");
+        for (int i = 0; i < 20; i++) {
+            roomService.addDeviceToRoom(flooded.getId(), "flooded-listener-" + i, "listener");
+        }
+        try {
+            double[] baseline = streamQuietRoom(quiet, 0);
+            assertThat(messenger.sentTo("quiet-listener", "/topic/audio")).hasSize(CHUNKS);
+
+            AtomicBoolean flooding = new AtomicBoolean(true);
+            AtomicLong sent = new AtomicLong();
+            int maxChunk = admissionService.maxChunkBytes("PCM", 48000, 2);
+            List<Thread> abusers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                Thread abuser = new Thread(() -> {
+                    byte[] payload = new byte[maxChunk];
+                    Arrays.fill(payload, (byte) 0x40);
+                    while (flooding.get()) {
+                        audioStreamingService.processAudioData(chunk(flooded, "abusive-host", payload, sent.get()));
+                        sent.incrementAndGet();
+                    }
+                });
+                abuser.start();
+                abusers.add(abuser);
+            }
+            long start = System.nanoTime();
+            double[] flood = streamQuietRoom(quiet, CHUNKS);
+            flooding.set(false);
+            for (Thread abuser : abusers) {
+                abuser.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            double rejected = meterRegistry.counter("audio.ingest.rejected", "reason", "host-rate").count();
+            long admitted = sent.get() - (long) rejected;
+            System.out.printf("Quiet room ingest p50/p99 %.3f/%.3f ms alone, %.3f/%.3f ms next to a flood "
+                            + "of %d chunks (%d admitted) over %.1f s%n",
+                    percentile(baseline, 50), percentile(baseline, 99), percentile(flood, 50), percentile(flood, 99),
+                    sent.get(), admitted, seconds);
+
+            assertThat(messenger.sentTo("quiet-listener", "/topic/audio")).hasSize(2 * CHUNKS);
+            // The flood gets its burst and the refill rate, nothing more
+            assertThat((double) admitted).isLessThanOrEqualTo(2 * 100 + 100 * seconds + 1);
+            assertThat(percentile(flood, 99)).isLessThan(Math.max(10, 5 * percentile(baseline, 99)));
+        } finally {
+            roomService.removeRoom(quiet.getId());
+            roomService.removeRoom(flooded.getId());
+            messenger.clear();
+        }
+    }
+
+    /**
+     * Stream one room in real time and time each ingest call
+     */
+    private double[] streamQuietRoom(Room room, int firstChunk) {
+        byte[] payload = new byte[48000 * 2 * 2 * CHUNK_MS / 1000];
+        Arrays.fill(payload, (byte) 0x40);
+        double[] ingestMs = new double[CHUNKS];
+        long origin = System.nanoTime();
+        for (int k = 0; k < CHUNKS; k++) {
+            LockSupport.parkNanos(origin + (long) k * CHUNK_MS * 1_000_000 - System.nanoTime());
+            long before = System.nanoTime();
+            audioStreamingService.processAudioData(chunk(room, "quiet-host", payload, firstChunk + k));
+            ingestMs[k] = (System.nanoTime() - before) / 1e6;
+        }
+        return ingestMs;
+    }
+
+    private static AudioDataMessage chunk(Room room, String hostId, byte[] payload, long sequence) {
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId(room.getId());
+        message.setDeviceId(hostId);
+        message.setAudioData(payload);
+        message.setTimestamp(sequence * CHUNK_MS);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        return message;
+    }
+
+    private static double percentile(double[] values, double percentile) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile / 100 * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,114 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One host flooding its room with maximum-size chunks, interleaved with another room
+ * streaming normally. The flood has to be cut at admission, per host and room, while every
+ * chunk of the other room gets through. Latency under the flood is measured by
+ * IngestLoadBenchmark.
+ */
+@SpringBootTest(properties = {
+        "audio.ingest.host.bytes-per-second=" + IngestLoadTest.HOST_BYTES_PER_SECOND,
+        "audio.ingest.burst-seconds=2",
+        "audio.tracing.sample-rate=0"
+})
+@Import(TestTransportConfig.class)
+class IngestLoadTest {
+    static final int HOST_BYTES_PER_SECOND = 524288;
+    private static final int CHUNK_MS = 20;
+    private static final int FLOOD_CHUNKS = 200;
+    private static final int QUIET_CHUNKS = FLOOD_CHUNKS / 4;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private IngestAdmissionService admissionService;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void abusiveHostIsCutAtAdmissionWithoutTouchingOtherRooms() {
+        Room quiet = roomService.createRoom("quiet-host");
+        roomService.addDeviceToRoom(quiet.getId(), "quiet-listener", "quiet-listener");
+        roomService.setSilenceDetection(quiet.getId(), 0, 0);
+        Room flooded = roomService.createRoom("abusive-host");
+        for (int i = 0; i < 5; i++) {
+            roomService.addDeviceToRoom(flooded.getId(), "flooded-listener-" + i, "listener");
+        }
+        roomService.setSilenceDetection(flooded.getId(), 0, 0);
+        try {
+            int maxChunk = admissionService.maxChunkBytes("PCM", 48000, 2);
+            byte[] floodPayload = new byte[maxChunk];
+            Arrays.fill(floodPayload, (byte) 0x40);
+            byte[] quietPayload = new byte[48000 * 2 * 2 * CHUNK_MS / 1000];
+            Arrays.fill(quietPayload, (byte) 0x40);
+            double hostRateBefore = rejected("host-rate");
+            double roomRateBefore = rejected("room-rate");
+
+            long start = System.nanoTime();
+            for (int k = 0; k < FLOOD_CHUNKS; k++) {
+                audioStreamingService.processAudioData(chunk(flooded, "abusive-host", floodPayload, k));
+                if (k % 4 == 0) {
+                    audioStreamingService.processAudioData(chunk(quiet, "quiet-host", quietPayload, k / 4));
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            // Every quiet chunk is admitted and nothing of it is counted as rejected
+            assertThat(messenger.sentTo("quiet-listener", "/topic/audio")).hasSize(QUIET_CHUNKS);
+            assertThat(rejected("room-rate")).isEqualTo(roomRateBefore);
+
+            // The flood gets the host's byte burst and its refill, every other chunk is rejected
+            int admitted = messenger.sentTo("flooded-listener-0", "/topic/audio").size();
+            double burstChunks = 2.0 * HOST_BYTES_PER_SECOND / maxChunk;
+            double refillChunks = (double) HOST_BYTES_PER_SECOND / maxChunk * seconds;
+            assertThat(admitted).isGreaterThanOrEqualTo((int) burstChunks)
+                    .isLessThanOrEqualTo((int) Math.ceil(burstChunks + refillChunks));
+            assertThat(rejected("host-rate") - hostRateBefore).isEqualTo(FLOOD_CHUNKS - admitted);
+            for (int i = 1; i < 5; i++) {
+                assertThat(messenger.sentTo("flooded-listener-" + i, "/topic/audio")).hasSize(admitted);
+            }
+        } finally {
+            roomService.removeRoom(quiet.getId());
+            roomService.removeRoom(flooded.getId());
+            messenger.clear();
+        }
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter("audio.ingest.rejected", "reason", reason).count();
+    }
+
+    private static AudioDataMessage chunk(Room room, String hostId, byte[] payload, long sequence) {
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId(room.getId());
+        message.setDeviceId(hostId);
+        message.setAudioData(payload);
+        message.setTimestamp(sequence * CHUNK_MS);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        return message;
+    }
+}
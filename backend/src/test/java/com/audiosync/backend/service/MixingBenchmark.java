@@ -0,0 +1,102 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.Allocations;
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mixing cost per room and time spent in the jitter buffer, for 48 kHz stereo sources
+ * sending 20 ms pooled chunks, as on the ingest path, with a little timestamp jitter
+ */
+class MixingBenchmark {
+    private static final int ROOMS = 200;
+    private static final int SOURCES = 4;
+    private static final int CHUNKS = 500; // 10 seconds of audio per source
+    private static final int CHUNK_BYTES = 48000 * 2 * 2 / 50;
+
+    private long mixedChunks;
+    private final Consumer<AudioDataMessage> emit = mixed -> mixedChunks++;
+
+    @Test
+    void mixingCostPerRoom() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Timer latencyTimer = Timer.builder("audio.mix.latency").publishPercentiles(0.5, 0.99).register(registry);
+        RoomMixer[] mixers = new RoomMixer[ROOMS];
+        for (int r = 0; r < ROOMS; r++) {
+            mixers[r] = new RoomMixer("room-" + r, "mix", 40, latencyTimer);
+        }
+        AudioBufferPool pool = new AudioBufferPool(registry, false, 64, false);
+        AudioDataMessage[] chunks = new AudioDataMessage[SOURCES];
+        for (int s = 0; s < SOURCES; s++) {
+            chunks[s] = chunk(pool, "source-" + s);
+        }
+
+        run(mixers, chunks, 50); // warm-up
+        long allocatedBefore = Allocations.allocatedBytes();
+        long cpuBefore = Allocations.cpuNanos();
+        long chunksBefore = mixedChunks;
+        run(mixers, chunks, CHUNKS);
+        long cpuNanos = Allocations.cpuNanos() - cpuBefore;
+        long allocated = Allocations.allocatedBytes() - allocatedBefore;
+        long submitted = (long) ROOMS * SOURCES * CHUNKS;
+
+        double audioSeconds = CHUNKS / 50.0;
+        double cpuPercentPerRoom = cpuNanos / (double) ROOMS / (audioSeconds * 1e9) * 100;
+        HistogramSnapshot latency = latencyTimer.takeSnapshot();
+        System.out.printf("mixing: %d rooms x %d sources, %.2f us CPU per chunk, %.3f%% of a core per room%n",
+                ROOMS, SOURCES, cpuNanos / 1e3 / submitted, cpuPercentPerRoom);
+        for (ValueAtPercentile percentile : latency.percentileValues()) {
+            System.out.printf("mixing: jitter buffer p%.0f %.2f ms%n", percentile.percentile() * 100,
+                    percentile.value(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("mixing: %d mixed chunks, %.1f bytes allocated per submitted chunk%n",
+                mixedChunks - chunksBefore, allocated / (double) submitted);
+
+        assertThat(mixedChunks - chunksBefore).isGreaterThanOrEqualTo((long) ROOMS * (CHUNKS - 16));
+        // Steady state reuses slots and the output buffer
+        assertThat(allocated / (double) submitted).isLessThan(1);
+    }
+
+    private void run(RoomMixer[] mixers, AudioDataMessage[] chunks, int count) {
+        for (int c = 0; c < count; c++) {
+            for (RoomMixer mixer : mixers) {
+                for (int s = 0; s < chunks.length; s++) {
+                    AudioDataMessage chunk = chunks[s];
+                    chunk.setTimestamp(1000 + c * 20L + s % 3);
+                    mixer.submit(chunk, 80, emit);
+                }
+            }
+        }
+    }
+
+    private static AudioDataMessage chunk(AudioBufferPool pool, String deviceId) throws IOException {
+        byte[] pcm = new byte[CHUNK_BYTES];
+        for (int i = 0; i < pcm.length; i += 2) {
+            short sample = (short) (Math.sin(i / 40.0) * 8000);
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId("room");
+        message.setDeviceId(deviceId);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        PooledAudioBuffer buffer = pool.acquire(pcm.length);
+        buffer.write(pcm, 0, pcm.length);
+        message.setAudioBuffer(buffer);
+        return message;
+    }
+}
@@ -0,0 +1,111 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.RoomEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomEventStreamTest {
+    private static final int MAX_LAG = 16;
+
+    // Drains only run when the test says so, like a pool whose threads are stuck in sends
+    private final Queue<Runnable> drains = new ArrayDeque<>();
+    private SimpleMeterRegistry meterRegistry;
+    private RoomEventStream eventStream;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        meterRegistry = new SimpleMeterRegistry();
+        eventStream = new RoomEventStream(new RoomSnapshotService(objectMapper, meterRegistry, 1000),
+                objectMapper, meterRegistry, 60_000, MAX_LAG, drains::add);
+    }
+
+    private void runDrains() {
+        Runnable drain;
+        while ((drain = drains.poll()) != null) {
+            drain.run();
+        }
+    }
+
+    private void change(Room room) {
+        room.getEventLog().append(RoomEventType.MASTER_VOLUME, null, room.getVersion());
+        eventStream.publish(room);
+    }
+
+    @Test
+    void subscriberThatKeepsUpStaysSubscribed() {
+        Room room = new Room("host");
+        eventStream.subscribe(room, null);
+
+        for (int i = 0; i < MAX_LAG * 10; i++) {
+            change(room);
+            runDrains();
+        }
+
+        assertThat(eventStream.subscriberCount(room.getId())).isEqualTo(1);
+        assertThat(meterRegistry.counter("room.events.evicted").count()).isZero();
+    }
+
+    @Test
+    void subscriberStillBeingSentToIsEvictedOnceItFallsBehind() {
+        Room room = new Room("host");
+        eventStream.subscribe(room, null);
+        eventStream.subscribe(room, null);
+        runDrains();
+
+        for (int i = 0; i < MAX_LAG; i++) {
+            change(room);
+        }
+        assertThat(eventStream.subscriberCount(room.getId())).isEqualTo(2);
+        assertThat(drains).hasSize(2);
+
+        change(room);
+        assertThat(eventStream.subscriberCount(room.getId())).isZero();
+        assertThat(meterRegistry.counter("room.events.evicted").count()).isEqualTo(2);
+
+        // The evicted streams are completed by their drains without another drain being queued
+        runDrains();
+        assertThat(drains).isEmpty();
+    }
+
+    @Test
+    void reconnectTooFarBehindStartsFromASnapshot() {
+        Room room = new Room("host");
+        for (int i = 0; i < MAX_LAG * 2; i++) {
+            change(room);
+        }
+
+        eventStream.subscribe(room, room.getVersion() - MAX_LAG);
+        runDrains();
+        assertThat(snapshotsBuilt()).isZero();
+
+        eventStream.subscribe(room, 1L);
+        runDrains();
+        assertThat(snapshotsBuilt()).isEqualTo(1);
+        assertThat(eventStream.subscriberCount(room.getId())).isEqualTo(2);
+    }
+
+    private double snapshotsBuilt() {
+        return meterRegistry.get("room.snapshots").tag("result", "built").counter().count();
+    }
+
+    @Test
+    void closedRoomHasNoSubscribersLeft() {
+        Room room = new Room("host");
+        eventStream.subscribe(room, null);
+        change(room);
+
+        eventStream.closeRoom(room.getId());
+        assertThat(eventStream.subscriberCount(room.getId())).isZero();
+        runDrains();
+        assertThat(drains).isEmpty();
+    }
+}
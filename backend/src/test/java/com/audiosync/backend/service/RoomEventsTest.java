@@ -0,0 +1,96 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.controller.WebSocketController;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.ResumeRoomMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(TestTransportConfig.class)
+class RoomEventsTest {
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private WebSocketController webSocketController;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    @BeforeEach
+    void clear() {
+        messenger.clear();
+    }
+
+    @Test
+    void concurrentChangesAreBroadcastInVersionOrder() throws InterruptedException {
+        Room room = roomService.createRoom("host");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    roomService.setMasterVolume(room.getId(), (i + offset) % 100);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Long> versions = messenger.getBroadcasts().stream()
+                .filter(sent -> sent.destination().equals("/topic/room/" + room.getId() + "/events"))
+                .map(sent -> sent.payload().path("version").asLong())
+                .toList();
+        assertThat(versions).hasSize(800).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void latencyReportsOnlyVersionQualityChanges() {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        long version = room.getVersion();
+
+        roomService.updateDeviceLatency(room.getId(), "listener", 10);
+        roomService.updateDeviceLatency(room.getId(), "listener", 30);
+        assertThat(room.getVersion()).isEqualTo(version);
+
+        roomService.updateDeviceLatency(room.getId(), "listener", 200);
+        assertThat(room.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void resumeWithoutTheMissedEventsSendsASnapshotWithDevices() {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "listener", "Listener");
+        roomService.addDeviceToRoom(room.getId(), "other", "Other");
+
+        ResumeRoomMessage resume = new ResumeRoomMessage();
+        resume.setRoomId(room.getId());
+        resume.setDeviceId("listener");
+        resume.setLastVersion(room.getVersion() + 10); // from before a restart, not in the log
+        webSocketController.resumeRoom(resume);
+
+        List<JsonNode> deltas = messenger.sentTo("listener", "/topic/room/delta");
+        assertThat(deltas).hasSize(1);
+        JsonNode snapshot = deltas.get(0).path("snapshot");
+        assertThat(snapshot.path("version").asLong()).isEqualTo(room.getVersion());
+        List<String> devices = new ArrayList<>();
+        snapshot.path("devices").forEach(device -> devices.add(device.path("deviceId").asText()));
+        assertThat(devices).containsExactlyInAnyOrder("listener", "other");
+    }
+}
@@ -0,0 +1,127 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.websocket.AudioDataMessage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomMixerTest {
+    private static final int JITTER_MS = 40;
+
+    private final Timer latencyTimer = Timer.builder("audio.mix.latency").register(new SimpleMeterRegistry());
+    private final RoomMixer mixer = new RoomMixer("room", "mix", JITTER_MS, latencyTimer);
+    private final List<short[]> emitted = new ArrayList<>();
+    private final Consumer<AudioDataMessage> emit = mixed -> emitted.add(samples(mixed));
+
+    /**
+     * 20 ms of 16-bit mono at 8 kHz with every sample set to value
+     */
+    static AudioDataMessage chunk(String deviceId, long timestamp, short value) {
+        ByteBuffer pcm = ByteBuffer.allocate(320).order(ByteOrder.LITTLE_ENDIAN);
+        while (pcm.hasRemaining()) {
+            pcm.putShort(value);
+        }
+        AudioDataMessage message = new AudioDataMessage();
+        message.setRoomId("room");
+        message.setDeviceId(deviceId);
+        message.setTimestamp(timestamp);
+        message.setSampleRate(8000);
+        message.setChannels(1);
+        message.setEncoding("PCM");
+        message.setAudioData(pcm.array());
+        return message;
+    }
+
+    private static short[] samples(AudioDataMessage mixed) {
+        ByteBuffer pcm = mixed.getPayloadBuffer();
+        short[] samples = new short[mixed.getPayloadLength() / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = pcm.getShort(i * 2);
+        }
+        return samples;
+    }
+
+    /**
+     * A source only counts as active once it sent something, so let a and b send one chunk first
+     */
+    private void startSources() {
+        mixer.submit(chunk("a", 980, (short) 0), 100, emit);
+        mixer.submit(chunk("b", 980, (short) 0), 100, emit);
+        mixer.flush(emit);
+        emitted.clear();
+    }
+
+    @Test
+    void mixesAlignedChunksOnceEverySourceContributed() {
+        startSources();
+        mixer.submit(chunk("a", 1000, (short) 100), 100, emit);
+        assertThat(emitted).isEmpty();
+        mixer.submit(chunk("b", 1000, (short) 200), 50, emit);
+        mixer.submit(chunk("a", 1020, (short) 100), 100, emit);
+        mixer.submit(chunk("b", 1021, (short) 200), 50, emit);
+
+        assertThat(emitted).hasSize(2);
+        assertThat(emitted.get(0)[0]).isEqualTo((short) 200);
+        assertThat(emitted.get(1)[0]).isEqualTo((short) 200);
+    }
+
+    @Test
+    void flushesPendingSlotsAfterTheJitterWindowWhenSourcesPause() {
+        startSources();
+        mixer.submit(chunk("a", 1000, (short) 100), 100, emit);
+        mixer.submit(chunk("b", 1000, (short) 100), 100, emit);
+        // Source b pauses, so a's next chunk waits for it
+        mixer.submit(chunk("a", 1020, (short) 100), 100, emit);
+        assertThat(emitted).hasSize(1);
+
+        mixer.flushExpired(System.nanoTime());
+        assertThat(emitted).hasSize(1);
+
+        mixer.flushExpired(System.nanoTime() + (JITTER_MS + 1) * 1_000_000L);
+        assertThat(emitted).hasSize(2);
+        assertThat(emitted.get(1)[0]).isEqualTo((short) 100);
+    }
+
+    @Test
+    void removedSourcesFreeTheirIndex() {
+        for (int i = 0; i < 32; i++) {
+            mixer.submit(chunk("source-" + i, 1000 + i * 20L, (short) 1), 100, emit);
+        }
+        assertThat(mixer.sourceCount()).isEqualTo(32);
+        assertThat(mixer.submit(chunk("late", 2000, (short) 1), 100, emit)).isFalse();
+
+        mixer.removeSource("source-0");
+        assertThat(mixer.sourceCount()).isEqualTo(31);
+        assertThat(mixer.submit(chunk("late", 2000, (short) 1), 100, emit)).isTrue();
+    }
+
+    @Test
+    void evictsSourcesThatStoppedSending() {
+        mixer.submit(chunk("a", 1000, (short) 1), 100, emit);
+        mixer.submit(chunk("b", 1000, (short) 1), 100, emit);
+
+        mixer.flushExpired(System.nanoTime() + 31_000_000_000L);
+        assertThat(mixer.sourceCount()).isZero();
+    }
+
+    @Test
+    void removingTheMissingSourceCompletesPendingSlots() {
+        startSources();
+        mixer.submit(chunk("a", 1000, (short) 100), 100, emit);
+        mixer.submit(chunk("b", 1000, (short) 100), 100, emit);
+        mixer.submit(chunk("a", 1020, (short) 100), 100, emit);
+        mixer.removeSource("b");
+
+        // The pending slot only waits for a now, so its next chunk completes both
+        mixer.submit(chunk("a", 1040, (short) 100), 100, emit);
+        assertThat(emitted).hasSize(3);
+    }
+}
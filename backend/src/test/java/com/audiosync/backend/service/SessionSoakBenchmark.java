@@ -0,0 +1,82 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.NullTransportConfig;
+import com.audiosync.backend.model.Room;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Millions of short device sessions in long-lived rooms: joins, heartbeats, latency reports,
+ * leaves and expiries. The live heap after a full GC has to stay flat.
+ */
+@SpringBootTest
+@Import(NullTransportConfig.class)
+class SessionSoakBenchmark {
+    private static final int CYCLES = 2_000_000;
+    private static final int SAMPLES = 8;
+    private static final int ROOMS = 16;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private HandleRegistry handleRegistry;
+
+    @Test
+    void heapStaysFlatUnderJoinLeaveChurn() {
+        Room[] rooms = new Room[ROOMS];
+        for (int r = 0; r < ROOMS; r++) {
+            rooms[r] = roomService.createRoom("host-" + r);
+        }
+        int handlesBefore = handleRegistry.size();
+
+        long[] heap = new long[SAMPLES + 1];
+        heap[0] = liveHeap();
+        long start = System.nanoTime();
+        for (int s = 1; s <= SAMPLES; s++) {
+            for (int i = 0; i < CYCLES / SAMPLES; i++) {
+                cycle(rooms[i % ROOMS], i);
+            }
+            heap[s] = liveHeap();
+            System.out.printf("soak: %,d cycles, live heap %.1f MB, %d handles%n",
+                    (long) s * CYCLES / SAMPLES, heap[s] / 1e6, handleRegistry.size());
+        }
+        System.out.printf("soak: %.2f us per join/leave cycle%n", (System.nanoTime() - start) / 1e3 / CYCLES);
+
+        assertThat(handleRegistry.size()).isEqualTo(handlesBefore);
+        for (Room room : rooms) {
+            assertThat(room.getDevices()).isEmpty();
+        }
+        // Compare against the first sample, once the event logs and pools are warm
+        assertThat(heap[SAMPLES] - heap[1]).isLessThan(8_000_000L);
+    }
+
+    private void cycle(Room room, int i) {
+        String deviceId = UUID.randomUUID().toString();
+        roomService.addDeviceToRoom(room.getId(), deviceId, "Listener");
+        roomService.updateDeviceHeartbeat(room.getId(), deviceId);
+        roomService.updateDeviceLatency(room.getId(), deviceId, 20 + i % 200);
+        if (i % 4 != 0) {
+            roomService.removeDeviceFromRoom(room.getId(), deviceId);
+        } else {
+            room.getDevice(deviceId).setLastHeartbeat(0);
+            roomService.cleanupInactiveDevices();
+        }
+    }
+
+    private static long liveHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,170 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest(properties = {
+        "audio.ingest.host.bytes-per-second=100000000",
+        "audio.ingest.host.messages-per-second=100000",
+        "audio.ingest.room.bytes-per-second=100000000",
+        "audio.ingest.room.messages-per-second=100000",
+        "audio.tracing.sample-rate=0"
+})
+@Import(TestTransportConfig.class)
+class SilenceDetectionTest {
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    private static final int CHUNK_MS = 20;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioStreamingService audioStreamingService;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    @BeforeEach
+    void clear() {
+        messenger.clear();
+    }
+
+    @Test
+    void silentRunsBecomeMarkersWithTimestampsIntact() {
+        List<byte[]> trace = musicAndSpeechTrace();
+        List<JsonNode> detected = stream(trace, 64, 500);
+        List<JsonNode> undetected = stream(trace, 0, 0);
+
+        assertThat(detected).hasSize(trace.size());
+        for (int k = 0; k < detected.size(); k++) {
+            JsonNode chunk = detected.get(k);
+            assertThat(chunk.path("timestamp").asLong()).isEqualTo((long) k * CHUNK_MS);
+            if (chunk.path("silent").asBoolean()) {
+                assertThat(chunk.path("durationMs").asInt()).isEqualTo(CHUNK_MS);
+                assertThat(chunk.path("audioData").isNull() || chunk.path("audioData").isMissingNode()).isTrue();
+            }
+        }
+
+        // The 2 s pause and the two 1.2 s pauses, each less the 500 ms hangover
+        long markers = detected.stream().filter(chunk -> chunk.path("silent").asBoolean()).count();
+        assertThat(markers).isBetween(145L, 150L);
+
+        // Markers are a few bytes, so the savings follow the share of chunks that became markers
+        double savings = 1 - (double) wireBytes(detected) / wireBytes(undetected);
+        double markerShare = (double) markers / detected.size();
+        assertThat(savings).isGreaterThan(0.2).isCloseTo(markerShare, within(0.02));
+    }
+
+    @Test
+    void silenceRightAfterAnAudibleChunkAtTimestampZeroWaitsForTheHangover() {
+        List<byte[]> trace = new ArrayList<>();
+        addTone(trace, CHUNK_MS, 440, 8000);
+        addNoiseFloor(trace, 400, 20, new Random(3));
+
+        List<JsonNode> chunks = stream(trace, 64, 500);
+        assertThat(chunks).hasSize(trace.size());
+        assertThat(chunks).noneMatch(chunk -> chunk.path("silent").asBoolean());
+    }
+
+    @Test
+    void hangoverKeepsShortPausesAsAudio() {
+        // 200 ms gaps in speech stay below the 500 ms hangover
+        List<byte[]> trace = new ArrayList<>();
+        Random random = new Random(2);
+        for (int word = 0; word < 10; word++) {
+            addTone(trace, 300, 220, 6000);
+            addNoiseFloor(trace, 200, 20, random);
+        }
+
+        List<JsonNode> chunks = stream(trace, 64, 500);
+        assertThat(chunks.stream().skip(1).noneMatch(chunk -> chunk.path("silent").asBoolean())).isTrue();
+    }
+
+    private List<JsonNode> stream(List<byte[]> trace, int threshold, int hangoverMs) {
+        Room room = roomService.createRoom("host");
+        roomService.addDeviceToRoom(room.getId(), "listener", "listener");
+        roomService.setSilenceDetection(room.getId(), threshold, hangoverMs);
+        try {
+            for (int k = 0; k < trace.size(); k++) {
+                AudioDataMessage message = new AudioDataMessage();
+                message.setRoomId(room.getId());
+                message.setDeviceId("host");
+                message.setAudioData(trace.get(k));
+                message.setTimestamp((long) k * CHUNK_MS);
+                message.setSampleRate(SAMPLE_RATE);
+                message.setChannels(CHANNELS);
+                message.setEncoding("PCM");
+                audioStreamingService.processAudioData(message);
+            }
+            return messenger.sentTo("listener", "/topic/audio");
+        } finally {
+            roomService.removeRoom(room.getId());
+            messenger.clear();
+        }
+    }
+
+    private static long wireBytes(List<JsonNode> chunks) {
+        return chunks.stream().mapToLong(chunk -> chunk.toString().length()).sum();
+    }
+
+    /**
+     * 4 s of music, a 2 s pause between songs, then 4 s of speech with pauses of varying length
+     */
+    private static List<byte[]> musicAndSpeechTrace() {
+        List<byte[]> trace = new ArrayList<>();
+        Random random = new Random(1);
+        addTone(trace, 4000, 440, 8000);
+        addNoiseFloor(trace, 2000, 20, random);
+        for (int phrase = 0; phrase < 4; phrase++) {
+            addTone(trace, 400, 180, 5000);
+            addNoiseFloor(trace, 150, 30, random);
+            addTone(trace, 300, 240, 4000);
+            addNoiseFloor(trace, phrase % 2 == 0 ? 150 : 1200, 30, random);
+        }
+        return trace;
+    }
+
+    private static void addTone(List<byte[]> trace, int durationMs, double frequency, int amplitude) {
+        for (int ms = 0; ms < durationMs; ms += CHUNK_MS) {
+            int frames = SAMPLE_RATE * CHUNK_MS / 1000;
+            int offset = (trace.size() * frames);
+            byte[] chunk = new byte[frames * CHANNELS * 2];
+            for (int f = 0; f < frames; f++) {
+                short sample = (short) (Math.sin(2 * Math.PI * frequency * (offset + f) / SAMPLE_RATE) * amplitude);
+                for (int ch = 0; ch < CHANNELS; ch++) {
+                    chunk[(f * CHANNELS + ch) * 2] = (byte) sample;
+                    chunk[(f * CHANNELS + ch) * 2 + 1] = (byte) (sample >> 8);
+                }
+            }
+            trace.add(chunk);
+        }
+    }
+
+    private static void addNoiseFloor(List<byte[]> trace, int durationMs, int amplitude, Random random) {
+        for (int ms = 0; ms < durationMs; ms += CHUNK_MS) {
+            byte[] chunk = new byte[SAMPLE_RATE * CHUNK_MS / 1000 * CHANNELS * 2];
+            for (int i = 0; i < chunk.length; i += 2) {
+                short sample = (short) (random.nextInt(2 * amplitude + 1) - amplitude);
+                chunk[i] = (byte) sample;
+                chunk[i + 1] = (byte) (sample >> 8);
+            }
+            trace.add(chunk);
+        }
+    }
+}
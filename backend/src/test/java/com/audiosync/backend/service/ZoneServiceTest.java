@@ -0,0 +1,206 @@
+package com.audiosync.backend.service;
+
+import com.audiosync.backend.TestTransportConfig;
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.model.Zone;
+import com.audiosync.backend.transport.RecordingDeviceMessenger;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One zone stream fanned out over rooms on several dispatch shards
+ */
+@SpringBootTest(properties = {
+        "audio.ingest.host.bytes-per-second=100000000",
+        "audio.ingest.host.messages-per-second=100000",
+        "audio.ingest.room.bytes-per-second=100000000",
+        "audio.ingest.room.messages-per-second=100000",
+        "audio.tracing.sample-rate=0",
+        "audio.zone.dispatch-threads=" + ZoneServiceTest.SHARDS,
+        "audio.zone.dispatch-queue-size=" + ZoneServiceTest.QUEUE_SIZE
+})
+@Import(TestTransportConfig.class)
+class ZoneServiceTest {
+    static final int SHARDS = 3;
+    static final int QUEUE_SIZE = 64;
+    private static final int CHUNK_BYTES = 48000 * 2 * 2 / 50; // 20 ms of 48 kHz stereo
+
+    @Autowired
+    private ZoneService zoneService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private AudioBatchingService batchingService;
+
+    @Autowired
+    private AudioBufferPool bufferPool;
+
+    @Autowired
+    private RecordingDeviceMessenger messenger;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Zone zone;
+    private final List<Room> rooms = new ArrayList<>();
+
+    @BeforeEach
+    void createZone() {
+        messenger.clear();
+        zone = zoneService.createZone("hall", "source");
+        // Enough rooms that every shard serves at least one
+        boolean[] covered = new boolean[SHARDS];
+        int coveredShards = 0;
+        while (coveredShards < SHARDS || rooms.size() < 2 * SHARDS) {
+            Room room = roomService.createRoom("host-" + rooms.size());
+            roomService.addDeviceToRoom(room.getId(), listener(room), "Listener");
+            roomService.setSilenceDetection(room.getId(), 0, 0);
+            zoneService.addRoomToZone(zone.getId(), room.getId());
+            rooms.add(room);
+            if (!covered[shardOf(room)]) {
+                covered[shardOf(room)] = true;
+                coveredShards++;
+            }
+        }
+    }
+
+    @AfterEach
+    void removeZone() {
+        messenger.clear();
+        zoneService.removeZone(zone.getId());
+        rooms.forEach(room -> roomService.removeRoom(room.getId()));
+        rooms.clear();
+    }
+
+    private static String listener(Room room) {
+        return "listener-" + room.getId();
+    }
+
+    private static int shardOf(Room room) {
+        return Math.floorMod(room.getId().hashCode(), SHARDS);
+    }
+
+    private PooledAudioBuffer publish(long timestamp) throws IOException {
+        PooledAudioBuffer buffer = bufferPool.acquire(CHUNK_BYTES);
+        byte[] pcm = new byte[CHUNK_BYTES];
+        for (int i = 0; i < pcm.length; i += 2) {
+            short sample = (short) (Math.sin(i / 20.0) * 8000);
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+        buffer.write(pcm, 0, pcm.length);
+        AudioDataMessage message = new AudioDataMessage();
+        message.setZoneId(zone.getId());
+        message.setDeviceId("source");
+        message.setTimestamp(timestamp);
+        message.setSampleRate(48000);
+        message.setChannels(2);
+        message.setEncoding("PCM");
+        message.setAudioBuffer(buffer);
+        try {
+            zoneService.processZoneAudio(message);
+        } finally {
+            // The transport drops its own reference once the handler returns
+            buffer.release();
+        }
+        return buffer;
+    }
+
+    private static List<Long> timestamps(List<JsonNode> chunks) {
+        return chunks.stream().map(chunk -> chunk.path("timestamp").asLong()).toList();
+    }
+
+    @Test
+    void everyRoomGetsTheZoneStreamInOrder() throws IOException {
+        int chunks = QUEUE_SIZE - 4; // never enough to make a shard drop
+        for (int k = 0; k < chunks; k++) {
+            publish(k * 20L);
+        }
+
+        List<Long> expected = LongStream.range(0, chunks).map(k -> k * 20).boxed().toList();
+        for (Room room : rooms) {
+            List<JsonNode> received = messenger.awaitSentTo(listener(room), "/topic/audio", chunks, 5, TimeUnit.SECONDS);
+            assertThat(timestamps(received)).as("room on shard %d", shardOf(room)).isEqualTo(expected);
+            assertThat(received).allMatch(chunk -> zone.getId().equals(chunk.path("zoneId").asText()));
+        }
+    }
+
+    @Test
+    void saturatedShardDropsItsOldestChunks() throws Exception {
+        Room stuck = rooms.get(0);
+        messenger.hold(listener(stuck));
+        double droppedBefore = meterRegistry.counter("audio.zone.dropped").count();
+
+        publish(0);
+        assertThat(messenger.awaitHeld(listener(stuck), 5, TimeUnit.SECONDS)).isTrue();
+        int overflow = 10;
+        int chunks = 1 + QUEUE_SIZE + overflow;
+        for (int k = 1; k < chunks; k++) {
+            publish(k * 20L);
+        }
+        messenger.release(listener(stuck));
+
+        // The chunk being sent when the shard got stuck, then the newest queue's worth
+        List<Long> expected = new ArrayList<>(List.of(0L));
+        LongStream.range(1 + overflow, chunks).map(k -> k * 20).forEach(expected::add);
+        for (Room room : rooms) {
+            if (shardOf(room) == shardOf(stuck)) {
+                List<JsonNode> received = messenger.awaitSentTo(listener(room), "/topic/audio", expected.size(), 5, TimeUnit.SECONDS);
+                assertThat(timestamps(received)).isEqualTo(expected);
+            } else {
+                // Other shards keep their rooms in order whatever happens to the stuck one
+                List<JsonNode> received = messenger.awaitSentTo(listener(room), "/topic/audio", expected.size(), 5, TimeUnit.SECONDS);
+                assertThat(timestamps(received)).isSorted().doesNotHaveDuplicates().contains((chunks - 1) * 20L);
+            }
+        }
+        assertThat(meterRegistry.counter("audio.zone.dropped").count() - droppedBefore).isGreaterThanOrEqualTo(overflow);
+    }
+
+    @Test
+    void pooledPayloadIsReleasedOnceEveryShardAndBatchIsDone() throws IOException {
+        Room batchedRoom = rooms.get(1);
+        roomService.addDeviceToRoom(batchedRoom.getId(), "batched", "Batched").setAudioBatching(true);
+        // A poor connection gets a buffer large enough to batch
+        roomService.updateDeviceLatency(batchedRoom.getId(), "batched", 200);
+        long outstandingBefore = bufferPool.outstanding();
+        int unreleasedBefore = messenger.unreleased();
+
+        PooledAudioBuffer payload = publish(0);
+        // The encoded chunk is released by the last shard to finish
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (messenger.unreleased() > unreleasedBefore && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertThat(messenger.unreleased()).isEqualTo(unreleasedBefore);
+        for (Room room : rooms) {
+            assertThat(messenger.sentTo(listener(room), "/topic/audio")).hasSize(1);
+        }
+        // The batched listener still holds the payload until its batch goes out
+        assertThat(payload.refCnt()).isEqualTo(1);
+        batchingService.flush("batched");
+
+        assertThat(messenger.sentTo("batched", "/topic/audio-batch")).hasSize(1);
+        assertThat(payload.refCnt()).isZero();
+        assertThat(bufferPool.outstanding()).isEqualTo(outstandingBefore);
+    }
+}
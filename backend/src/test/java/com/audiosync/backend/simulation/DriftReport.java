@@ -0,0 +1,63 @@
+package com.audiosync.backend.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Drift of simulated listeners from the room clock over a long session with playout
+ * reconciliation, next to the drift their clock skew alone would have accumulated.
+ */
+public class DriftReport {
+    private final double hours;
+    private final List<ClientResult> clients;
+
+    public DriftReport(double hours, List<ClientResult> clients) {
+        this.hours = hours;
+        this.clients = clients;
+    }
+
+    public List<ClientResult> getClients() {
+        return clients;
+    }
+
+    public double maxDriftMs() {
+        return clients.stream().mapToDouble(ClientResult::maxDriftMs).max().orElse(Double.NaN);
+    }
+
+    /**
+     * Render the report as a table for the log
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%n=== Playout drift over %.1f h ===%n", hours));
+        out.append(String.format("%-16s %-8s %9s %15s %14s %14s %6s %8s%n",
+                "device", "profile", "skew ppm", "uncorrected ms", "drift p95 ms", "drift max ms", "rates", "resyncs"));
+        for (ClientResult client : clients) {
+            out.append(String.format("%-16s %-8s %9.1f %15.1f %14.1f %14.1f %6d %8d%n",
+                    client.deviceId(), client.profile(), client.skewPpm(), client.uncorrectedMs(),
+                    client.driftPercentile(95), client.maxDriftMs(), client.rateCorrections(), client.resyncs()));
+        }
+        out.append(String.format("Max drift %.1f ms with reconciliation%n", maxDriftMs()));
+        return out.toString();
+    }
+
+    /**
+     * @param drifts Absolute drift sampled at every position report
+     */
+    public record ClientResult(String deviceId, String profile, double skewPpm, double uncorrectedMs,
+                               double[] drifts, int rateCorrections, int resyncs) {
+        public double driftPercentile(double percentile) {
+            if (drifts.length == 0) {
+                return Double.NaN;
+            }
+            double[] sorted = drifts.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        public double maxDriftMs() {
+            return driftPercentile(100);
+        }
+    }
+}
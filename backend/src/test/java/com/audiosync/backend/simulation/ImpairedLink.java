@@ -0,0 +1,55 @@
+package com.audiosync.backend.simulation;
+
+import java.util.Random;
+
+/**
+ * One-way path from the server to a simulated listener. Models the stream as the WebSocket
+ * sees it: a bandwidth-limited bottleneck queue, fixed delay plus jitter, and loss that
+ * shows up as a retransmission delay rather than a missing chunk. Delivery is in order, so
+ * a late chunk holds back everything behind it (head-of-line blocking).
+ */
+public class ImpairedLink {
+    private static final double MIN_RETRANSMIT_MS = 200; // typical minimum TCP retransmission timeout
+
+    private final ImpairmentProfile profile;
+    private final Random random;
+
+    private double bottleneckFreeAtMs;
+    private double lastArrivalMs;
+
+    public ImpairedLink(ImpairmentProfile profile, long seed) {
+        this.profile = profile;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Compute when a chunk sent now reaches the listener
+     * @param sendMs Time the server handed the chunk to the transport
+     * @param bytes Size of the chunk on the wire
+     * @return Arrival time in the same clock as sendMs
+     */
+    public double transmit(double sendMs, int bytes) {
+        double departure = sendMs;
+        if (profile.getBandwidthKbps() > 0) {
+            double transmitMs = bytes * 8.0 / profile.getBandwidthKbps();
+            departure = Math.max(sendMs, bottleneckFreeAtMs) + transmitMs;
+            bottleneckFreeAtMs = departure;
+        }
+
+        double arrival = departure + oneWayDelay();
+        if (random.nextDouble() * 100 < profile.getLossPercent()) {
+            arrival += Math.max(MIN_RETRANSMIT_MS, 2 * profile.getDelayMs()) + oneWayDelay() - profile.getDelayMs();
+        }
+
+        arrival = Math.max(arrival, lastArrivalMs);
+        lastArrivalMs = arrival;
+        return arrival;
+    }
+
+    /**
+     * Sample the one-way delay without queueing or loss, as a latency probe would see it
+     */
+    public double oneWayDelay() {
+        return profile.getDelayMs() + profile.getDistribution().sample(random, profile.getJitterMs());
+    }
+}
@@ -0,0 +1,40 @@
+package com.audiosync.backend.simulation;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Locale;
+
+/**
+ * Network conditions of one class of simulated listeners
+ */
+@Data
+@AllArgsConstructor
+public class ImpairmentProfile {
+    private String name;
+    private double delayMs; // fixed one-way delay
+    private double jitterMs;
+    private JitterDistribution distribution;
+    private double lossPercent; // share of chunks that need a retransmission
+    private int bandwidthKbps; // 0 for unlimited
+
+    /**
+     * Parse a profile written as name:delayMs:jitterMs:distribution:lossPercent:bandwidthKbps,
+     * e.g. "wifi:15:10:pareto:0.5:4000"
+     * @param spec The profile specification
+     * @return The parsed profile
+     */
+    public static ImpairmentProfile parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Expected name:delayMs:jitterMs:distribution:lossPercent:bandwidthKbps but got " + spec);
+        }
+        return new ImpairmentProfile(
+                parts[0],
+                Double.parseDouble(parts[1]),
+                Double.parseDouble(parts[2]),
+                JitterDistribution.valueOf(parts[3].toUpperCase(Locale.ROOT)),
+                Double.parseDouble(parts[4]),
+                Integer.parseInt(parts[5]));
+    }
+}
@@ -0,0 +1,36 @@
+package com.audiosync.backend.simulation;
+
+import java.util.Random;
+
+/**
+ * Shape of the extra delay added on top of a link's fixed delay
+ */
+public enum JitterDistribution {
+    /** Evenly spread between 0 and the jitter */
+    UNIFORM,
+    /** Half-normal with the jitter as standard deviation */
+    NORMAL,
+    /** Heavy-tailed (Pareto, shape 2) with the jitter as mean, for bursty Wi-Fi and cellular links */
+    PARETO;
+
+    /**
+     * Draw one jitter sample
+     * @param random Source of randomness
+     * @param jitterMs Scale of the distribution
+     * @return Extra delay in milliseconds, never negative
+     */
+    public double sample(Random random, double jitterMs) {
+        if (jitterMs <= 0) {
+            return 0;
+        }
+        return switch (this) {
+            case UNIFORM -> random.nextDouble() * jitterMs;
+            case NORMAL -> Math.abs(random.nextGaussian()) * jitterMs;
+            case PARETO -> {
+                // Shape 2 has mean 2 * scale, so scale = jitter / 2 keeps the mean at the jitter
+                double scale = jitterMs / 2;
+                yield scale / Math.sqrt(1 - random.nextDouble()) - scale;
+            }
+        };
+    }
+}
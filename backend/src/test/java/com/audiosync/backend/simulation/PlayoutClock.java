@@ -0,0 +1,59 @@
+package com.audiosync.backend.simulation;
+
+import com.audiosync.backend.websocket.PlayoutCorrectionMessage;
+
+/**
+ * Playout position of a simulated listener relative to the room clock. The device's audio
+ * clock runs off by a fixed skew, so without corrections the drift grows linearly with
+ * session length; rate hints and resyncs from the server act on it like a real client would.
+ */
+public class PlayoutClock {
+    private final double skewPpm;
+    private double rate = 1.0;
+    private double driftMs;
+    private int rateCorrections;
+    private int resyncs;
+
+    public PlayoutClock(double skewPpm, double initialDriftMs) {
+        this.skewPpm = skewPpm;
+        this.driftMs = initialDriftMs;
+    }
+
+    /**
+     * Play for a while at the current rate
+     * @param elapsedMs Wall time passed
+     */
+    public synchronized void advance(double elapsedMs) {
+        driftMs += elapsedMs * ((1 + skewPpm / 1_000_000) * rate - 1);
+    }
+
+    /**
+     * Apply a correction from the server. A resync jumps by the drift the server measured,
+     * so whatever error that measurement had stays behind as the new drift.
+     */
+    public synchronized void apply(PlayoutCorrectionMessage correction) {
+        if ("RESYNC".equals(correction.getAction())) {
+            driftMs -= correction.getDriftMs();
+            resyncs++;
+        } else {
+            rateCorrections++;
+        }
+        rate = correction.getRate();
+    }
+
+    public double getSkewPpm() {
+        return skewPpm;
+    }
+
+    public synchronized double getDriftMs() {
+        return driftMs;
+    }
+
+    public synchronized int getRateCorrections() {
+        return rateCorrections;
+    }
+
+    public synchronized int getResyncs() {
+        return resyncs;
+    }
+}
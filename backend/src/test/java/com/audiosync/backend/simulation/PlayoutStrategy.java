@@ -0,0 +1,11 @@
+package com.audiosync.backend.simulation;
+
+/**
+ * How a simulated listener decides when to start playing
+ */
+public enum PlayoutStrategy {
+    /** Start once the first chunk arrives plus the device's own buffer size from the server */
+    ARRIVAL,
+    /** Play each chunk at its capture timestamp plus the largest buffer size in the room, assuming synchronized clocks */
+    TIMESTAMP
+}
@@ -0,0 +1,123 @@
+package com.audiosync.backend.simulation;
+
+import java.util.Arrays;
+
+/**
+ * A listener behind an impaired link. Records when each chunk of the stream would arrive,
+ * so playout can be replayed afterwards with different strategies against the same arrivals.
+ */
+public class SimulatedClient {
+    private final String deviceId;
+    private final ImpairmentProfile profile;
+    private final ImpairedLink link;
+    private final long startTimestamp;
+    private final int chunkMs;
+    private final double[] arrivalMs;
+
+    private double latencySum;
+    private int latencySamples;
+    private int bufferSizeAtStart = -1;
+    private double clockErrorMs;
+    private PlayoutClock playout;
+
+    public SimulatedClient(String deviceId, ImpairmentProfile profile, long seed,
+                           long startTimestamp, int chunkMs, int totalChunks) {
+        this.deviceId = deviceId;
+        this.profile = profile;
+        this.link = new ImpairedLink(profile, seed);
+        this.startTimestamp = startTimestamp;
+        this.chunkMs = chunkMs;
+        this.arrivalMs = new double[totalChunks];
+        Arrays.fill(arrivalMs, Double.NaN);
+    }
+
+    /**
+     * Pass a chunk handed to the transport through the link
+     * @param timestamp Stream timestamp of the chunk
+     * @param bytes Payload size
+     * @param sendMs Time the server sent the chunk, in simulation time
+     */
+    public synchronized void deliver(long timestamp, int bytes, double sendMs) {
+        int sequence = (int) ((timestamp - startTimestamp) / chunkMs);
+        if (sequence < 0 || sequence >= arrivalMs.length) {
+            return;
+        }
+        double arrival = link.transmit(sendMs, bytes);
+        arrivalMs[sequence] = arrival;
+        latencySum += arrival - sendMs;
+        latencySamples++;
+    }
+
+    /**
+     * Average one-way latency since the last call, what the client would report to the server
+     * @return Latency in milliseconds, or a fresh probe if nothing arrived in between
+     */
+    public synchronized int takeLatencyReport() {
+        double latency = latencySamples > 0 ? latencySum / latencySamples : link.oneWayDelay();
+        latencySum = 0;
+        latencySamples = 0;
+        return (int) Math.round(latency);
+    }
+
+    /**
+     * Remember the buffer size the server calculated when playback starts
+     */
+    public synchronized void recordStartBuffer(int bufferSize) {
+        if (bufferSizeAtStart < 0) {
+            bufferSizeAtStart = bufferSize;
+        }
+    }
+
+    /**
+     * Synchronize the client's clock with the server the way an NTP-style exchange would:
+     * take the probe with the shortest round trip and assume both directions were equal.
+     * Whatever asymmetry that probe had is left as the clock error.
+     * @param probes Number of round trips to measure
+     */
+    public synchronized void synchronizeClock(int probes) {
+        double bestRoundTrip = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < probes; i++) {
+            double down = link.oneWayDelay();
+            double up = link.oneWayDelay();
+            if (down + up < bestRoundTrip) {
+                bestRoundTrip = down + up;
+                clockErrorMs = (down - up) / 2;
+            }
+        }
+    }
+
+    /**
+     * Sample the delay a report sent by the client takes to reach the server
+     */
+    public synchronized double uplinkDelay() {
+        return link.oneWayDelay();
+    }
+
+    public synchronized void setPlayout(PlayoutClock playout) {
+        this.playout = playout;
+    }
+
+    public synchronized PlayoutClock getPlayout() {
+        return playout;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public ImpairmentProfile getProfile() {
+        return profile;
+    }
+
+    public synchronized int getBufferSizeAtStart() {
+        return bufferSizeAtStart;
+    }
+
+    public synchronized double getClockErrorMs() {
+        return clockErrorMs;
+    }
+
+    public synchronized double[] getArrivals() {
+        return arrivalMs.clone();
+    }
+}
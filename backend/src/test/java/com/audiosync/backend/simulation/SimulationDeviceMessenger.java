@@ -0,0 +1,115 @@
+package com.audiosync.backend.simulation;
+
+import com.audiosync.backend.transport.DeviceMessenger;
+import com.audiosync.backend.transport.PreparedMessage;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.audiosync.backend.websocket.PlayoutCorrectionMessage;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sits in front of the real transport when the simulation profile is active. Audio sent to
+ * simulated devices goes into their impaired links instead of a socket and playout
+ * corrections go to their playout clocks, everything else passes through, so real clients
+ * can join the simulated room next to the simulated ones.
+ */
+@Component
+@Primary
+@Profile("simulation")
+public class SimulationDeviceMessenger implements DeviceMessenger {
+    public static final String DEVICE_PREFIX = "sim-";
+
+    private final DeviceMessenger delegate;
+    private final Map<String, SimulatedClient> clients = new ConcurrentHashMap<>();
+    private volatile long originNanos = System.nanoTime();
+
+    public SimulationDeviceMessenger(List<DeviceMessenger> transports) {
+        this.delegate = transports.get(0);
+    }
+
+    public void register(SimulatedClient client) {
+        clients.put(client.getDeviceId(), client);
+    }
+
+    public void unregister(String deviceId) {
+        clients.remove(deviceId);
+    }
+
+    /**
+     * Restart the simulation clock
+     */
+    public void resetClock() {
+        originNanos = System.nanoTime();
+    }
+
+    /**
+     * Current simulation time in milliseconds
+     */
+    public double now() {
+        return (System.nanoTime() - originNanos) / 1_000_000.0;
+    }
+
+    @Override
+    public void sendToDevice(String deviceId, String destination, Object payload) {
+        if (!deviceId.startsWith(DEVICE_PREFIX)) {
+            delegate.sendToDevice(deviceId, destination, payload);
+            return;
+        }
+        SimulatedClient client = clients.get(deviceId);
+        if (client != null && client.getPlayout() != null && payload instanceof PlayoutCorrectionMessage correction) {
+            client.getPlayout().apply(correction);
+        }
+    }
+
+    @Override
+    public void broadcast(String destination, Object payload) {
+        delegate.broadcast(destination, payload);
+    }
+
+    @Override
+    public PreparedMessage prepare(String destination, Object payload) {
+        return new SimulatedPreparedMessage(delegate.prepare(destination, payload), payload);
+    }
+
+    @Override
+    public boolean sendPrepared(String deviceId, PreparedMessage message) {
+        SimulatedPreparedMessage prepared = (SimulatedPreparedMessage) message;
+        if (!deviceId.startsWith(DEVICE_PREFIX)) {
+            return delegate.sendPrepared(deviceId, prepared.encoded);
+        }
+        SimulatedClient client = clients.get(deviceId);
+        if (client == null) {
+            return false;
+        }
+        if (prepared.payload instanceof AudioDataMessage audio) {
+            // A silence marker is only a few dozen bytes on the wire
+            client.deliver(audio.getTimestamp(), audio.isSilent() ? 64 : audio.getPayloadLength(), now());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean sendPrepared(String deviceId, PreparedMessage message, Runnable onWrite) {
+        if (!deviceId.startsWith(DEVICE_PREFIX)) {
+            return delegate.sendPrepared(deviceId, ((SimulatedPreparedMessage) message).encoded, onWrite);
+        }
+        return DeviceMessenger.super.sendPrepared(deviceId, message, onWrite);
+    }
+
+    @Override
+    public void releaseDevice(String deviceId) {
+        delegate.releaseDevice(deviceId);
+    }
+
+    private record SimulatedPreparedMessage(PreparedMessage encoded, Object payload) implements PreparedMessage {
+        @Override
+        public void release() {
+            encoded.release();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.audiosync.backend.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Outcome of replaying the recorded arrivals with one playout strategy. A listener plays
+ * chunk k at a fixed offset from its playout start; a chunk that arrives after its slot is
+ * an underrun and is skipped. Skew is the spread between the times listeners play the same
+ * chunk, end-to-end latency is the time from capture at the host to playout.
+ */
+public class SyncReport {
+    private final PlayoutStrategy strategy;
+    private final List<ClientResult> clients = new ArrayList<>();
+    private double[] skews = new double[0];
+
+    private SyncReport(PlayoutStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Replay playout for every client
+     * @param strategy How clients choose their playout start
+     * @param simulated The clients with their recorded arrivals
+     * @param captureMs Time each chunk was captured at the host, NaN if it was never sent
+     * @param chunkMs Duration of a chunk
+     * @return The report
+     */
+    public static SyncReport compute(PlayoutStrategy strategy, List<SimulatedClient> simulated,
+                                     double[] captureMs, int chunkMs) {
+        SyncReport report = new SyncReport(strategy);
+        int roomBuffer = simulated.stream().mapToInt(SimulatedClient::getBufferSizeAtStart).max().orElse(0);
+
+        double[][] playout = new double[simulated.size()][];
+        for (int c = 0; c < simulated.size(); c++) {
+            SimulatedClient client = simulated.get(c);
+            double[] arrivals = client.getArrivals();
+            double start = playoutStart(strategy, client, arrivals, captureMs, chunkMs, roomBuffer);
+
+            double[] played = new double[arrivals.length];
+            List<Double> latencies = new ArrayList<>();
+            int received = 0;
+            int underruns = 0;
+            for (int k = 0; k < arrivals.length; k++) {
+                played[k] = Double.NaN;
+                if (Double.isNaN(captureMs[k])) {
+                    continue;
+                }
+                double due = start + (double) k * chunkMs;
+                if (Double.isNaN(arrivals[k]) || arrivals[k] > due) {
+                    underruns++;
+                } else {
+                    played[k] = due;
+                    latencies.add(due - captureMs[k]);
+                }
+                if (!Double.isNaN(arrivals[k])) {
+                    received++;
+                }
+            }
+            playout[c] = played;
+            report.clients.add(new ClientResult(client.getDeviceId(), client.getProfile().getName(),
+                    client.getBufferSizeAtStart(), received, underruns,
+                    latencies.stream().mapToDouble(Double::doubleValue).toArray()));
+        }
+
+        List<Double> skews = new ArrayList<>();
+        for (int k = 0; k < captureMs.length; k++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            int playing = 0;
+            for (double[] played : playout) {
+                if (!Double.isNaN(played[k])) {
+                    min = Math.min(min, played[k]);
+                    max = Math.max(max, played[k]);
+                    playing++;
+                }
+            }
+            if (playing > 1) {
+                skews.add(max - min);
+            }
+        }
+        report.skews = skews.stream().mapToDouble(Double::doubleValue).toArray();
+        return report;
+    }
+
+    private static double playoutStart(PlayoutStrategy strategy, SimulatedClient client, double[] arrivals,
+                                       double[] captureMs, int chunkMs, int roomBuffer) {
+        if (strategy == PlayoutStrategy.TIMESTAMP) {
+            // The client schedules by its own clock, so any clock sync error shifts its playout
+            int first = 0;
+            while (first < captureMs.length && Double.isNaN(captureMs[first])) {
+                first++;
+            }
+            double origin = first < captureMs.length ? captureMs[first] - (double) first * chunkMs : 0;
+            return origin + roomBuffer + client.getClockErrorMs();
+        }
+        for (int k = 0; k < arrivals.length; k++) {
+            if (!Double.isNaN(arrivals[k])) {
+                return arrivals[k] + client.getBufferSizeAtStart() - (double) k * chunkMs;
+            }
+        }
+        return 0;
+    }
+
+    public PlayoutStrategy getStrategy() {
+        return strategy;
+    }
+
+    public List<ClientResult> getClients() {
+        return clients;
+    }
+
+    public double skewPercentile(double percentile) {
+        return percentile(skews, percentile);
+    }
+
+    public int totalUnderruns() {
+        return clients.stream().mapToInt(ClientResult::underruns).sum();
+    }
+
+    /**
+     * Render the report as a table for the log
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%n=== Playout strategy %s ===%n", strategy));
+        out.append(String.format("%-16s %-8s %8s %9s %10s %12s %12s%n",
+                "device", "profile", "bufferMs", "received", "underruns", "e2e p50 ms", "e2e p95 ms"));
+        for (ClientResult client : clients) {
+            out.append(String.format("%-16s %-8s %8d %9d %10d %12.1f %12.1f%n",
+                    client.deviceId(), client.profile(), client.bufferMs(), client.received(), client.underruns(),
+                    client.latencyPercentile(50), client.latencyPercentile(95)));
+        }
+        out.append(String.format("Skew p50 %.1f ms, p95 %.1f ms, max %.1f ms; %d underruns in total%n",
+                skewPercentile(50), skewPercentile(95), skewPercentile(100), totalUnderruns()));
+        return out.toString();
+    }
+
+    private static double percentile(double[] values, double percentile) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    public record ClientResult(String deviceId, String profile, int bufferMs, int received, int underruns,
+                               double[] latencies) {
+        public double latencyPercentile(double percentile) {
+            return percentile(latencies, percentile);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.audiosync.backend.simulation;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sync accuracy of simulated listeners on impaired networks, and their playout drift over a
+ * long session. Run with {@code mvn -Pbenchmark test -Dtest=SyncSimulationBenchmark}.
+ */
+@SpringBootTest
+@ActiveProfiles("simulation")
+class SyncSimulationBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SyncSimulationBenchmark.class);
+
+    @Autowired
+    private SyncSimulationRunner runner;
+
+    @Test
+    void syncAccuracyOnImpairedNetworks() {
+        List<SyncReport> reports = runner.simulate();
+        reports.forEach(report -> logger.info(report.format()));
+
+        assertThat(reports).hasSize(PlayoutStrategy.values().length);
+    }
+
+    @Test
+    void playoutDriftOverALongSession() {
+        if (runner.getDriftHours() <= 0) {
+            return;
+        }
+        DriftReport report = runner.simulateDrift();
+        logger.info(report.format());
+
+        assertThat(report.getClients()).isNotEmpty();
+        // Corrections keep every listener within the default resync threshold
+        assertThat(report.maxDriftMs()).isLessThan(150);
+    }
+}
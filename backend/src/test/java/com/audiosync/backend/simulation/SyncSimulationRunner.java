@@ -0,0 +1,263 @@
+package com.audiosync.backend.simulation;
+
+import com.audiosync.backend.model.Device;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.service.AudioStreamingService;
+import com.audiosync.backend.service.PlayoutReconciliationService;
+import com.audiosync.backend.service.RoomService;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures sync accuracy under bad networks. Streams a test tone through the real ingest and
+ * fan-out path into a room of simulated listeners, each behind an {@link ImpairedLink}, while
+ * the listeners report their latency like real clients so the server adapts their buffers.
+ * Afterwards the arrivals are replayed with every {@link PlayoutStrategy} and the skew,
+ * underrun and end-to-end latency figures are logged.
+ * <p>
+ * A second run simulates a long session in virtual time: listeners with skewed audio clocks
+ * report their playout position, and the drift left after the server's corrections is logged.
+ * <p>
+ * Driven by {@link SyncSimulationBenchmark}, the network profiles and stream format are
+ * configured in application-simulation.properties.
+ */
+@Component
+@Profile("simulation")
+public class SyncSimulationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SyncSimulationRunner.class);
+    private static final String HOST_ID = SimulationDeviceMessenger.DEVICE_PREFIX + "host";
+
+    private final RoomService roomService;
+    private final AudioStreamingService audioStreamingService;
+    private final PlayoutReconciliationService playoutService;
+    private final SimulationDeviceMessenger messenger;
+
+    @Value("${audio.simulation.profiles}")
+    private List<String> profiles;
+
+    @Value("${audio.simulation.clients-per-profile:3}")
+    private int clientsPerProfile;
+
+    @Value("${audio.simulation.duration-seconds:30}")
+    private int durationSeconds;
+
+    @Value("${audio.simulation.chunk-ms:20}")
+    private int chunkMs;
+
+    @Value("${audio.simulation.sample-rate:48000}")
+    private int sampleRate;
+
+    @Value("${audio.simulation.channels:2}")
+    private int channels;
+
+    @Value("${audio.simulation.latency-report-ms:1000}")
+    private int latencyReportMs;
+
+    @Value("${audio.simulation.drift-hours:4}")
+    private double driftHours;
+
+    @Value("${audio.simulation.clock-skew-ppm:100}")
+    private double clockSkewPpm;
+
+    @Value("${audio.simulation.position-report-ms:1000}")
+    private int positionReportMs;
+
+    @Value("${audio.simulation.seed:1}")
+    private long seed;
+
+    @Autowired
+    public SyncSimulationRunner(RoomService roomService, AudioStreamingService audioStreamingService,
+                                PlayoutReconciliationService playoutService, SimulationDeviceMessenger messenger) {
+        this.roomService = roomService;
+        this.audioStreamingService = audioStreamingService;
+        this.playoutService = playoutService;
+        this.messenger = messenger;
+    }
+
+    /**
+     * Hours of virtual time {@link #simulateDrift()} covers, 0 if the drift run is disabled
+     */
+    public double getDriftHours() {
+        return driftHours;
+    }
+
+    /**
+     * Run one simulation with the configured profiles
+     * @return One report per playout strategy, computed from the same arrivals
+     */
+    public List<SyncReport> simulate() {
+        int totalChunks = durationSeconds * 1000 / chunkMs;
+        long startTimestamp = System.currentTimeMillis();
+        Room room = roomService.createRoom(HOST_ID);
+        String roomId = room.getId();
+
+        List<SimulatedClient> clients = new ArrayList<>();
+        for (String spec : profiles) {
+            ImpairmentProfile profile = ImpairmentProfile.parse(spec);
+            for (int i = 0; i < clientsPerProfile; i++) {
+                String deviceId = SimulationDeviceMessenger.DEVICE_PREFIX + profile.getName() + "-" + i;
+                SimulatedClient client = new SimulatedClient(deviceId, profile, seed + clients.size(),
+                        startTimestamp, chunkMs, totalChunks);
+                client.synchronizeClock(8);
+                messenger.register(client);
+                roomService.addDeviceToRoom(roomId, deviceId, deviceId);
+                clients.add(client);
+            }
+        }
+        logger.info("Simulating {} listeners in room {} for {} s with {} ms chunks",
+                clients.size(), roomId, durationSeconds, chunkMs);
+
+        try {
+            // Clients measure their latency before playback starts, like the join handshake
+            for (int probe = 0; probe < 3; probe++) {
+                reportLatency(roomId, clients);
+            }
+            double[] captureMs = stream(room, clients, startTimestamp, totalChunks);
+            return Arrays.stream(PlayoutStrategy.values())
+                    .map(strategy -> SyncReport.compute(strategy, clients, captureMs, chunkMs))
+                    .toList();
+        } finally {
+            clients.forEach(client -> messenger.unregister(client.getDeviceId()));
+            roomService.removeRoom(roomId);
+        }
+    }
+
+    /**
+     * Simulate a long session in virtual time. Every listener's audio clock runs off by a
+     * random skew within the configured bound and it reports its position at the configured
+     * interval; each report is off by how much the uplink delay differed from the latency
+     * the device last reported, and corrections take effect immediately.
+     * @return The drift of every listener over the session
+     */
+    public DriftReport simulateDrift() {
+        Random random = new Random(seed);
+        Room room = roomService.createRoom(HOST_ID);
+        String roomId = room.getId();
+        List<SimulatedClient> clients = new ArrayList<>();
+        for (String spec : profiles) {
+            ImpairmentProfile profile = ImpairmentProfile.parse(spec);
+            for (int i = 0; i < clientsPerProfile; i++) {
+                String deviceId = SimulationDeviceMessenger.DEVICE_PREFIX + profile.getName() + "-" + i;
+                SimulatedClient client = new SimulatedClient(deviceId, profile, seed + clients.size(), 0, chunkMs, 0);
+                client.synchronizeClock(8);
+                client.setPlayout(new PlayoutClock((random.nextDouble() * 2 - 1) * clockSkewPpm, client.getClockErrorMs()));
+                messenger.register(client);
+                roomService.addDeviceToRoom(roomId, deviceId, deviceId);
+                clients.add(client);
+            }
+        }
+
+        long reports = (long) (driftHours * 3_600_000 / positionReportMs);
+        logger.info("Simulating playout drift of {} listeners over {} h, {} position reports each",
+                clients.size(), driftHours, reports);
+        try {
+            double[][] drifts = new double[clients.size()][(int) reports];
+            for (int r = 0; r < reports; r++) {
+                if (r % 10 == 0) {
+                    reportLatency(roomId, clients);
+                }
+                for (int c = 0; c < clients.size(); c++) {
+                    SimulatedClient client = clients.get(c);
+                    Device device = room.getDevice(client.getDeviceId());
+                    PlayoutClock playout = client.getPlayout();
+                    playout.advance(positionReportMs);
+                    drifts[c][r] = Math.abs(playout.getDriftMs());
+                    double measured = playout.getDriftMs() + client.uplinkDelay() - device.getAverageLatency();
+                    playoutService.reconcile(room, device, measured);
+                }
+            }
+
+            List<DriftReport.ClientResult> results = new ArrayList<>();
+            for (int c = 0; c < clients.size(); c++) {
+                SimulatedClient client = clients.get(c);
+                PlayoutClock playout = client.getPlayout();
+                results.add(new DriftReport.ClientResult(client.getDeviceId(), client.getProfile().getName(),
+                        playout.getSkewPpm(), Math.abs(playout.getSkewPpm()) * driftHours * 3600 / 1000,
+                        drifts[c], playout.getRateCorrections(), playout.getResyncs()));
+            }
+            return new DriftReport(driftHours, results);
+        } finally {
+            clients.forEach(client -> messenger.unregister(client.getDeviceId()));
+            roomService.removeRoom(roomId);
+        }
+    }
+
+    private double[] stream(Room room, List<SimulatedClient> clients, long startTimestamp, int totalChunks) {
+        double[] captureMs = new double[totalChunks];
+        Arrays.fill(captureMs, Double.NaN);
+        byte[][] tone = toneChunks();
+        int reportEvery = Math.max(1, latencyReportMs / chunkMs);
+
+        messenger.resetClock();
+        long origin = System.nanoTime();
+        for (int k = 0; k < totalChunks; k++) {
+            // Pace the stream in real time so admission control and timing behave as in production
+            long deadline = origin + (long) k * chunkMs * 1_000_000;
+            long wait = deadline - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            AudioDataMessage message = new AudioDataMessage();
+            message.setRoomId(room.getId());
+            message.setDeviceId(HOST_ID);
+            message.setTimestamp(startTimestamp + (long) k * chunkMs);
+            message.setSampleRate(sampleRate);
+            message.setChannels(channels);
+            message.setEncoding("PCM");
+            message.setAudioData(tone[k % tone.length]);
+            captureMs[k] = messenger.now();
+            audioStreamingService.processAudioData(message);
+
+            if (k == 0) {
+                for (SimulatedClient client : clients) {
+                    Device device = room.getDevice(client.getDeviceId());
+                    client.recordStartBuffer(device != null ? device.getBufferSize() : 0);
+                }
+            }
+            if (k % reportEvery == reportEvery - 1) {
+                reportLatency(room.getId(), clients);
+            }
+        }
+        return captureMs;
+    }
+
+    private void reportLatency(String roomId, List<SimulatedClient> clients) {
+        for (SimulatedClient client : clients) {
+            roomService.updateDeviceLatency(roomId, client.getDeviceId(), client.takeLatencyReport());
+            roomService.updateDeviceHeartbeat(roomId, client.getDeviceId());
+        }
+    }
+
+    /**
+     * One second of a 440 Hz tone as 16-bit little-endian PCM, split into chunks
+     */
+    private byte[][] toneChunks() {
+        int framesPerChunk = sampleRate * chunkMs / 1000;
+        int chunks = Math.max(1, 1000 / chunkMs);
+        byte[][] tone = new byte[chunks][framesPerChunk * channels * 2];
+        for (int c = 0; c < chunks; c++) {
+            for (int f = 0; f < framesPerChunk; f++) {
+                double t = (double) (c * framesPerChunk + f) / sampleRate;
+                short sample = (short) (Math.sin(2 * Math.PI * 440 * t) * 8000);
+                for (int ch = 0; ch < channels; ch++) {
+                    int offset = (f * channels + ch) * 2;
+                    tone[c][offset] = (byte) sample;
+                    tone[c][offset + 1] = (byte) (sample >> 8);
+                }
+            }
+        }
+        return tone;
+    }
+}
@@ -0,0 +1,169 @@
+package com.audiosync.backend.transport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Transport for tests that keeps every message sent to a device. Payloads are encoded when
+ * they are prepared or sent, like the real transports do, so later changes to a payload or
+ * its buffers don't show up in what was recorded.
+ */
+public class RecordingDeviceMessenger implements DeviceMessenger {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, List<Sent>> sent = new ConcurrentHashMap<>();
+    private final List<Sent> broadcasts = new CopyOnWriteArrayList<>();
+    private final Set<String> disconnected = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger unreleased = new AtomicInteger();
+    private final Map<String, Hold> held = new ConcurrentHashMap<>();
+
+    public record Sent(String destination, JsonNode payload) {
+    }
+
+    private record Hold(CountDownLatch entered, CountDownLatch released) {
+    }
+
+    @Override
+    public void sendToDevice(String deviceId, String destination, Object payload) {
+        sent.computeIfAbsent(deviceId, id -> new CopyOnWriteArrayList<>()).add(new Sent(destination, encode(payload)));
+    }
+
+    @Override
+    public void broadcast(String destination, Object payload) {
+        broadcasts.add(new Sent(destination, encode(payload)));
+    }
+
+    @Override
+    public PreparedMessage prepare(String destination, Object payload) {
+        unreleased.incrementAndGet();
+        return new RecordedMessage(new Sent(destination, encode(payload)), unreleased);
+    }
+
+    @Override
+    public boolean sendPrepared(String deviceId, PreparedMessage message) {
+        if (disconnected.contains(deviceId)) {
+            return false;
+        }
+        Hold hold = held.get(deviceId);
+        if (hold != null) {
+            hold.entered.countDown();
+            try {
+                hold.released.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sent.computeIfAbsent(deviceId, id -> new CopyOnWriteArrayList<>()).add(((RecordedMessage) message).sent);
+        return true;
+    }
+
+    /**
+     * Messages sent to a device, in order
+     */
+    public List<Sent> sentTo(String deviceId) {
+        return sent.getOrDefault(deviceId, List.of());
+    }
+
+    /**
+     * Messages sent to a device on one destination, in order
+     */
+    public List<JsonNode> sentTo(String deviceId, String destination) {
+        return sentTo(deviceId).stream()
+                .filter(message -> message.destination().equals(destination))
+                .map(Sent::payload)
+                .toList();
+    }
+
+    /**
+     * Wait until a device got at least a number of messages on one destination, for sends
+     * made from other threads
+     * @return The messages sent so far, fewer than expected if the timeout passed first
+     */
+    public List<JsonNode> awaitSentTo(String deviceId, String destination, int count, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<JsonNode> messages = sentTo(deviceId, destination);
+        while (messages.size() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            messages = sentTo(deviceId, destination);
+        }
+        return messages;
+    }
+
+    public List<Sent> getBroadcasts() {
+        return broadcasts;
+    }
+
+    /**
+     * Make sends to a device fail as if its outbound queue was full
+     */
+    public void disconnect(String deviceId) {
+        disconnected.add(deviceId);
+    }
+
+    /**
+     * Make sends to a device block until {@link #release(String)}, like a transport stuck on a
+     * slow connection
+     */
+    public void hold(String deviceId) {
+        held.put(deviceId, new Hold(new CountDownLatch(1), new CountDownLatch(1)));
+    }
+
+    /**
+     * Wait until a send to a held device is blocked
+     * @return false if no send arrived in time
+     */
+    public boolean awaitHeld(String deviceId, long timeout, TimeUnit unit) throws InterruptedException {
+        return held.get(deviceId).entered.await(timeout, unit);
+    }
+
+    /**
+     * Let sends to a held device through again
+     */
+    public void release(String deviceId) {
+        Hold hold = held.remove(deviceId);
+        if (hold != null) {
+            hold.released.countDown();
+        }
+    }
+
+    /**
+     * Number of prepared messages not released yet
+     */
+    public int unreleased() {
+        return unreleased.get();
+    }
+
+    public void clear() {
+        sent.clear();
+        broadcasts.clear();
+        disconnected.clear();
+        held.values().forEach(hold -> hold.released.countDown());
+        held.clear();
+    }
+
+    private JsonNode encode(Object payload) {
+        try {
+            return objectMapper.readTree(objectMapper.writeValueAsBytes(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record RecordedMessage(Sent sent, AtomicInteger unreleased) implements PreparedMessage {
+        @Override
+        public void release() {
+            unreleased.decrementAndGet();
+        }
+    }
+}
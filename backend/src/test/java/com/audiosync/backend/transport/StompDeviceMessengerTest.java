@@ -0,0 +1,84 @@
+package com.audiosync.backend.transport;
+
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.audiosync.backend.websocket.DeviceUpdateMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StompDeviceMessengerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Message<?>> sent = new CopyOnWriteArrayList<>();
+    private final SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate((message, timeout) -> sent.add(message));
+    private final StompDeviceMessenger messenger;
+
+    StompDeviceMessengerTest() {
+        messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+        messenger = new StompDeviceMessenger(messagingTemplate);
+    }
+
+    private static AudioDataMessage audio(int timestamp) {
+        AudioDataMessage message = new AudioDataMessage();
+        message.setDeviceId("host");
+        message.setTimestamp(timestamp);
+        message.setAudioData(new byte[64]);
+        return message;
+    }
+
+    private static String destination(Message<?> message) {
+        return SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+    }
+
+    private JsonNode payload(Message<?> message) throws IOException {
+        return objectMapper.readTree((byte[]) message.getPayload());
+    }
+
+    @Test
+    void preparedMessageIsEncodedOnceForEveryDevice() throws IOException {
+        AudioDataMessage chunk = audio(20);
+        PreparedMessage prepared = messenger.prepare("/topic/audio", chunk);
+        // Encoded at prepare, later changes to the chunk don't reach the devices
+        chunk.setTimestamp(40);
+
+        assertThat(messenger.sendPrepared("listener", prepared)).isTrue();
+        assertThat(messenger.sendPrepared("other", prepared)).isTrue();
+
+        assertThat(sent).extracting(StompDeviceMessengerTest::destination)
+                .containsExactly("/user/listener/topic/audio", "/user/other/topic/audio");
+        assertThat(sent.get(1).getPayload()).isSameAs(sent.get(0).getPayload());
+        byte[] expected = (byte[]) messagingTemplate.getMessageConverter().toMessage(audio(20), null).getPayload();
+        assertThat((byte[]) sent.get(0).getPayload()).isEqualTo(expected);
+        assertThat(payload(sent.get(0)).path("timestamp").asLong()).isEqualTo(20);
+    }
+
+    @Test
+    void deviceMessagesGoToTheDevicesUserDestination() throws IOException {
+        DeviceUpdateMessage update = new DeviceUpdateMessage();
+        update.setDeviceId("listener");
+        messenger.sendToDevice("listener", "/topic/devices", update);
+
+        assertThat(sent).singleElement().satisfies(message -> {
+            assertThat(destination(message)).isEqualTo("/user/listener/topic/devices");
+        });
+        assertThat(payload(sent.get(0)).path("deviceId").asText()).isEqualTo("listener");
+    }
+
+    @Test
+    void broadcastsGoToTheTopicAsIs() throws IOException {
+        messenger.broadcast("/topic/room/room-1/events", audio(60));
+
+        assertThat(sent).singleElement()
+                .satisfies(message -> assertThat(destination(message)).isEqualTo("/topic/room/room-1/events"));
+        assertThat(payload(sent.get(0)).path("timestamp").asLong()).isEqualTo(60);
+    }
+}
@@ -0,0 +1,362 @@
+package com.audiosync.backend.transport;
+
+import com.audiosync.backend.AudioSyncApplication;
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.buffer.PooledAudioBuffer;
+import com.audiosync.backend.model.Room;
+import com.audiosync.backend.service.AudioStreamingService;
+import com.audiosync.backend.service.RoomService;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Audio fan-out over the STOMP/SockJS endpoint against the Reactor Netty transport, each in
+ * its own application with real WebSocket clients on loopback. Chunks are ingested in
+ * process, so only the transports differ. Measures the time from ingest to a listener
+ * parsing the chunk, with chunks paced at 5 ms, and the deliveries per second when chunks
+ * are ingested as fast as they are accepted. Netty drops audio for connections that are backed
+ * up where STOMP queues it, so the unpaced round also counts the chunks that arrived.
+ * <p>
+ * The STOMP endpoint doesn't authenticate, so each session is given its device as user on
+ * CONNECT, as an authenticating deployment would, for the per-device destinations to resolve.
+ */
+class TransportBenchmark {
+    private static final int LISTENERS = 50;
+    private static final int WARMUP_CHUNKS = 1_000;
+    private static final int PACED_CHUNKS = 1_000;
+    private static final long PACING_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int FLOOD_CHUNKS = 2_000;
+    private static final int CHUNK_BYTES = 48000 * 2 * 2 / 50; // 20 ms of 48 kHz stereo
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void stompVersusNetty() throws Exception {
+        Result stomp = run(false);
+        Result netty = run(true);
+
+        System.out.printf("transport: %d listeners, %d chunks paced at %d ms, then %d unpaced%n",
+                LISTENERS, PACED_CHUNKS, TimeUnit.NANOSECONDS.toMillis(PACING_NANOS), FLOOD_CHUNKS);
+        stomp.print("stomp");
+        netty.print("netty");
+        assertThat(stomp.pacedLatencies).isNotEmpty();
+        assertThat(netty.pacedLatencies).isNotEmpty();
+    }
+
+    private Result run(boolean netty) throws Exception {
+        int port = freePort();
+        int nettyPort = freePort();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AudioSyncApplication.class)
+                .profiles(netty ? "netty" : "default")
+                // Arguments, as default properties would lose to application.properties
+                .run("--server.port=" + port,
+                        "--audio.netty.port=" + nettyPort,
+                        "--audio.ingest.host.bytes-per-second=1000000000",
+                        "--audio.ingest.host.messages-per-second=1000000",
+                        "--audio.ingest.room.bytes-per-second=1000000000",
+                        "--audio.ingest.room.messages-per-second=1000000",
+                        "--audio.tracing.sample-rate=0",
+                        "--logging.level.root=WARN");
+        List<Listener> listeners = new ArrayList<>();
+        try {
+            RoomService roomService = context.getBean(RoomService.class);
+            Room room = roomService.createRoom("host");
+            // The host joins first, or the startup sweep of empty rooms can remove the room
+            roomService.addDeviceToRoom(room.getId(), room.getHostId(), "Host");
+            if (!netty) {
+                context.getBean("clientInboundChannel", AbstractSubscribableChannel.class)
+                        // Ahead of the interceptor that makes the headers immutable
+                        .addInterceptor(0, new DeviceUserInterceptor());
+            }
+            for (int i = 0; i < LISTENERS; i++) {
+                String deviceId = "listener-" + i;
+                listeners.add(netty ? new NettyListener(nettyPort, room.getId(), deviceId)
+                        : new StompListener(port, room.getId(), deviceId));
+            }
+            await(() -> room.getDevices().size() == LISTENERS + 1);
+            for (Listener listener : listeners) {
+                if (listener.failure != null) {
+                    throw new IllegalStateException("Listener failed to connect", listener.failure);
+                }
+            }
+            assertThat(room.getDevices()).hasSize(LISTENERS + 1);
+            if (!netty) {
+                SimpUserRegistry users = context.getBean(SimpUserRegistry.class);
+                await(() -> users.getUserCount() == LISTENERS);
+            }
+
+            // A paced warm-up round, then the measured one
+            Ingest ingest = new Ingest(context, room, WARMUP_CHUNKS + PACED_CHUNKS + FLOOD_CHUNKS);
+            for (int k = 0; k < WARMUP_CHUNKS + PACED_CHUNKS; k++) {
+                ingest.chunk(k);
+                LockSupport.parkNanos(PACING_NANOS);
+            }
+            awaitDeliveries(listeners, (long) LISTENERS * (WARMUP_CHUNKS + PACED_CHUNKS));
+            long[] pacedLatencies = latencies(listeners, ingest, WARMUP_CHUNKS, WARMUP_CHUNKS + PACED_CHUNKS);
+            long pacedDelivered = pacedLatencies.length;
+
+            long before = received(listeners);
+            long start = System.nanoTime();
+            for (int k = WARMUP_CHUNKS + PACED_CHUNKS; k < ingest.sentNanos.length; k++) {
+                ingest.chunk(k);
+            }
+            // Netty drops audio for connections that are backed up, those chunks never arrive
+            awaitDeliveries(listeners, before + (long) LISTENERS * FLOOD_CHUNKS);
+            long elapsed = listeners.stream().mapToLong(listener -> listener.lastReceivedNanos).max().orElse(start) - start;
+            return new Result(pacedLatencies, pacedDelivered, received(listeners) - before, elapsed);
+        } finally {
+            listeners.forEach(Listener::close);
+            if (!netty) {
+                // Lets the server handle the DISCONNECTs before its channels shut down
+                SimpUserRegistry users = context.getBean(SimpUserRegistry.class);
+                await(() -> users.getUserCount() == 0);
+            }
+            context.close();
+        }
+    }
+
+    private static long received(List<Listener> listeners) {
+        return listeners.stream().mapToLong(listener -> listener.received.get()).sum();
+    }
+
+    /**
+     * Waits for the deliveries, or until none have arrived for a second
+     */
+    private static void awaitDeliveries(List<Listener> listeners, long expected) {
+        long last = -1;
+        long lastProgress = System.nanoTime();
+        while (received(listeners) < expected && System.nanoTime() - lastProgress < TimeUnit.SECONDS.toNanos(1)) {
+            long now = received(listeners);
+            if (now != last) {
+                last = now;
+                lastProgress = System.nanoTime();
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static long[] latencies(List<Listener> listeners, Ingest ingest, int from, int to) {
+        long[] latencies = new long[listeners.size() * (to - from)];
+        int count = 0;
+        for (Listener listener : listeners) {
+            for (int k = from; k < to; k++) {
+                if (listener.receivedNanos[k] != 0) {
+                    latencies[count++] = listener.receivedNanos[k] - ingest.sentNanos[k];
+                }
+            }
+        }
+        latencies = Arrays.copyOf(latencies, count);
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Ingests chunks into the room, stamped with their index so listeners can tell them apart
+     */
+    private static final class Ingest {
+        private final AudioStreamingService audioStreamingService;
+        private final AudioBufferPool bufferPool;
+        private final Room room;
+        private final byte[] pcm = new byte[CHUNK_BYTES];
+        private final long[] sentNanos;
+
+        private Ingest(ConfigurableApplicationContext context, Room room, int chunks) {
+            this.audioStreamingService = context.getBean(AudioStreamingService.class);
+            this.bufferPool = context.getBean(AudioBufferPool.class);
+            this.room = room;
+            this.sentNanos = new long[chunks];
+            for (int i = 0; i < pcm.length; i += 2) {
+                short sample = (short) (Math.sin(i / 20.0) * 8000);
+                pcm[i] = (byte) sample;
+                pcm[i + 1] = (byte) (sample >> 8);
+            }
+        }
+
+        void chunk(int index) throws IOException {
+            PooledAudioBuffer buffer = bufferPool.acquire(pcm.length);
+            buffer.write(pcm, 0, pcm.length);
+            AudioDataMessage message = new AudioDataMessage();
+            message.setRoomId(room.getId());
+            message.setDeviceId(room.getHostId());
+            message.setTimestamp(index * 20L);
+            message.setSampleRate(48000);
+            message.setChannels(2);
+            message.setEncoding("PCM");
+            message.setAudioBuffer(buffer);
+            sentNanos[index] = System.nanoTime();
+            try {
+                audioStreamingService.processAudioData(message);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+
+    private abstract class Listener {
+        final AtomicInteger received = new AtomicInteger();
+        final long[] receivedNanos = new long[WARMUP_CHUNKS + PACED_CHUNKS + FLOOD_CHUNKS];
+        volatile long lastReceivedNanos;
+        volatile Throwable failure;
+
+        void onChunk(JsonNode chunk) {
+            long now = System.nanoTime();
+            int index = (int) (chunk.path("timestamp").asLong() / 20);
+            if (index >= 0 && index < receivedNanos.length) {
+                receivedNanos[index] = now;
+                lastReceivedNanos = now;
+                received.incrementAndGet();
+            }
+        }
+
+        abstract void close();
+    }
+
+    private final class StompListener extends Listener {
+        private final StompSession session;
+
+        private StompListener(int port, String roomId, String deviceId) throws Exception {
+            WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+            client.setMessageConverter(new MappingJackson2MessageConverter());
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.set("device", deviceId);
+            session = client.connectAsync("ws://localhost:" + port + "/ws/websocket", new WebSocketHttpHeaders(),
+                    connectHeaders, new StompSessionHandlerAdapter() {
+                    }).get(10, TimeUnit.SECONDS);
+            session.subscribe("/user/topic/audio", new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return JsonNode.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    onChunk((JsonNode) payload);
+                }
+            });
+            session.send("/app/resume", Map.of("roomId", roomId, "deviceId", deviceId, "deviceName", deviceId));
+        }
+
+        @Override
+        void close() {
+            // The server terminates sessions that fall too far behind on sends
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        }
+    }
+
+    private final class NettyListener extends Listener {
+        private final Disposable connection;
+
+        private NettyListener(int port, String roomId, String deviceId) throws IOException {
+            String resume = objectMapper.writeValueAsString(Map.of("type", "SEND", "destination", "/app/resume",
+                    "payload", Map.of("roomId", roomId, "deviceId", deviceId, "deviceName", deviceId)));
+            connection = HttpClient.create()
+                    .websocket()
+                    .uri("ws://localhost:" + port + "/ws")
+                    .handle((in, out) -> out.sendString(Mono.just(resume)).then()
+                            .thenMany(in.aggregateFrames(1 << 20).receive().asString()
+                                    .doOnNext(this::onFrame)))
+                    .subscribe(null, error -> failure = error);
+        }
+
+        private void onFrame(String text) {
+            try {
+                JsonNode frame = objectMapper.readTree(text);
+                if ("/topic/audio".equals(frame.path("destination").asText())) {
+                    onChunk(frame.path("payload"));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        void close() {
+            connection.dispose();
+        }
+    }
+
+    /**
+     * Names each STOMP session's user after the device in its CONNECT headers
+     */
+    private static final class DeviceUserInterceptor implements ChannelInterceptor {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+            if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                String deviceId = accessor.getFirstNativeHeader("device");
+                Principal user = () -> deviceId;
+                accessor.setUser(user);
+            }
+            return message;
+        }
+    }
+
+    private record Result(long[] pacedLatencies, long pacedDelivered, long floodDelivered, long floodNanos) {
+
+        double percentileMs(double percentile) {
+            int index = (int) Math.min(pacedLatencies.length - 1, Math.ceil(percentile / 100 * pacedLatencies.length) - 1);
+            return pacedLatencies[Math.max(0, index)] / 1e6;
+        }
+
+        void print(String label) {
+            System.out.printf("  %-6s paced: p50 %6.2f ms, p99 %6.2f ms, max %7.2f ms, %d of %d delivered; "
+                            + "unpaced: %,10.0f deliveries/s, %d of %d delivered%n",
+                    label, percentileMs(50), percentileMs(99), pacedLatencies[pacedLatencies.length - 1] / 1e6,
+                    pacedDelivered, (long) LISTENERS * PACED_CHUNKS,
+                    floodDelivered / (floodNanos / 1e9), floodDelivered, (long) LISTENERS * FLOOD_CHUNKS);
+        }
+    }
+}
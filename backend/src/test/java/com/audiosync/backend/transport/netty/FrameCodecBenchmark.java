@@ -0,0 +1,97 @@
+package com.audiosync.backend.transport.netty;
+
+import com.audiosync.backend.Allocations;
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Frame size and decode time of the Netty transport's inbound frames, JSON against CBOR and
+ * full UUIDs against room and device handles
+ */
+class FrameCodecBenchmark {
+    private static final int ITERATIONS = 200_000;
+
+    private final FrameCodec codec = new FrameCodec(new ObjectMapper(),
+            new AudioBufferPool(new SimpleMeterRegistry(), false, 64, false));
+
+    @Test
+    void sizeAndDecodeTimeByFormat() throws IOException {
+        String roomId = UUID.randomUUID().toString();
+        String deviceId = UUID.randomUUID().toString();
+        byte[] pcm = new byte[48000 * 2 * 2 / 50]; // 20 ms of 48 kHz stereo
+
+        Map<String, Object> heartbeatIds = new LinkedHashMap<>();
+        heartbeatIds.put("roomId", roomId);
+        heartbeatIds.put("deviceId", deviceId);
+        heartbeatIds.put("timestamp", System.currentTimeMillis());
+        Map<String, Object> heartbeatHandles = new LinkedHashMap<>();
+        heartbeatHandles.put("rh", 1);
+        heartbeatHandles.put("dh", 2);
+        heartbeatHandles.put("timestamp", System.currentTimeMillis());
+
+        Map<String, Object> audioIds = new LinkedHashMap<>();
+        audioIds.put("roomId", roomId);
+        audioIds.put("deviceId", deviceId);
+        audioIds.put("timestamp", 1000L);
+        audioIds.put("sampleRate", 48000);
+        audioIds.put("channels", 2);
+        audioIds.put("encoding", "PCM");
+        audioIds.put("audioData", pcm);
+        Map<String, Object> audioHandles = new LinkedHashMap<>(audioIds);
+        audioHandles.remove("roomId");
+        audioHandles.put("rh", 1);
+
+        int heartbeatJson = measure("heartbeat, ids", false, "/app/heartbeat", heartbeatIds);
+        int heartbeatCbor = measure("heartbeat, handles", true, "/app/heartbeat", heartbeatHandles);
+        measure("heartbeat, handles", false, "/app/heartbeat", heartbeatHandles);
+        measure("heartbeat, ids", true, "/app/heartbeat", heartbeatIds);
+        int audioJson = measure("audio 20 ms, ids", false, "/app/audio-data", audioIds);
+        int audioCbor = measure("audio 20 ms, handles", true, "/app/audio-data", audioHandles);
+        measure("audio 20 ms, handles", false, "/app/audio-data", audioHandles);
+        measure("audio 20 ms, ids", true, "/app/audio-data", audioIds);
+
+        assertThat(heartbeatCbor).isLessThan(heartbeatJson / 2);
+        // Base64 text is a third larger than the raw samples CBOR carries
+        assertThat(audioCbor).isLessThan(audioJson * 4 / 5);
+    }
+
+    /**
+     * Encode a SEND frame once, decode it repeatedly and print its size, decode time and allocations
+     * @return Encoded frame size in bytes
+     */
+    private int measure(String label, boolean cbor, String destination, Map<String, Object> payload) throws IOException {
+        ByteBuf frame = codec.encode(cbor, new TransportFrame("SEND", destination, payload));
+        try {
+            int size = frame.readableBytes();
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                decode(cbor, frame); // warm-up
+            }
+            long allocatedBefore = Allocations.allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                decode(cbor, frame);
+            }
+            long nanos = System.nanoTime() - start;
+            long allocated = Allocations.allocatedBytes() - allocatedBefore;
+            System.out.printf("frames: %-22s %-4s %6d bytes, %7.0f ns/decode, %6d bytes allocated/decode%n",
+                    label, cbor ? "CBOR" : "JSON", size, nanos / (double) ITERATIONS, allocated / ITERATIONS);
+            return size;
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void decode(boolean cbor, ByteBuf frame) throws IOException {
+        codec.decode(cbor, frame.duplicate()).release();
+    }
+}
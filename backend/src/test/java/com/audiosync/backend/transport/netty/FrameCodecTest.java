@@ -0,0 +1,52 @@
+package com.audiosync.backend.transport.netty;
+
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameCodecTest {
+    private final FrameCodec codec = new FrameCodec(new ObjectMapper(),
+            new AudioBufferPool(new SimpleMeterRegistry(), false, 64, false));
+
+    private InboundFrame decode(String json) throws IOException {
+        ByteBuf content = Unpooled.copiedBuffer(json, StandardCharsets.UTF_8);
+        try {
+            return codec.decode(false, content);
+        } finally {
+            content.release();
+        }
+    }
+
+    @Test
+    void audioFrameIsDecodedIntoAPooledBuffer() throws IOException {
+        InboundFrame frame = decode("{\"type\":\"SEND\",\"destination\":\"/app/audio-data\","
+                + "\"payload\":{\"roomId\":\"room-1\",\"deviceId\":\"host\",\"timestamp\":20,\"audioData\":\"AAECAw==\"}}");
+
+        assertThat(frame.audio()).isNotNull();
+        assertThat(frame.audio().getDeviceId()).isEqualTo("host");
+        assertThat(frame.audio().getAudioBuffer().length()).isEqualTo(4);
+        frame.release();
+        assertThat(frame.audio().getAudioBuffer()).isNull();
+    }
+
+    @Test
+    void payloadBeforeDestinationTakesTheGenericPath() throws IOException {
+        InboundFrame resume = decode("{\"payload\":{\"roomId\":\"room-1\",\"deviceId\":\"listener\"},"
+                + "\"type\":\"SEND\",\"destination\":\"/app/resume\"}");
+        assertThat(resume.destination()).isEqualTo("/app/resume");
+        assertThat(resume.payload().path("deviceId").asText()).isEqualTo("listener");
+
+        InboundFrame audio = decode("{\"payload\":{\"deviceId\":\"host\",\"audioData\":\"AAECAw==\"},"
+                + "\"destination\":\"/app/audio-data\"}");
+        assertThat(audio.audio()).isNull();
+        assertThat(audio.payload().path("deviceId").asText()).isEqualTo("host");
+    }
+}
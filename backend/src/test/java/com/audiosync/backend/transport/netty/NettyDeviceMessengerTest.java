@@ -0,0 +1,78 @@
+package com.audiosync.backend.transport.netty;
+
+import com.audiosync.backend.buffer.AudioBufferPool;
+import com.audiosync.backend.websocket.AudioDataMessage;
+import com.audiosync.backend.websocket.DeviceUpdateMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NettyDeviceMessengerTest {
+    private static final int QUEUE_SIZE = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NettyDeviceMessenger messenger = new NettyDeviceMessenger(
+            new FrameCodec(new ObjectMapper(), new AudioBufferPool(meterRegistry, false, 64, false)), meterRegistry);
+
+    private static AudioDataMessage audio() {
+        AudioDataMessage message = new AudioDataMessage();
+        message.setDeviceId("host");
+        message.setAudioData(new byte[64]);
+        return message;
+    }
+
+    private double dropped(String kind) {
+        return meterRegistry.counter("netty.outbound.dropped", "kind", kind).count();
+    }
+
+    @Test
+    void reconnectingDeviceTakesOverFromItsOldConnection() {
+        NettyConnection first = new NettyConnection(QUEUE_SIZE, false);
+        NettyConnection second = new NettyConnection(QUEUE_SIZE, false);
+        messenger.bindDevice("listener", first);
+        messenger.bindDevice("listener", second);
+
+        assertThat(first.getDeviceId()).isNull();
+        assertThat(second.getDeviceId()).isEqualTo("listener");
+
+        // Closing the old connection must not unbind the device from the new one
+        messenger.unregister(first);
+        messenger.sendToDevice("listener", "/topic/devices", new DeviceUpdateMessage());
+        assertThat(dropped("control")).isZero();
+    }
+
+    @Test
+    void bindingAnotherDeviceReleasesTheFirst() {
+        NettyConnection connection = new NettyConnection(QUEUE_SIZE, false);
+        messenger.bindDevice("listener", connection);
+        messenger.bindDevice("other", connection);
+
+        assertThat(messenger.sendPrepared("listener", messenger.prepare("/topic/audio", audio()))).isFalse();
+        assertThat(connection.getDeviceId()).isEqualTo("other");
+    }
+
+    @Test
+    void slowClientLosesAudioBeforeControlMessages() {
+        NettyConnection connection = new NettyConnection(QUEUE_SIZE, false);
+        messenger.bindDevice("listener", connection);
+
+        int queuedAudio = 0;
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            if (messenger.sendPrepared("listener", messenger.prepare("/topic/audio", audio()))) {
+                queuedAudio++;
+            }
+        }
+        assertThat(queuedAudio).isEqualTo(QUEUE_SIZE * 3 / 4);
+        assertThat(dropped("audio")).isEqualTo(QUEUE_SIZE / 4);
+
+        // The rest of the queue is still free for room updates
+        for (int i = 0; i < QUEUE_SIZE / 4; i++) {
+            messenger.sendToDevice("listener", "/topic/devices", new DeviceUpdateMessage());
+        }
+        assertThat(dropped("control")).isZero();
+        messenger.sendToDevice("listener", "/topic/devices", new DeviceUpdateMessage());
+        assertThat(dropped("control")).isEqualTo(1);
+    }
+}
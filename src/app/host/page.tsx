@@ -28,6 +28,7 @@ export default function HostPage() {
   const [volume, setVolume] = useState([80]);
   const [selectedSource, setSelectedSource] = useState("files");
   const [connectedDevices, setConnectedDevices] = useState<SyncedDevice[]>([]);
+  const [deliveryLatency, setDeliveryLatency] = useState<Record<string, number>>({});
   const [isConnected, setIsConnected] = useState(false);
   const [isCreatingRoom, setIsCreatingRoom] = useState(false);
   const [audioSource, setAudioSource] = useState<AudioSource | null>(null);
@@ -62,6 +63,17 @@ export default function HostPage() {
           prev.map((d) => (d.id === device.id ? device : d)),
         );
       },
+      onLatencyReport: (report) => {
+        // Median time from server ingest until the device acked the chunk
+        const latency: Record<string, number> = {};
+        report.devices.forEach((device) => {
+          latency[device.deviceId] = Math.round(
+            ["INGEST_TO_DISPATCH", "DISPATCH_TO_WRITE", "WRITE_TO_ACK"]
+              .reduce((total, stage) => total + (device.stages[stage]?.p50Ms ?? 0), 0),
+          );
+        });
+        setDeliveryLatency(latency);
+      },
       onError: (error) => {
         console.error("Audio sync error:", error);
         toast({
@@ -404,6 +416,7 @@ export default function HostPage() {
           <CardContent>
             <DeviceList
               devices={connectedDevices}
+              deliveryLatency={deliveryLatency}
               onRemoveDevice={(deviceId) => {
                 // In a real implementation, you would send a message to remove the device
                 setConnectedDevices((prev) =>
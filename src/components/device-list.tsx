@@ -11,10 +11,11 @@ interface Device {
 
 interface DeviceListProps {
   devices: Device[];
+  deliveryLatency?: Record<string, number>; // traced delivery time per device in ms
   onRemoveDevice?: (id: string) => void;
 }
 
-export function DeviceList({ devices = [], onRemoveDevice }: DeviceListProps) {
+export function DeviceList({ devices = [], deliveryLatency = {}, onRemoveDevice }: DeviceListProps) {
   // If no devices are provided, show some sample devices
   const sampleDevices: Device[] = [
     { id: "1", name: "iPhone 13", connectionQuality: "good", volume: 80 },
@@ -75,6 +76,8 @@ export function DeviceList({ devices = [], onRemoveDevice }: DeviceListProps) {
               <p className="text-sm font-medium">{device.name}</p>
               <p className="text-xs text-muted-foreground">
                 {getConnectionLabel(device.connectionQuality)}
+                {deliveryLatency[device.id] !== undefined &&
+                  ` · ${deliveryLatency[device.id]} ms delivery`}
               </p>
             </div>
           </div>
@@ -12,9 +12,39 @@ export interface AudioSyncOptions {
   onDeviceUpdated?: (device: SyncedDevice) => void;
   onAudioData?: (audioData: ArrayBuffer, timestamp: number, metadata: AudioDataMetadata) => void;
   onConnectionQualityChanged?: (quality: string) => void;
+  onLatencyReport?: (report: LatencyReport) => void;
+  onPlayoutCorrection?: (correction: PlayoutCorrection) => void;
   onError?: (error: any) => void;
 }
 
+export interface StageLatency {
+  count: number;
+  p50Ms: number;
+  p95Ms: number;
+  maxMs: number;
+}
+
+// Delivery latency of traced chunks per stage, e.g. INGEST_TO_DISPATCH or WRITE_TO_ACK
+export interface LatencyReport {
+  roomId: string;
+  stages: Record<string, StageLatency>;
+  devices: {
+    deviceId: string;
+    deviceName: string;
+    reportedLatency: number;
+    stages: Record<string, StageLatency>;
+  }[];
+}
+
+// Sent when the reported playout position drifted from the room clock: RATE asks for a
+// slightly different playback rate, RESYNC for a jump to the given position
+export interface PlayoutCorrection {
+  action: "RATE" | "RESYNC";
+  rate: number;
+  position: number;
+  driftMs: number;
+}
+
 export interface AudioDataMetadata {
   sampleRate: number;
   channels: number;
@@ -28,6 +58,11 @@ export class AudioSyncClient {
   private options: AudioSyncOptions;
   private heartbeatInterval: NodeJS.Timeout | null = null;
   private latencyCheckInterval: NodeJS.Timeout | null = null;
+  // Last room event version applied, sent on reconnect so the server only replays what was missed
+  private roomVersion = 0;
+  private deviceName = "Host Device";
+  // Room to resume after the connection dropped, cleared when leaving on purpose
+  private resumeRoom: Room | null = null;
 
   constructor(options: AudioSyncOptions = {}) {
     this.options = options;
@@ -93,6 +128,8 @@ export class AudioSyncClient {
           };
 
           this.currentRoom = room;
+          this.roomVersion = message.version || 0;
+          this.deviceName = "Host Device";
           this.setupRoomSubscriptions();
           
           // Call the onRoomJoined callback
@@ -154,6 +191,8 @@ export class AudioSyncClient {
           };
 
           this.currentRoom = room;
+          this.roomVersion = message.version || 0;
+          this.deviceName = deviceName;
           this.setupRoomSubscriptions();
           
           // Call the onRoomJoined callback
@@ -180,6 +219,7 @@ export class AudioSyncClient {
         roomCode,
         deviceId: this.wsClient.getDeviceId(),
         deviceName,
+        audioBatching: true,
       });
       
       // Set a timeout to reject the promise if no response is received
@@ -199,6 +239,7 @@ export class AudioSyncClient {
 
       this.clearIntervals();
       this.currentRoom = null;
+      this.resumeRoom = null;
 
       if (this.options.onRoomLeft) {
         this.options.onRoomLeft();
@@ -323,6 +364,22 @@ export class AudioSyncClient {
     });
   }
   
+  /**
+   * Report the stream position currently audible on this device (listeners only)
+   * @param position Timestamp in ms of the audio playing right now
+   */
+  public reportPlayoutPosition(position: number): void {
+    if (!this.currentRoom || !this.wsClient.isConnected()) {
+      return;
+    }
+
+    this.wsClient.send("/app/playout-position", {
+      roomId: this.currentRoom.id,
+      deviceId: this.wsClient.getDeviceId(),
+      position: Math.round(position),
+    });
+  }
+
   /**
    * Process audio from microphone or system audio (host only)
    * @param stream The media stream to process
@@ -390,11 +447,26 @@ export class AudioSyncClient {
 
   private handleConnect(): void {
     console.log("Connected to AudioSync server");
+
+    // Back after a dropped connection: rejoin the room and catch up on what was missed
+    if (this.resumeRoom) {
+      this.currentRoom = this.resumeRoom;
+      this.resumeRoom = null;
+      this.wsClient.send("/app/resume", {
+        roomId: this.currentRoom.id,
+        deviceId: this.wsClient.getDeviceId(),
+        deviceName: this.deviceName,
+        lastVersion: this.roomVersion,
+      });
+      this.startHeartbeat();
+      this.startLatencyCheck();
+    }
   }
 
   private handleDisconnect(): void {
     console.log("Disconnected from AudioSync server");
     this.clearIntervals();
+    this.resumeRoom = this.currentRoom;
     this.currentRoom = null;
 
     if (this.options.onRoomLeft) {
@@ -443,6 +515,38 @@ export class AudioSyncClient {
     return window.btoa(binary);
   }
 
+  private handleAudioMessage(message: any): void {
+    const receivedAt = performance.now();
+    if (this.options.onAudioData && message.audioData) {
+      // Convert base64 string to ArrayBuffer if needed
+      let audioData: ArrayBuffer;
+      if (typeof message.audioData === 'string') {
+        audioData = this.base64ToArrayBuffer(message.audioData);
+      } else {
+        audioData = message.audioData;
+      }
+      
+      const metadata: AudioDataMetadata = {
+        sampleRate: message.sampleRate || 44100,
+        channels: message.channels || 2,
+        encoding: message.encoding || 'PCM',
+        bufferSize: message.bufferSize || 0
+      };
+      
+      this.options.onAudioData(audioData, message.timestamp, metadata);
+    }
+
+    // Sampled chunks carry a trace ID, ack them so the server can measure delivery
+    if (message.traceId != null && this.currentRoom) {
+      this.wsClient.send("/app/audio-ack", {
+        roomId: this.currentRoom.id,
+        deviceId: this.wsClient.getDeviceId(),
+        traceId: message.traceId,
+        processingMs: Math.round(performance.now() - receivedAt),
+      });
+    }
+  }
+
   private setupRoomSubscriptions(): void {
     if (!this.currentRoom) return;
 
@@ -457,6 +561,21 @@ export class AudioSyncClient {
       this.startLatencyCheck();
     });
 
+    // Track the room version so a reconnect can resume from it
+    this.wsClient.subscribe(
+      `/topic/room/${this.currentRoom.id}/events`,
+      (message) => {
+        if (typeof message.version === "number" && message.version > this.roomVersion) {
+          this.roomVersion = message.version;
+        }
+      },
+    );
+
+    // Missed changes, or a full snapshot when too many were missed, in answer to /app/resume
+    this.wsClient.subscribe("/user/topic/room/delta", (message) => {
+      this.applyRoomDelta(message);
+    });
+
     // Subscribe to playback updates
     this.wsClient.subscribe(
       `/topic/room/${this.currentRoom.id}/playback`,
@@ -469,23 +588,13 @@ export class AudioSyncClient {
     
     // Subscribe to audio data (for clients)
     this.wsClient.subscribe("/user/topic/audio", (message) => {
-      if (this.options.onAudioData && message.audioData) {
-        // Convert base64 string to ArrayBuffer if needed
-        let audioData: ArrayBuffer;
-        if (typeof message.audioData === 'string') {
-          audioData = this.base64ToArrayBuffer(message.audioData);
-        } else {
-          audioData = message.audioData;
-        }
-        
-        const metadata: AudioDataMetadata = {
-          sampleRate: message.sampleRate || 44100,
-          channels: message.channels || 2,
-          encoding: message.encoding || 'PCM',
-          bufferSize: message.bufferSize || 0
-        };
-        
-        this.options.onAudioData(audioData, message.timestamp, metadata);
+      this.handleAudioMessage(message);
+    });
+
+    // Listeners with a large buffer may get several consecutive chunks in one frame
+    this.wsClient.subscribe("/user/topic/audio-batch", (message) => {
+      if (Array.isArray(message.chunks)) {
+        message.chunks.forEach((chunk: any) => this.handleAudioMessage(chunk));
       }
     });
     
@@ -513,6 +622,16 @@ export class AudioSyncClient {
       }
     });
 
+    // Subscribe to playout corrections for this device
+    this.wsClient.subscribe("/user/topic/playout", (message) => {
+      if (
+        (message.action === "RATE" || message.action === "RESYNC") &&
+        this.options.onPlayoutCorrection
+      ) {
+        this.options.onPlayoutCorrection(message as PlayoutCorrection);
+      }
+    });
+
     // Subscribe to audio source updates
     this.wsClient.subscribe(
       `/topic/room/${this.currentRoom.id}/audio-source`,
@@ -557,9 +676,71 @@ export class AudioSyncClient {
           this.options.onDeviceDisconnected(message.deviceId);
         }
       });
+
+      // Delivery latency of the room's traced chunks, sent every few seconds while audio flows
+      this.wsClient.subscribe("/user/topic/latency", (message) => {
+        if (this.options.onLatencyReport) {
+          this.options.onLatencyReport(message as LatencyReport);
+        }
+      });
+    }
+  }
+
+  private applyRoomDelta(message: any): void {
+    if (!this.currentRoom) return;
+
+    if (message.snapshot) {
+      const snapshot = message.snapshot;
+      this.currentRoom = {
+        ...this.currentRoom,
+        devices: (snapshot.devices || []).map((device: any) => this.toSyncedDevice(device)),
+        audioSource: snapshot.audioSource || null,
+        isPlaying: snapshot.playing || false,
+        masterVolume: snapshot.masterVolume,
+      };
+      if (this.options.onRoomJoined) {
+        this.options.onRoomJoined(this.currentRoom);
+      }
+    } else if (Array.isArray(message.events)) {
+      message.events.forEach((event: any) => this.applyRoomEvent(event));
+    }
+
+    if (typeof message.version === "number") {
+      this.roomVersion = message.version;
     }
   }
 
+  private applyRoomEvent(event: any): void {
+    const data = event.data || {};
+    switch (event.type) {
+      case "DEVICE_JOIN":
+        this.options.onDeviceConnected?.(this.toSyncedDevice(data));
+        break;
+      case "DEVICE_UPDATE":
+        this.options.onDeviceUpdated?.(this.toSyncedDevice(data));
+        break;
+      case "DEVICE_LEAVE":
+        this.options.onDeviceDisconnected?.(event.deviceId);
+        break;
+      case "PLAYBACK":
+        this.options.onPlaybackChanged?.(data.isPlaying ?? data.playing, data.timestamp);
+        break;
+      case "MASTER_VOLUME":
+        this.options.onVolumeChanged?.(data.volume);
+        break;
+    }
+  }
+
+  private toSyncedDevice(device: any): SyncedDevice {
+    return {
+      id: device.deviceId,
+      name: device.deviceName,
+      connectionQuality: device.connectionQuality,
+      latency: device.latency,
+      volume: device.volume,
+    };
+  }
+
   private startHeartbeat(): void {
     this.clearHeartbeatInterval();
 